@@ -0,0 +1,59 @@
+package software.amazon.ec2.capacityreservation;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.text.SimpleDateFormat;
+import java.time.Instant;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * EndDate parsing in both accepted formats, compared with the Instant.parse / SimpleDateFormat fallback
+ * Translator.getEndDate used before {@link EndDateParser}.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class EndDateBenchmark {
+
+    @Param({"iso", "legacy"})
+    public String format;
+
+    private String endDate;
+
+    @Setup
+    public void setup() {
+        endDate = "iso".equals(format) ? "2030-06-30T23:59:59Z" : "Sun Jun 30 23:59:59 UTC 2030";
+    }
+
+    @Benchmark
+    public Instant getEndDate() {
+        return Translator.getEndDate(endDate, TranslatorBenchmark.NO_OP_LOGGER);
+    }
+
+    @Benchmark
+    public Instant previousImplementation() {
+        try {
+            return Instant.parse(endDate);
+        } catch (Exception e) {
+            TranslatorBenchmark.NO_OP_LOGGER.log(String.format("Instance parse failed with %s", e));
+        }
+        try {
+            return new SimpleDateFormat("E MMM dd HH:mm:ss z yyyy").parse(endDate).toInstant();
+        } catch (Exception e) {
+            return null;
+        }
+    }
+}
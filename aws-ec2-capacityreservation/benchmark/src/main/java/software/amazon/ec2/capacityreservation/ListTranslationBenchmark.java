@@ -0,0 +1,55 @@
+package software.amazon.ec2.capacityreservation;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import software.amazon.awssdk.services.ec2.model.CapacityReservation;
+import software.amazon.awssdk.services.ec2.model.DescribeCapacityReservationsResponse;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * List page mapping, identifiers only and fully populated models, on large pages.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class ListTranslationBenchmark {
+
+    @Param({"1000", "10000"})
+    public int pageSize;
+
+    private DescribeCapacityReservationsResponse page;
+
+    @Setup
+    public void setup() {
+        final List<CapacityReservation> reservations = new ArrayList<>(pageSize);
+        for (int i = 0; i < pageSize; i++) {
+            reservations.add(Reservations.reservation(i, 5));
+        }
+        page = DescribeCapacityReservationsResponse.builder().capacityReservations(reservations).build();
+    }
+
+    @Benchmark
+    public List<ResourceModel> identifiersOnly() {
+        return Translator.translateFromListResponse(page, false);
+    }
+
+    @Benchmark
+    public List<ResourceModel> fullModels() {
+        return Translator.translateFromListResponse(page, true);
+    }
+}
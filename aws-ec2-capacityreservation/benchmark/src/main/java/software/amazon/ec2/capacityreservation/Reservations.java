@@ -0,0 +1,47 @@
+package software.amazon.ec2.capacityreservation;
+
+import software.amazon.awssdk.services.ec2.model.CapacityReservation;
+import software.amazon.awssdk.services.ec2.model.Tag;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Realistic describe payloads for the benchmarks.
+ */
+final class Reservations {
+
+    private Reservations() {
+    }
+
+    /**
+     * @param index makes ids unique; every 20th reservation is cancelled so list filtering has work to do
+     * @param tagCount tags on the reservation
+     */
+    static CapacityReservation reservation(final int index, final int tagCount) {
+        final List<Tag> tags = new ArrayList<>(tagCount);
+        for (int i = 0; i < tagCount; i++) {
+            tags.add(Tag.builder().key("key-" + i).value("value-" + i).build());
+        }
+        return CapacityReservation.builder()
+                .capacityReservationId(String.format("cr-%017x", index))
+                .ownerId("123456789012")
+                .availabilityZone("us-east-1a")
+                .instancePlatform("Linux/UNIX")
+                .instanceType("m5.large")
+                .tenancy("default")
+                .totalInstanceCount(4)
+                .availableInstanceCount(2)
+                .ebsOptimized(true)
+                .ephemeralStorage(false)
+                .state(index % 20 == 19 ? "cancelled" : "active")
+                .startDate(Instant.parse("2024-01-01T00:00:00Z"))
+                .endDate(Instant.parse("2030-06-30T23:59:59Z"))
+                .endDateType("limited")
+                .instanceMatchCriteria("open")
+                .createDate(Instant.parse("2024-01-01T00:00:00Z"))
+                .tags(tags)
+                .build();
+    }
+}
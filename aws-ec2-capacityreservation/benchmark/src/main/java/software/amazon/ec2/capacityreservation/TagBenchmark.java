@@ -0,0 +1,86 @@
+package software.amazon.ec2.capacityreservation;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import software.amazon.awssdk.services.ec2.model.CreateCapacityReservationRequest;
+import software.amazon.cloudformation.proxy.ResourceHandlerRequest;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Tag consolidation with stack, system and resource tags, where resource tags override half of the stack tags.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class TagBenchmark {
+
+    @Param({"10", "50"})
+    public int tagCount;
+
+    private Map<String, String> stackTags;
+    private Map<String, String> systemTags;
+    private List<TagSpecification> tagSpecifications;
+    private ResourceModel model;
+    private ResourceHandlerRequest<ResourceModel> request;
+
+    @Setup
+    public void setup() {
+        stackTags = new HashMap<>();
+        final List<Tag> resourceTags = new ArrayList<>();
+        for (int i = 0; i < tagCount; i++) {
+            stackTags.put("stack-key-" + i, "stack-value-" + i);
+            if (i % 2 == 0) {
+                resourceTags.add(Tag.builder().key("stack-key-" + i).value("resource-value-" + i).build());
+            }
+        }
+        systemTags = new HashMap<>();
+        systemTags.put("aws:cloudformation:logical-id", "Reservation");
+        systemTags.put("aws:cloudformation:stack-name", "benchmark");
+        systemTags.put("aws:cloudformation:stack-id", "arn:aws:cloudformation:us-east-1:123456789012:stack/benchmark/1");
+        tagSpecifications = Arrays.asList(TagSpecification.builder()
+                .resourceType("capacity-reservation")
+                .tags(resourceTags)
+                .build());
+        model = ResourceModel.builder()
+                .availabilityZone("us-east-1a")
+                .instancePlatform("Linux/UNIX")
+                .instanceType("m5.large")
+                .instanceCount(4)
+                .tagSpecifications(tagSpecifications)
+                .build();
+        request = ResourceHandlerRequest.<ResourceModel>builder()
+                .desiredResourceState(model)
+                .desiredResourceTags(stackTags)
+                .systemTags(systemTags)
+                .clientRequestToken("benchmark-token")
+                .build();
+    }
+
+    @Benchmark
+    public List<software.amazon.awssdk.services.ec2.model.TagSpecification> mergeTags() {
+        return TagMerger.merge(stackTags, systemTags, tagSpecifications);
+    }
+
+    @Benchmark
+    public CreateCapacityReservationRequest createRequestWithTags() {
+        return Translator.translateToCreateRequest(model, request, TranslatorBenchmark.NO_OP_LOGGER);
+    }
+}
@@ -0,0 +1,64 @@
+package software.amazon.ec2.capacityreservation;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import software.amazon.awssdk.services.ec2.model.CreateCapacityReservationRequest;
+import software.amazon.awssdk.services.ec2.model.DescribeCapacityReservationsResponse;
+import software.amazon.cloudformation.proxy.Logger;
+import software.amazon.cloudformation.proxy.ResourceHandlerRequest;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Single reservation mapping on the Create and Read paths.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class TranslatorBenchmark {
+    static final Logger NO_OP_LOGGER = message -> { };
+
+    private ResourceModel model;
+    private ResourceHandlerRequest<ResourceModel> request;
+    private DescribeCapacityReservationsResponse readResponse;
+
+    @Setup
+    public void setup() {
+        model = ResourceModel.builder()
+                .availabilityZone("us-east-1a")
+                .instancePlatform("Linux/UNIX")
+                .instanceType("m5.large")
+                .instanceCount(4)
+                .endDateType("limited")
+                .endDate("2030-06-30T23:59:59Z")
+                .build();
+        request = ResourceHandlerRequest.<ResourceModel>builder()
+                .desiredResourceState(model)
+                .clientRequestToken("benchmark-token")
+                .build();
+        readResponse = DescribeCapacityReservationsResponse.builder()
+                .capacityReservations(Reservations.reservation(0, 5))
+                .build();
+    }
+
+    @Benchmark
+    public CreateCapacityReservationRequest translateToCreateRequest() {
+        return Translator.translateToCreateRequest(model, request, NO_OP_LOGGER);
+    }
+
+    @Benchmark
+    public ResourceModel translateFromReadResponse() {
+        return Translator.translateFromReadResponse(readResponse, NO_OP_LOGGER);
+    }
+}
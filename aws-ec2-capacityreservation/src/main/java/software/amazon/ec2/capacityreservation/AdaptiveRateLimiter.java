@@ -0,0 +1,83 @@
+package software.amazon.ec2.capacityreservation;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.function.LongSupplier;
+
+/**
+ * Client-side token bucket in front of EC2 whose rate adapts to throttling: every throttled call halves the rate
+ * and empties the bucket, every successful call raises the rate by {@link #ADDITIVE_INCREASE} (AIMD). EC2 throttles
+ * per account and region, so one limiter per account and region is shared by all invocations in the JVM.
+ */
+final class AdaptiveRateLimiter {
+    static final double MIN_RATE = 1.0;
+    static final double ADDITIVE_INCREASE = 0.1;
+    static final double MULTIPLICATIVE_DECREASE = 0.5;
+
+    private static final ConcurrentMap<String, AdaptiveRateLimiter> SHARED = new ConcurrentHashMap<>();
+
+    private final double maxRate;
+    private final LongSupplier clock;
+    private double rate;
+    private double tokens;
+    private long refilledAt;
+    private long throttles;
+
+    /**
+     * @param initialRate calls per second before any throttling was seen, also the burst size
+     * @param maxRate calls per second the rate never grows beyond
+     * @param clock monotonic nanosecond clock
+     */
+    AdaptiveRateLimiter(final double initialRate, final double maxRate, final LongSupplier clock) {
+        this.maxRate = Math.max(MIN_RATE, maxRate);
+        this.rate = Math.min(this.maxRate, Math.max(MIN_RATE, initialRate));
+        this.tokens = rate;
+        this.clock = clock;
+        this.refilledAt = clock.getAsLong();
+    }
+
+    /**
+     * @param key account and region the limiter throttles
+     */
+    static AdaptiveRateLimiter shared(final String key, final double initialRate, final double maxRate) {
+        return SHARED.computeIfAbsent(key, k -> new AdaptiveRateLimiter(initialRate, maxRate, System::nanoTime));
+    }
+
+    /**
+     * Takes a token, borrowing from the future when the bucket is empty.
+     * @return nanoseconds the caller has to wait before sending its request
+     */
+    synchronized long reserve() {
+        refill();
+        tokens -= 1;
+        return tokens >= 0 ? 0 : (long) (-tokens / rate * TimeUnit.SECONDS.toNanos(1));
+    }
+
+    synchronized void onSuccess() {
+        refill();
+        rate = Math.min(maxRate, rate + ADDITIVE_INCREASE);
+    }
+
+    synchronized void onThrottle() {
+        refill();
+        throttles++;
+        rate = Math.max(MIN_RATE, rate * MULTIPLICATIVE_DECREASE);
+        tokens = Math.min(tokens, 0);
+    }
+
+    synchronized double getRate() {
+        return rate;
+    }
+
+    synchronized long getThrottles() {
+        return throttles;
+    }
+
+    private void refill() {
+        final long now = clock.getAsLong();
+        final double burst = Math.max(1.0, rate);
+        tokens = Math.min(burst, tokens + (now - refilledAt) / (double) TimeUnit.SECONDS.toNanos(1) * rate);
+        refilledAt = now;
+    }
+}
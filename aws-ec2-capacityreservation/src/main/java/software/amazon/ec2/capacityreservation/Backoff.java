@@ -0,0 +1,42 @@
+package software.amazon.ec2.capacityreservation;
+
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Exponential backoff with jitter, used to space out re-invocations and retries so that many
+ * reservations waiting on the same condition do not poll EC2 in lock step.
+ */
+final class Backoff {
+
+    private Backoff() {
+    }
+
+    /**
+     * Delay for the given attempt: half of the capped exponential value is fixed and the other half is random,
+     * so the delay never collapses to zero but callers still spread out.
+     * @param attempt zero based attempt number
+     * @param baseSeconds delay of the first attempt before jitter
+     * @param maxSeconds upper bound of the delay
+     * @return delay in seconds, at least one
+     */
+    static int jitteredDelaySeconds(final int attempt, final int baseSeconds, final int maxSeconds) {
+        return (int) jittered(cappedExponential(attempt, baseSeconds, maxSeconds));
+    }
+
+    /**
+     * Same as {@link #jitteredDelaySeconds} in milliseconds, for retries within an invocation.
+     */
+    static long jitteredDelayMillis(final int attempt, final long baseMillis, final long maxMillis) {
+        return jittered(cappedExponential(attempt, baseMillis, maxMillis));
+    }
+
+    private static long jittered(final long capped) {
+        final long half = capped / 2;
+        return Math.max(1, half + ThreadLocalRandom.current().nextLong(capped - half + 1));
+    }
+
+    private static long cappedExponential(final int attempt, final long base, final long max) {
+        final int shift = Math.min(Math.max(attempt, 0), 30);
+        return Math.min(max, base << shift);
+    }
+}
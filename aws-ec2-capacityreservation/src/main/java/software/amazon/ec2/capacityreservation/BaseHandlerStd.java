@@ -1,31 +1,85 @@
 package software.amazon.ec2.capacityreservation;
 
+import software.amazon.awssdk.awscore.AwsRequestOverrideConfiguration;
+import software.amazon.awssdk.awscore.exception.AwsServiceException;
 import software.amazon.awssdk.services.ec2.Ec2Client;
+import software.amazon.awssdk.services.ec2.model.CapacityReservation;
+import software.amazon.awssdk.services.ec2.model.CapacityReservationState;
 import software.amazon.awssdk.services.ec2.model.DescribeCapacityReservationsRequest;
 import software.amazon.awssdk.services.ec2.model.DescribeCapacityReservationsResponse;
 import software.amazon.cloudformation.exceptions.CfnNotFoundException;
 import software.amazon.cloudformation.proxy.AmazonWebServicesClientProxy;
+import software.amazon.cloudformation.proxy.HandlerErrorCode;
 import software.amazon.cloudformation.proxy.Logger;
 import software.amazon.cloudformation.proxy.ProgressEvent;
 import software.amazon.cloudformation.proxy.ProxyClient;
 import software.amazon.cloudformation.proxy.ResourceHandlerRequest;
 
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Function;
+
 // Placeholder for the functionality that could be shared across Create/Read/Update/Delete/List Handlers
 
 public abstract class BaseHandlerStd extends BaseHandler<CallbackContext> {
+  /**
+   * Reservation ids sent per DescribeCapacityReservations call by the batched describe.
+   */
+  static final int DESCRIBE_BATCH_SIZE = 100;
+
+  private final HandlerSettings settings;
+  private final DescribeCoalescer describeCoalescer;
+  private final ReservationCache reservationCache;
+
+  protected BaseHandlerStd() {
+    this(HandlerSettings.fromEnvironment());
+  }
+
+  protected BaseHandlerStd(final HandlerSettings settings) {
+    this.settings = settings;
+    this.describeCoalescer = settings.isDescribeCoalescingEnabled()
+      ? new DescribeCoalescer(settings.getDescribeCoalescingWindowMillis(), settings.getDescribeCoalescingMaxWaitMillis(), DESCRIBE_BATCH_SIZE)
+      : null;
+    this.reservationCache = settings.getReservationCacheTtlMillis() > 0 ? ReservationCache.shared() : null;
+  }
+
   @Override
   public final ProgressEvent<ResourceModel, CallbackContext> handleRequest(
     final AmazonWebServicesClientProxy proxy,
     final ResourceHandlerRequest<ResourceModel> request,
     final CallbackContext callbackContext,
     final Logger logger) {
-    return handleRequest(
-      proxy,
-      request,
-      callbackContext != null ? callbackContext : new CallbackContext(),
-      proxy.newProxy(ClientBuilder::getClient),
-      logger
-    );
+    final CallbackContext context = callbackContext != null ? callbackContext : new CallbackContext();
+    final OperationMetrics metrics = OperationMetrics.begin(getClass().getSimpleName().replace("Handler", ""));
+    final InvocationDeadline deadline = InvocationDeadline.begin(settings.getInvocationBudgetMillis(),
+      settings.getDeadlineMarginMillis(), settings.getEc2AttemptTimeoutMillis());
+    final long clientBuilds = ClientBuilder.metrics().getBuilds();
+    final int stabilizationAttempts = context.getStabilizationAttempts();
+    ProgressEvent<ResourceModel, CallbackContext> event = null;
+    try {
+      final ProxyClient<Ec2Client> proxyClient = proxy.newProxy(() -> ClientBuilder.getClient(settings));
+      final ProxyClient<Ec2Client> deadlineProxyClient = proxyClient == null ? null : new DeadlineProxyClient<>(proxyClient);
+      event = handleRequest(
+        proxy,
+        request,
+        context,
+        deadlineProxyClient == null || !settings.isRateLimiterEnabled() ? deadlineProxyClient : new RateLimitedProxyClient(deadlineProxyClient, throttlingRetry(request)),
+        logger
+      );
+      return event;
+    } finally {
+      deadline.end();
+      metrics.end();
+      EmbeddedMetrics.emit(settings.getMetricsDestination(), logger, metrics,
+        event == null ? "EXCEPTION" : String.valueOf(event.getStatus()),
+        context.getStabilizationAttempts() - stabilizationAttempts, ClientBuilder.metrics().getBuilds() - clientBuilds);
+    }
   }
 
   protected abstract ProgressEvent<ResourceModel, CallbackContext> handleRequest(
@@ -35,24 +89,319 @@ public abstract class BaseHandlerStd extends BaseHandler<CallbackContext> {
     final ProxyClient<Ec2Client> proxyClient,
     final Logger logger);
 
+  protected HandlerSettings getSettings() {
+    return settings;
+  }
+
+  /**
+   * Rate limiting and throttle retries for EC2 calls of the request's account and region, a pass-through when disabled.
+   */
+  protected ThrottlingRetry throttlingRetry(final ResourceHandlerRequest<ResourceModel> request) {
+    if (!settings.isRateLimiterEnabled()) {
+      return ThrottlingRetry.direct();
+    }
+    final AdaptiveRateLimiter limiter = AdaptiveRateLimiter.shared(request.getAwsAccountId() + "|" + request.getRegion(),
+            settings.getRateLimitInitialTps(), settings.getRateLimitMaxTps());
+    return new ThrottlingRetry(limiter, settings.getThrottleRetryMaxAttempts(), settings.getThrottleRetryBaseDelayMillis(), Thread::sleep);
+  }
+
+  /**
+   * Runs one call chain of the handler, timing it and attributing its EC2 calls to it in the invocation metrics.
+   * @param callGraph name of the step, passed on to {@code proxy.initiate}
+   * @param chain the call chain
+   * @return the chain's progress event
+   */
+  protected ProgressEvent<ResourceModel, CallbackContext> step(
+          final String callGraph,
+          final Function<String, ProgressEvent<ResourceModel, CallbackContext>> chain) {
+    final OperationMetrics metrics = OperationMetrics.current();
+    return metrics == null ? chain.apply(callGraph) : metrics.step(callGraph, () -> chain.apply(callGraph));
+  }
+
+  /**
+   * Same as {@link #step(String, Function)} for Create, Update and Delete, which may return IN_PROGRESS: when the
+   * invocation's time budget is nearly spent the chain is not started, and the progress so far, including the
+   * responses of earlier steps memoized in the callback context, is handed back with a one second callback delay.
+   * @param callGraph name of the step, passed on to {@code proxy.initiate}
+   * @param progress progress event the step starts from
+   * @param chain the call chain
+   * @return the chain's progress event
+   */
+  protected ProgressEvent<ResourceModel, CallbackContext> step(
+          final String callGraph,
+          final ProgressEvent<ResourceModel, CallbackContext> progress,
+          final Function<String, ProgressEvent<ResourceModel, CallbackContext>> chain) {
+    if (InvocationDeadline.nearlySpent()) {
+      return ProgressEvent.defaultInProgressHandler(progress.getCallbackContext(), 1, progress.getResourceModel());
+    }
+    return step(callGraph, chain);
+  }
+
   protected DescribeCapacityReservationsResponse describeCapacityReservations(
           final DescribeCapacityReservationsRequest describeRequest,
           final ProxyClient<Ec2Client> proxyClient,
           final Logger logger) {
     DescribeCapacityReservationsResponse reservationsResponse = null;
     try {
-      logger.log("[INFO] Reading capacity reservation");
+      Log.debug(logger, "Reading capacity reservation", "id", describeRequest.capacityReservationIds());
       reservationsResponse = proxyClient.injectCredentialsAndInvokeV2(describeRequest,
               (proxyRequest) -> proxyClient.client().describeCapacityReservations(proxyRequest));
-      logger.log(String.format("[INFO] Describe capacity reservation response %s", reservationsResponse));
+      Log.debug(logger, "Describe capacity reservation response", "response", reservationsResponse);
       //A read handler MUST return FAILED with a NotFound error code if the resource does not exist.
-      if (reservationsResponse.capacityReservations().get(0).state().toString().equalsIgnoreCase("cancelled")) {
+      if (isMissing(reservationsResponse)) {
         throw new CfnNotFoundException(ResourceModel.TYPE_NAME, describeRequest.capacityReservationIds().get(0));
       }
     } catch (final Exception e) {
-      logger.log("[ERROR] Error while describing capacity reservation");
+      Log.error(logger, "Error while describing capacity reservation", "id", describeRequest.capacityReservationIds(), "error", e);
       throw e;
     }
     return reservationsResponse;
   }
+
+  /**
+   * Single reservation describe for the read path. Same contract as {@link #describeCapacityReservations}, but
+   * answered from the reservation cache while its entry is fresh, and when coalescing is enabled concurrent reads
+   * of the same account, region and credentials are answered by one multi-ID call.
+   * @param request handler request, identifying the account and region
+   * @param describeRequest describe request for a single reservation
+   * @param proxyClient the aws service client to make the call
+   * @param logger logger
+   * @return describe response holding the reservation
+   */
+  protected DescribeCapacityReservationsResponse readCapacityReservation(
+          final ResourceHandlerRequest<ResourceModel> request,
+          final DescribeCapacityReservationsRequest describeRequest,
+          final ProxyClient<Ec2Client> proxyClient,
+          final Logger logger) {
+    if (reservationCache == null) {
+      return describeForRead(request, describeRequest, proxyClient, logger);
+    }
+    final String key = ReservationCache.key(request.getAwsAccountId(), request.getRegion(), describeRequest.capacityReservationIds().get(0));
+    final Optional<CapacityReservation> cached = reservationCache.get(key, settings.getReservationCacheTtlMillis());
+    if (cached.isPresent()) {
+      Log.debug(logger, "Capacity reservation served from cache", "id", cached.get().capacityReservationId());
+      return DescribeCapacityReservationsResponse.builder().capacityReservations(cached.get()).build();
+    }
+    final long generation = reservationCache.generation();
+    final DescribeCapacityReservationsResponse reservationsResponse = describeForRead(request, describeRequest, proxyClient, logger);
+    final CapacityReservation capacityReservation = reservationsResponse.capacityReservations().get(0);
+    // a pending reservation is about to change, caching it would only delay stabilization checks
+    if (!CapacityReservationState.PENDING.toString().equalsIgnoreCase(capacityReservation.stateAsString())) {
+      reservationCache.put(key, capacityReservation, generation);
+    }
+    return reservationsResponse;
+  }
+
+  /**
+   * Drops the cached state of a reservation. Called after every modify or cancel, whether it succeeded or not.
+   */
+  protected void invalidateCachedReservation(final ResourceHandlerRequest<ResourceModel> request, final String capacityReservationId) {
+    if (reservationCache != null) {
+      reservationCache.invalidate(ReservationCache.key(request.getAwsAccountId(), request.getRegion(), capacityReservationId));
+    }
+  }
+
+  private DescribeCapacityReservationsResponse describeForRead(
+          final ResourceHandlerRequest<ResourceModel> request,
+          final DescribeCapacityReservationsRequest describeRequest,
+          final ProxyClient<Ec2Client> proxyClient,
+          final Logger logger) {
+    if (describeCoalescer == null) {
+      return describeCapacityReservations(describeRequest, proxyClient, logger);
+    }
+    final String capacityReservationId = describeRequest.capacityReservationIds().get(0);
+    final Optional<CapacityReservationLookup> lookup = describeCoalescer.describe(
+            request.getAwsAccountId() + "|" + request.getRegion() + "|" + credentialIdentity(proxyClient),
+            capacityReservationId,
+            ids -> describeCapacityReservations(ids, proxyClient, logger));
+    if (!lookup.isPresent()) {
+      return describeCapacityReservations(describeRequest, proxyClient, logger);
+    }
+    if (!lookup.get().isFound()) {
+      throw new CfnNotFoundException(ResourceModel.TYPE_NAME, capacityReservationId);
+    }
+    return DescribeCapacityReservationsResponse.builder()
+            .capacityReservations(lookup.get().getCapacityReservation())
+            .build();
+  }
+
+  /**
+   * Access key id of the credentials the client signs with, so that only callers acting with the same credentials
+   * share a coalesced describe. The credentials are read from a request that is signed but never sent.
+   * @param proxyClient the aws service client the describe would be made with
+   * @return access key id, empty when the client does not inject credentials
+   */
+  private static String credentialIdentity(final ProxyClient<Ec2Client> proxyClient) {
+    final AtomicReference<String> identity = new AtomicReference<>("");
+    proxyClient.injectCredentialsAndInvokeV2(DescribeCapacityReservationsRequest.builder().build(), signed -> {
+      signed.overrideConfiguration()
+        .flatMap(AwsRequestOverrideConfiguration::credentialsProvider)
+        .ifPresent(provider -> identity.set(provider.resolveCredentials().accessKeyId()));
+      return DescribeCapacityReservationsResponse.builder().build();
+    });
+    return identity.get();
+  }
+
+  /**
+   * Describes many reservations with as few calls as possible: IDs are de-duplicated and sent in chunks of
+   * {@link #DESCRIBE_BATCH_SIZE}. EC2 rejects a whole call when one of its IDs does not exist, so a rejected chunk is
+   * split in halves until the unknown IDs are isolated and reported as not found instead of failing the batch.
+   * @param capacityReservationIds ids to describe
+   * @param proxyClient the aws service client to make the call
+   * @param logger logger
+   * @return lookup result for every requested id, in request order
+   */
+  protected Map<String, CapacityReservationLookup> describeCapacityReservations(
+          final Collection<String> capacityReservationIds,
+          final ProxyClient<Ec2Client> proxyClient,
+          final Logger logger) {
+    final List<String> ids = new ArrayList<>(new LinkedHashSet<>(capacityReservationIds));
+    final Map<String, CapacityReservationLookup> lookups = new LinkedHashMap<>();
+    for (int from = 0; from < ids.size(); from += DESCRIBE_BATCH_SIZE) {
+      describeChunk(ids.subList(from, Math.min(from + DESCRIBE_BATCH_SIZE, ids.size())), proxyClient, lookups, logger);
+    }
+    final Map<String, CapacityReservationLookup> ordered = new LinkedHashMap<>();
+    ids.forEach(id -> ordered.put(id, lookups.getOrDefault(id, CapacityReservationLookup.notFound(id))));
+    return ordered;
+  }
+
+  private void describeChunk(
+          final List<String> ids,
+          final ProxyClient<Ec2Client> proxyClient,
+          final Map<String, CapacityReservationLookup> lookups,
+          final Logger logger) {
+    String nextToken = null;
+    try {
+      do {
+        final DescribeCapacityReservationsRequest describeRequest = DescribeCapacityReservationsRequest.builder()
+                .capacityReservationIds(ids)
+                .nextToken(nextToken)
+                .build();
+        final DescribeCapacityReservationsResponse reservationsResponse = proxyClient.injectCredentialsAndInvokeV2(describeRequest,
+                (proxyRequest) -> proxyClient.client().describeCapacityReservations(proxyRequest));
+        reservationsResponse.capacityReservations().forEach(cr -> lookups.put(cr.capacityReservationId(), CapacityReservationLookup.of(cr)));
+        nextToken = reservationsResponse.nextToken();
+      } while (nextToken != null);
+    } catch (final AwsServiceException e) {
+      if (!isUnknownIdError(e)) {
+        Log.error(logger, "Error while describing capacity reservations", "count", ids.size(), "error", e);
+        throw e;
+      }
+      if (ids.size() == 1) {
+        lookups.put(ids.get(0), CapacityReservationLookup.notFound(ids.get(0)));
+        return;
+      }
+      final int middle = ids.size() / 2;
+      describeChunk(ids.subList(0, middle), proxyClient, lookups, logger);
+      describeChunk(ids.subList(middle, ids.size()), proxyClient, lookups, logger);
+    }
+  }
+
+  private static boolean isUnknownIdError(final AwsServiceException e) {
+    final String errorCode = e.awsErrorDetails() == null ? null : e.awsErrorDetails().errorCode();
+    return "InvalidCapacityReservationId.NotFound".equals(errorCode) || "InvalidCapacityReservationId.Malformed".equals(errorCode);
+  }
+
+  /**
+   * A single-ID describe that returns no reservation, or a cancelled one, means the reservation is gone.
+   */
+  private static boolean isMissing(final DescribeCapacityReservationsResponse reservationsResponse) {
+    return reservationsResponse.capacityReservations().isEmpty()
+            || "cancelled".equalsIgnoreCase(reservationsResponse.capacityReservations().get(0).stateAsString());
+  }
+
+  /**
+   * Hands the wait back to CloudFormation: records the attempt in the callback context and returns IN_PROGRESS
+   * with a backed-off callback delay, or fails with NotStabilized once the stabilization deadline has passed.
+   * @param model resource model to return with the progress event
+   * @param callbackContext context carrying the attempt count, first-seen time and deadline across re-invocations
+   * @param targetState state the reservation is waiting for, used in messages only
+   * @param logger logger
+   * @return in progress event with a callback delay, or a failed event
+   */
+  protected ProgressEvent<ResourceModel, CallbackContext> awaitStabilization(
+          final ResourceModel model,
+          final CallbackContext callbackContext,
+          final String targetState,
+          final Logger logger) {
+    final long now = System.currentTimeMillis();
+    if (callbackContext.getStabilizationStartedAt() == null) {
+      callbackContext.setStabilizationStartedAt(now);
+      callbackContext.setStabilizationDeadline(now + settings.getStabilizationTimeoutSeconds() * 1000L);
+    }
+    final long remainingSeconds = (callbackContext.getStabilizationDeadline() - now) / 1000L;
+    if (remainingSeconds <= 0) {
+      return ProgressEvent.failed(model, callbackContext, HandlerErrorCode.NotStabilized,
+              String.format("%s [%s] did not reach state %s within %d seconds", ResourceModel.TYPE_NAME, model.getId(),
+                      targetState, settings.getStabilizationTimeoutSeconds()));
+    }
+    final int attempt = callbackContext.getStabilizationAttempts();
+    callbackContext.setStabilizationAttempts(attempt + 1);
+    final int delaySeconds = (int) Math.min(remainingSeconds,
+            Backoff.jitteredDelaySeconds(attempt, settings.getStabilizationBaseDelaySeconds(), settings.getStabilizationMaxDelaySeconds()));
+    Log.info(logger, "Waiting for capacity reservation to stabilize", "id", model.getId(), "targetState", targetState,
+            "attempt", attempt + 1, "delaySeconds", delaySeconds);
+    return ProgressEvent.defaultInProgressHandler(callbackContext, delaySeconds, model);
+  }
+
+  /**
+   * Ends a wait right away when the reservation entered a state it will not leave for the one being waited for.
+   * @param state state the reservation was described in
+   * @param targetState state the reservation was waiting for
+   * @return failed event with NotStabilized
+   */
+  protected static ProgressEvent<ResourceModel, CallbackContext> notStabilized(
+          final ResourceModel model,
+          final CallbackContext callbackContext,
+          final String state,
+          final String targetState) {
+    return ProgressEvent.failed(model, callbackContext, HandlerErrorCode.NotStabilized,
+            String.format("%s [%s] entered state %s while waiting for %s", ResourceModel.TYPE_NAME, model.getId(), state, targetState));
+  }
+
+  /**
+   * Error handler for the mutating handlers. Errors {@link ErrorClassifier} deems retryable are handed back to
+   * CloudFormation as IN_PROGRESS with the suggested callback delay, backed off with jitter, until the retry budget
+   * in the callback context is spent; everything else fails right away with the classified error code.
+   * @param ex error of the EC2 call
+   * @param model resource model to return with the progress event
+   * @param callbackContext context carrying the retries spent across re-invocations
+   * @param logger logger
+   * @return in progress event with a callback delay, or a failed event
+   */
+  protected ProgressEvent<ResourceModel, CallbackContext> retryOrFail(
+          final Exception ex,
+          final ResourceModel model,
+          final CallbackContext callbackContext,
+          final Logger logger) {
+    final ErrorClassifier.Classification classification = ErrorClassifier.classify(ex);
+    final int attempt = callbackContext.getTransientRetries();
+    if (!classification.isRetryable() || attempt >= settings.getTransientRetryMaxAttempts()) {
+      return Translator.translateError(ex);
+    }
+    callbackContext.setTransientRetries(attempt + 1);
+    final int delaySeconds = Backoff.jitteredDelaySeconds(attempt, classification.getCallbackDelaySeconds(),
+            settings.getStabilizationMaxDelaySeconds());
+    Log.warn(logger, "Retrying after a transient error", "id", model == null ? null : model.getId(),
+            "errorCode", classification.getErrorCode(), "attempt", attempt + 1, "delaySeconds", delaySeconds, "error", ex.getMessage());
+    return ProgressEvent.defaultInProgressHandler(callbackContext, delaySeconds, model);
+  }
+
+  /**
+   * Fails a request whose model {@link ModelValidator} found problems with, before any EC2 call is made.
+   * @param problems problems found, one message each
+   * @param model resource model to return with the progress event
+   * @param callbackContext callback context
+   * @param logger logger
+   * @return failed event with InvalidRequest listing every problem
+   */
+  protected ProgressEvent<ResourceModel, CallbackContext> rejectInvalid(
+          final List<String> problems,
+          final ResourceModel model,
+          final CallbackContext callbackContext,
+          final Logger logger) {
+    final String message = String.join("; ", problems);
+    Log.warn(logger, "Rejecting invalid model before calling EC2", "problems", message);
+    return ProgressEvent.failed(model, callbackContext, HandlerErrorCode.InvalidRequest, message);
+  }
 }
@@ -7,4 +7,23 @@ import software.amazon.cloudformation.proxy.StdCallbackContext;
 @lombok.ToString
 @lombok.EqualsAndHashCode(callSuper = true)
 public class CallbackContext extends StdCallbackContext {
+    /**
+     * Progress of a create across re-invocations.
+     */
+    public enum CreatePhase {
+        // CreateCapacityReservation was sent but its response not seen; sending it again with the same client token is safe
+        CREATING,
+        // the reservation exists and is waiting to become active
+        STABILIZING
+    }
+
+    // Reservation made by this create, so re-invocations resume from it instead of calling create again
+    private String capacityReservationId;
+    private CreatePhase createPhase;
+    // Stabilization progress survives re-invocations, so waiting is done by CloudFormation instead of the Lambda
+    private int stabilizationAttempts;
+    private Long stabilizationStartedAt;
+    private Long stabilizationDeadline;
+    // Re-invocations already spent on retryable EC2 errors
+    private int transientRetries;
 }
@@ -0,0 +1,39 @@
+package software.amazon.ec2.capacityreservation;
+
+import software.amazon.awssdk.services.ec2.model.CapacityReservation;
+
+/**
+ * Outcome of looking up a single reservation through a batched describe.
+ *
+ * EC2 keeps returning cancelled reservations for a while, which CloudFormation treats as gone, so callers can tell
+ * a reservation that was cancelled apart from one EC2 does not know at all.
+ */
+@lombok.Value
+final class CapacityReservationLookup {
+
+    enum Status {
+        FOUND,
+        CANCELLED,
+        NOT_FOUND
+    }
+
+    String capacityReservationId;
+    Status status;
+    /**
+     * The reservation as described, null when not found.
+     */
+    CapacityReservation capacityReservation;
+
+    static CapacityReservationLookup of(final CapacityReservation capacityReservation) {
+        final Status status = "cancelled".equalsIgnoreCase(capacityReservation.stateAsString()) ? Status.CANCELLED : Status.FOUND;
+        return new CapacityReservationLookup(capacityReservation.capacityReservationId(), status, capacityReservation);
+    }
+
+    static CapacityReservationLookup notFound(final String capacityReservationId) {
+        return new CapacityReservationLookup(capacityReservationId, Status.NOT_FOUND, null);
+    }
+
+    boolean isFound() {
+        return status == Status.FOUND;
+    }
+}
@@ -1,12 +1,182 @@
 package software.amazon.ec2.capacityreservation;
 
+import software.amazon.awssdk.awscore.exception.AwsServiceException;
+import software.amazon.awssdk.core.SdkSystemSetting;
+import software.amazon.awssdk.core.client.config.ClientOverrideConfiguration;
+import software.amazon.awssdk.core.retry.RetryPolicy;
+import software.amazon.awssdk.core.retry.RetryPolicyContext;
+import software.amazon.awssdk.core.retry.conditions.RetryCondition;
+import software.amazon.awssdk.regions.Region;
 import software.amazon.awssdk.services.ec2.Ec2Client;
+import software.amazon.awssdk.services.ec2.Ec2ClientBuilder;
 import software.amazon.cloudformation.LambdaWrapper;
 
+import java.net.URI;
+import java.time.Duration;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Registry of EC2 clients shared by every handler invocation in this JVM.
+ *
+ * Clients are keyed by region, endpoint and the {@link HandlerSettings} they are configured from, built lazily on
+ * first use and closed when the JVM shuts down, so warm invocations skip SDK client construction (endpoint
+ * resolution, marshallers, interceptors). The no-settings overloads read the settings from the environment.
+ * Credentials are injected per request by the {@link software.amazon.cloudformation.proxy.ProxyClient},
+ * which is why a single client can safely serve all callers.
+ */
 public class ClientBuilder {
+  /**
+   * Endpoint the default clients send requests to instead of the regional EC2 endpoint, for example a local
+   * EC2 stand-in during load tests. The system property wins over the environment variable.
+   */
+  static final String EC2_ENDPOINT_OVERRIDE = "EC2_ENDPOINT_OVERRIDE";
+  static final String EC2_ENDPOINT_OVERRIDE_PROPERTY = "ec2.endpointOverride";
+
+  private static final ConcurrentMap<String, Ec2Client> CLIENTS = new ConcurrentHashMap<>();
+  private static final RegistryMetrics METRICS = new RegistryMetrics();
+
+  static {
+    Runtime.getRuntime().addShutdownHook(new Thread(ClientBuilder::closeAll, "ec2-client-registry-shutdown"));
+  }
+
   public static Ec2Client getClient() {
-    return Ec2Client.builder()
+    return getClient(HandlerSettings.fromEnvironment());
+  }
+
+  public static Ec2Client getClient(final HandlerSettings settings) {
+    return getClient(defaultRegion(), defaultEndpoint(), settings);
+  }
+
+  public static Ec2Client getClient(final Region region, final URI endpointOverride) {
+    return getClient(region, endpointOverride, HandlerSettings.fromEnvironment());
+  }
+
+  /**
+   * Returns the shared client for the region/endpoint pair, building it on first use.
+   * @param region region the client signs for, null to let the SDK resolve it
+   * @param endpointOverride endpoint to send requests to, null for the regional EC2 endpoint
+   * @param settings settings the client's retries and timeouts are taken from
+   * @return shared ec2 client
+   */
+  public static Ec2Client getClient(final Region region, final URI endpointOverride, final HandlerSettings settings) {
+    // With the rate limiter on, throttles are retried by ThrottlingRetry, whose limiter has to see every one of them
+    final boolean sdkThrottleRetries = !settings.isRateLimiterEnabled();
+    final String key = registryKey(region, endpointOverride, settings, sdkThrottleRetries);
+    METRICS.lookups.incrementAndGet();
+    final Ec2Client cached = CLIENTS.get(key);
+    if (cached != null) {
+      METRICS.hits.incrementAndGet();
+      return cached;
+    }
+    return CLIENTS.computeIfAbsent(key, k -> buildClient(region, endpointOverride, overrideConfiguration(settings, sdkThrottleRetries)));
+  }
+
+  public static RegistryMetrics metrics() {
+    return METRICS;
+  }
+
+  static void closeAll() {
+    CLIENTS.forEach((key, client) -> {
+      if (CLIENTS.remove(key, client)) {
+        client.close();
+        METRICS.closed.incrementAndGet();
+      }
+    });
+  }
+
+  private static Ec2Client buildClient(final Region region, final URI endpointOverride,
+                                       final ClientOverrideConfiguration overrideConfiguration) {
+    final long start = System.nanoTime();
+    final Ec2ClientBuilder builder = Ec2Client.builder()
             .httpClient(LambdaWrapper.HTTP_CLIENT)
+            .overrideConfiguration(overrideConfiguration);
+    if (region != null) {
+      builder.region(region);
+    }
+    if (endpointOverride != null) {
+      builder.endpointOverride(endpointOverride);
+    }
+    final Ec2Client client = builder.build();
+    METRICS.recordBuild(System.nanoTime() - start);
+    return client;
+  }
+
+  private static ClientOverrideConfiguration overrideConfiguration(final HandlerSettings settings, final boolean sdkThrottleRetries) {
+    return ClientOverrideConfiguration.builder()
+            .addExecutionInterceptor(new MetricsInterceptor())
+            // Backstop for calls made outside of an invocation budget, which sets tighter timeouts per request
+            .apiCallAttemptTimeout(Duration.ofMillis(settings.getEc2AttemptTimeoutMillis()))
+            .apiCallTimeout(Duration.ofMillis(settings.getInvocationBudgetMillis()))
+            .retryPolicy(RetryPolicy.defaultRetryPolicy().toBuilder()
+                    .retryCondition(context -> shouldSdkRetry(context, sdkThrottleRetries))
+                    .build())
             .build();
   }
+
+  private static boolean shouldSdkRetry(final RetryPolicyContext context, final boolean sdkThrottleRetries) {
+    final boolean throttled = context.exception() instanceof AwsServiceException
+            && ((AwsServiceException) context.exception()).isThrottlingException();
+    return (sdkThrottleRetries || !throttled) && RetryCondition.defaultRetryCondition().shouldRetry(context);
+  }
+
+  private static Region defaultRegion() {
+    return SdkSystemSetting.AWS_REGION.getStringValue().map(Region::of).orElse(null);
+  }
+
+  static URI defaultEndpoint() {
+    final String endpoint = System.getProperty(EC2_ENDPOINT_OVERRIDE_PROPERTY, System.getenv(EC2_ENDPOINT_OVERRIDE));
+    return endpoint == null || endpoint.trim().isEmpty() ? null : URI.create(endpoint.trim());
+  }
+
+  private static String registryKey(final Region region, final URI endpointOverride, final HandlerSettings settings,
+                                    final boolean sdkThrottleRetries) {
+    return (region == null ? "default" : region.id()) + "|" + (endpointOverride == null ? "" : endpointOverride.toString())
+            + "|" + sdkThrottleRetries + "|" + settings.getEc2AttemptTimeoutMillis() + "|" + settings.getInvocationBudgetMillis();
+  }
+
+  /**
+   * Counters describing how the registry has been used since the JVM started.
+   * A healthy warm container shows a single build per key and a hit ratio approaching 1.
+   */
+  @lombok.ToString
+  public static final class RegistryMetrics {
+    private final AtomicLong lookups = new AtomicLong();
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong builds = new AtomicLong();
+    private final AtomicLong closed = new AtomicLong();
+    private final AtomicLong totalBuildNanos = new AtomicLong();
+    private final AtomicLong maxBuildNanos = new AtomicLong();
+
+    private void recordBuild(final long nanos) {
+      builds.incrementAndGet();
+      totalBuildNanos.addAndGet(nanos);
+      maxBuildNanos.accumulateAndGet(nanos, Math::max);
+    }
+
+    public long getLookups() {
+      return lookups.get();
+    }
+
+    public long getHits() {
+      return hits.get();
+    }
+
+    public long getBuilds() {
+      return builds.get();
+    }
+
+    public long getClosed() {
+      return closed.get();
+    }
+
+    public long getTotalBuildNanos() {
+      return totalBuildNanos.get();
+    }
+
+    public long getMaxBuildNanos() {
+      return maxBuildNanos.get();
+    }
+  }
 }
@@ -1,19 +1,35 @@
 package software.amazon.ec2.capacityreservation;
 
 import software.amazon.awssdk.services.ec2.Ec2Client;
+import software.amazon.awssdk.services.ec2.model.CapacityReservation;
 import software.amazon.awssdk.services.ec2.model.CreateCapacityReservationResponse;
+import software.amazon.awssdk.services.ec2.model.DescribeCapacityReservationsResponse;
 import software.amazon.cloudformation.proxy.AmazonWebServicesClientProxy;
+import software.amazon.cloudformation.proxy.HandlerErrorCode;
 import software.amazon.cloudformation.proxy.Logger;
 import software.amazon.cloudformation.proxy.ProgressEvent;
 import software.amazon.cloudformation.proxy.ProxyClient;
 import software.amazon.cloudformation.proxy.ResourceHandlerRequest;
 
+import java.util.List;
+
 /**
  * https://awscli.amazonaws.com/v2/documentation/api/latest/reference/ec2/create-capacity-reservation.html
  */
 public class CreateHandler extends BaseHandlerStd {
+    private static final String ACTIVE_STATE = "active";
+    private static final String PENDING_STATE = "pending";
+
     private Logger logger;
 
+    public CreateHandler() {
+        super();
+    }
+
+    CreateHandler(final HandlerSettings settings) {
+        super(settings);
+    }
+
 protected ProgressEvent<ResourceModel, CallbackContext> handleRequest(
         final AmazonWebServicesClientProxy proxy,
         final ResourceHandlerRequest<ResourceModel> request,
@@ -22,44 +38,120 @@ protected ProgressEvent<ResourceModel, CallbackContext> handleRequest(
         final Logger logger) {
 
     this.logger = logger;
+    if (callbackContext.getCreatePhase() == CallbackContext.CreatePhase.STABILIZING && callbackContext.getCapacityReservationId() != null) {
+        // the model was validated before the reservation was created
+        return resume(proxyClient, request, callbackContext, logger);
+    }
+    final List<String> problems = ModelValidator.validateForCreate(request.getDesiredResourceState(), request.getDesiredResourceTags());
+    if (!problems.isEmpty()) {
+        return rejectInvalid(problems, request.getDesiredResourceState(), callbackContext, logger);
+    }
+    if (callbackContext.getCreatePhase() == CallbackContext.CreatePhase.CREATING) {
+        Log.info(logger, "Repeating create whose response was not seen, the client token keeps it idempotent",
+                "clientToken", request.getClientRequestToken());
+    }
+    callbackContext.setCreatePhase(CallbackContext.CreatePhase.CREATING);
     return ProgressEvent.progress(request.getDesiredResourceState(), callbackContext)
-            .then(progress ->
+            .then(progress -> step("AWS-EC2-CapacityReservation::Create", progress, callGraph ->
                     // STEP 1 [initialize a proxy context]
-                    proxy.initiate("AWS-EC2-CapacityReservation::Create", proxyClient, progress.getResourceModel(), progress.getCallbackContext())
+                    proxy.initiate(callGraph, proxyClient, progress.getResourceModel(), progress.getCallbackContext())
 
                             // STEP 2 [construct a body of create capacity reservation request]
                             .translateToServiceRequest((model) -> Translator.translateToCreateRequest(model, request, logger))
                             // STEP 3 [Make create capacity reservation api call]
                             .makeServiceCall((createCapacityReservationRequest, ec2client) -> {
-                                logger.log(String.format("[INFO] Creating resource with request: %s", request.toString()));
-                                CreateCapacityReservationResponse createCapacityReservationResponse = null;
-                                try {
-                                    createCapacityReservationResponse = ec2client.injectCredentialsAndInvokeV2(createCapacityReservationRequest,
-                                            ec2client.client()::createCapacityReservation);
-                                    logger.log(String.format("[INFO] createCapacityReservation response : ", createCapacityReservationResponse));
-                                } catch (final Exception e) {
-                                    throw e;
-                                }
-                                logger.log(String.format("%s successfully created.", ResourceModel.TYPE_NAME));
+                                Log.debug(logger, "Creating capacity reservation", "request", createCapacityReservationRequest);
+                                final CreateCapacityReservationResponse createCapacityReservationResponse = ec2client.injectCredentialsAndInvokeV2(
+                                        createCapacityReservationRequest, ec2client.client()::createCapacityReservation);
+                                Log.debug(logger, "CreateCapacityReservation response", "response", createCapacityReservationResponse);
+                                Log.info(logger, "Capacity reservation created", "id", createCapacityReservationResponse.capacityReservation().capacityReservationId());
                                 return createCapacityReservationResponse;
                             })
-                            // STEP 4 [stabilize step is not necessarily required but typically involves describing the resource until it is in a certain status]
+                            .handleError((createCapacityReservationRequest, exception, ec2client, model, context) -> retryOrFail(exception, model, context, logger))
+                            // STEP 4 [stabilize: the reservation needs to be in active state]
                             // We also set cr ID to resource model from aws response
-                            .stabilize((createCapacityReservationRequest, createCapacityReservationResponse, client, model, context) -> {
-                                final boolean stabilized = false;
-                                model.setId(createCapacityReservationResponse.capacityReservation().capacityReservationId());
-                                model.setInstanceMatchCriteria(createCapacityReservationResponse.capacityReservation().instanceMatchCriteriaAsString());
-                                model.setTenancy(createCapacityReservationResponse.capacityReservation().tenancyAsString());
-                                logger.log(String.format("CR is in %s state ", createCapacityReservationResponse.capacityReservation().stateAsString()));
-                                //ODCR needs to be in active state
-                                if(createCapacityReservationResponse.capacityReservation().state().toString().equalsIgnoreCase("active")){
-                                    return true;
+                            .done((createCapacityReservationRequest, createCapacityReservationResponse, ec2client, model, context) -> {
+                                final CapacityReservation cr = createCapacityReservationResponse.capacityReservation();
+                                context.setCapacityReservationId(cr.capacityReservationId());
+                                context.setCreatePhase(CallbackContext.CreatePhase.STABILIZING);
+                                model.setId(cr.capacityReservationId());
+                                model.setInstanceMatchCriteria(cr.instanceMatchCriteriaAsString());
+                                model.setTenancy(cr.tenancyAsString());
+                                Log.info(logger, "Capacity reservation state", "id", cr.capacityReservationId(), "state", cr.stateAsString());
+                                if (ACTIVE_STATE.equalsIgnoreCase(cr.stateAsString())) {
+                                    // The create response already carries the full reservation, no need to read it back
+                                    return ProgressEvent.progress(Translator.translateFromCapacityReservation(cr), context);
                                 }
-                                return stabilized;
-                            })
-                            .handleError((createCapacityReservationRequest, exception, ec2client, model, context) -> Translator.translateError(exception))
-                            .progress())
-            // STEP 5 [describe call/chain to return the resource model]
-            .then(progress -> new ReadHandler().handleRequest(proxy, request, callbackContext, proxyClient, logger));
+                                if (PENDING_STATE.equalsIgnoreCase(cr.stateAsString())) {
+                                    // A describe sent right after the create may not see the reservation yet,
+                                    // the first check is left to the re-invocation
+                                    return awaitStabilization(model, context, ACTIVE_STATE, logger);
+                                }
+                                return notStabilized(model, context, cr.stateAsString(), ACTIVE_STATE);
+                            })))
+            // STEP 5 [return the resource model built from the last reservation snapshot]
+            .then(this::complete);
+    }
+
+    /**
+     * Re-invocation of a create whose reservation already exists: only the stabilization check is left,
+     * CreateCapacityReservation is not sent again.
+     */
+    private ProgressEvent<ResourceModel, CallbackContext> resume(
+            final ProxyClient<Ec2Client> proxyClient,
+            final ResourceHandlerRequest<ResourceModel> request,
+            final CallbackContext callbackContext,
+            final Logger logger) {
+        final ResourceModel model = request.getDesiredResourceState();
+        model.setId(callbackContext.getCapacityReservationId());
+        Log.debug(logger, "Resuming create", "id", model.getId(), "phase", callbackContext.getCreatePhase());
+        return ProgressEvent.progress(model, callbackContext)
+                .then(progress -> step("AWS-EC2-CapacityReservation::Create::Stabilize", progress, callGraph ->
+                        stabilize(proxyClient, model, callbackContext, logger)))
+                .then(this::complete);
+    }
+
+    private ProgressEvent<ResourceModel, CallbackContext> complete(final ProgressEvent<ResourceModel, CallbackContext> progress) {
+        return progress.getCallbackDelaySeconds() > 0
+                ? progress
+                : ProgressEvent.defaultSuccessHandler(progress.getResourceModel());
+    }
+
+    /**
+     * Describes the reservation once. It is done when active; while pending the wait is handed back to
+     * CloudFormation through a callback delay instead of polling inside this invocation. EC2 is eventually
+     * consistent, so a reservation it does not find yet is treated as pending until the stabilization deadline.
+     */
+    private ProgressEvent<ResourceModel, CallbackContext> stabilize(
+            final ProxyClient<Ec2Client> proxyClient,
+            final ResourceModel model,
+            final CallbackContext callbackContext,
+            final Logger logger) {
+        final DescribeCapacityReservationsResponse reservationsResponse;
+        try {
+            reservationsResponse = proxyClient.injectCredentialsAndInvokeV2(Translator.translateToReadRequest(model, logger),
+                    (describeRequest) -> proxyClient.client().describeCapacityReservations(describeRequest));
+        } catch (final Exception e) {
+            if (ErrorClassifier.classify(e).getErrorCode() != HandlerErrorCode.NotFound) {
+                return retryOrFail(e, model, callbackContext, logger);
+            }
+            Log.info(logger, "Capacity reservation is not visible yet", "id", model.getId(), "error", e.getMessage());
+            return awaitStabilization(model, callbackContext, ACTIVE_STATE, logger);
+        }
+        if (reservationsResponse.capacityReservations().isEmpty()) {
+            Log.info(logger, "Capacity reservation is not visible yet", "id", model.getId());
+            return awaitStabilization(model, callbackContext, ACTIVE_STATE, logger);
+        }
+
+        final CapacityReservation reservation = reservationsResponse.capacityReservations().get(0);
+        final String state = reservation.stateAsString();
+        Log.info(logger, "Capacity reservation state", "id", model.getId(), "state", state);
+        if (ACTIVE_STATE.equalsIgnoreCase(state)) {
+            return ProgressEvent.progress(Translator.translateFromCapacityReservation(reservation), callbackContext);
+        }
+        if (PENDING_STATE.equalsIgnoreCase(state)) {
+            return awaitStabilization(model, callbackContext, ACTIVE_STATE, logger);
+        }
+        return notStabilized(model, callbackContext, state, ACTIVE_STATE);
     }
 }
@@ -3,7 +3,10 @@ package software.amazon.ec2.capacityreservation;
 import software.amazon.awssdk.awscore.exception.AwsServiceException;
 import software.amazon.awssdk.services.ec2.Ec2Client;
 import software.amazon.awssdk.services.ec2.model.CancelCapacityReservationResponse;
+import software.amazon.awssdk.services.ec2.model.DescribeCapacityReservationsResponse;
+import software.amazon.cloudformation.exceptions.CfnNotFoundException;
 import software.amazon.cloudformation.proxy.AmazonWebServicesClientProxy;
+import software.amazon.cloudformation.proxy.HandlerErrorCode;
 import software.amazon.cloudformation.proxy.Logger;
 import software.amazon.cloudformation.proxy.ProgressEvent;
 import software.amazon.cloudformation.proxy.ProxyClient;
@@ -13,8 +16,20 @@ import software.amazon.cloudformation.proxy.ResourceHandlerRequest;
  * https://awscli.amazonaws.com/v2/documentation/api/latest/reference/ec2/cancel-capacity-reservation.html
  */
 public class DeleteHandler extends BaseHandlerStd {
+    private static final String CANCELLED_STATE = "cancelled";
+    private static final String EXPIRED_STATE = "expired";
+    private static final String FAILED_STATE = "failed";
+
     private Logger logger;
 
+    public DeleteHandler() {
+        super();
+    }
+
+    DeleteHandler(final HandlerSettings settings) {
+        super(settings);
+    }
+
     protected ProgressEvent<ResourceModel, CallbackContext> handleRequest(
             final AmazonWebServicesClientProxy proxy,
             final ResourceHandlerRequest<ResourceModel> request,
@@ -28,17 +43,19 @@ public class DeleteHandler extends BaseHandlerStd {
 
                 // STEP 1 [check if resource already exists]
                 // if target API does not support 'ResourceNotFoundException' then following check is required
-                .then(progress ->
-                        proxy.initiate("AWS-EC2-CapacityReservation::Delete::PreDeletionCheck", proxyClient, progress.getResourceModel(), progress.getCallbackContext())
+                // the fast path skips it and reads the outcome of the cancel call instead
+                .then(progress -> getSettings().isDeleteFastPathEnabled() ? progress : step("AWS-EC2-CapacityReservation::Delete::PreDeletionCheck", progress, callGraph ->
+                        proxy.initiate(callGraph, proxyClient, progress.getResourceModel(), progress.getCallbackContext())
                                 .translateToServiceRequest(model -> Translator.translateToReadRequest(model, logger))
                                 .makeServiceCall((describeCapacityReservationsRequest, ec2client) -> describeCapacityReservations(describeCapacityReservationsRequest, ec2client, logger))
-                                .handleError((describeCapacityReservationsRequest, exception, ec2client, model, context) -> Translator.translateError(exception))
-                                .progress()
+                                .handleError((describeCapacityReservationsRequest, exception, ec2client, model, context) -> retryOrFail(exception, model, context, logger))
+                                .progress())
                 )
 
                 // STEP 2.0 [delete/stabilize progress chain - required for resource deletion]
-                .then(progress ->
-                        proxy.initiate("AWS-EC2-CapacityReservation::Delete", proxyClient, progress.getResourceModel(), progress.getCallbackContext())
+                // a retryable error of the check hands back a callback delay, which is returned as is
+                .then(progress -> progress.getCallbackDelaySeconds() > 0 ? progress : step("AWS-EC2-CapacityReservation::Delete", progress, callGraph ->
+                        proxy.initiate(callGraph, proxyClient, progress.getResourceModel(), progress.getCallbackContext())
 
                                 // STEP 2.1 [construct a body of a request]
                                 .translateToServiceRequest((model) -> Translator.translateToDeleteRequest(model, logger))
@@ -47,27 +64,92 @@ public class DeleteHandler extends BaseHandlerStd {
                                     CancelCapacityReservationResponse cancelResponse = null;
                                     try {
                                         cancelResponse = ec2client.injectCredentialsAndInvokeV2(cancelCapacityReservationRequest, ec2client.client()::cancelCapacityReservation);
-                                        logger.log(String.format("[INFO] Successfully cancelled capacity reservation: %s", cancelCapacityReservationRequest.capacityReservationId()));
+                                        Log.info(logger, "Capacity reservation cancelled", "id", cancelCapacityReservationRequest.capacityReservationId());
                                     } catch (final AwsServiceException e) {
-                                        logger.log(String.format("[ERROR] Error occurred during cancellation : %s", e.getMessage()));
+                                        Log.error(logger, "Error occurred during cancellation", "id", cancelCapacityReservationRequest.capacityReservationId(), "error", e.getMessage());
+                                        if (getSettings().isDeleteFastPathEnabled()) {
+                                            checkNotFound(e, progress.getResourceModel(), ec2client, logger);
+                                        }
                                         throw e;
+                                    } finally {
+                                        invalidateCachedReservation(request, cancelCapacityReservationRequest.capacityReservationId());
                                     }
-                                    logger.log(String.format("%s successfully deleted.", ResourceModel.TYPE_NAME));
-                                    logger.log(String.format(" Returned value %s", cancelResponse.returnValue()));
+                                    Log.debug(logger, "CancelCapacityReservation response", "returnValue", cancelResponse.returnValue());
                                     return cancelResponse;
                                 })
-                                // STEP 2.3 [Stabilize the resource, not really required for ODCR]
-                                .stabilize((cancelCapacityReservationRequest, cancelResponse, ec2client, model, context) -> {
-                                    final boolean stabilized = true;
-                                    logger.log(String.format("%s [%s] deletion has stabilized: %s", ResourceModel.TYPE_NAME, model.getPrimaryIdentifier(), stabilized));
-                                    logger.log(String.format(" Returned value %s", cancelResponse.returnValue()));
-                                    return stabilized;
-                                })
-                                // STEP 2.4 [Handle error]
-                                .handleError((cancelCapacityReservationRequest, exception, ec2client, model, context) -> Translator.translateError(exception))
-                                .progress()
+                                // STEP 2.3 [Handle error]
+                                .handleError((cancelCapacityReservationRequest, exception, ec2client, model, context) -> retryOrFail(exception, model, context, logger))
+                                // STEP 2.4 [Stabilize: optionally wait until the reservation shows as cancelled]
+                                // the cancel response is kept in the context, so re-invocations only describe
+                                .done((cancelCapacityReservationRequest, cancelResponse, ec2client, model, context) ->
+                                        getSettings().isDeleteStabilizationEnabled()
+                                                ? stabilize(ec2client, model, context, logger)
+                                                : ProgressEvent.progress(model, context)))
                 )
                 // STEP 3 [return the successful progress event without resource model]
-                .then(progress -> ProgressEvent.success(null, callbackContext));
+                .then(progress -> progress.getCallbackDelaySeconds() > 0
+                        ? progress
+                        : ProgressEvent.success(null, callbackContext));
+    }
+
+    /**
+     * Describes the reservation once. Deletion is done when it is cancelled, expired or no longer listed, and fails
+     * right away when it is failed; otherwise the wait is handed back to CloudFormation through a callback delay
+     * instead of polling inside this invocation.
+     */
+    private ProgressEvent<ResourceModel, CallbackContext> stabilize(
+            final ProxyClient<Ec2Client> proxyClient,
+            final ResourceModel model,
+            final CallbackContext callbackContext,
+            final Logger logger) {
+        final DescribeCapacityReservationsResponse reservationsResponse;
+        try {
+            reservationsResponse = describeCapacityReservations(Translator.translateToReadRequest(model, logger), proxyClient, logger);
+        } catch (final Exception e) {
+            // cancelled, no longer listed or an unknown id
+            if (ErrorClassifier.classify(e).getErrorCode() == HandlerErrorCode.NotFound) {
+                Log.debug(logger, "Deletion has stabilized", "id", model.getId());
+                return ProgressEvent.progress(model, callbackContext);
+            }
+            return retryOrFail(e, model, callbackContext, logger);
+        }
+        final String state = reservationsResponse.capacityReservations().get(0).stateAsString();
+        Log.info(logger, "Capacity reservation state", "id", model.getId(), "state", state);
+        if (EXPIRED_STATE.equalsIgnoreCase(state)) {
+            // an expired reservation holds no capacity and cannot be used again, as good as cancelled
+            Log.debug(logger, "Deletion has stabilized", "id", model.getId(), "state", state);
+            return ProgressEvent.progress(model, callbackContext);
+        }
+        if (FAILED_STATE.equalsIgnoreCase(state)) {
+            return notStabilized(model, callbackContext, state, CANCELLED_STATE);
+        }
+        return awaitStabilization(model, callbackContext, CANCELLED_STATE, logger);
+    }
+
+    /**
+     * Fast path counterpart of the pre-deletion check, run when the cancel call fails: throws NotFound if the error
+     * shows the reservation is already gone. An unknown or malformed id says so by itself; a state conflict or an
+     * unclassified error is settled by one describe. Returns normally when the original error should be reported.
+     */
+    private void checkNotFound(
+            final AwsServiceException cancelError,
+            final ResourceModel model,
+            final ProxyClient<Ec2Client> proxyClient,
+            final Logger logger) {
+        final ErrorClassifier.Classification classification = ErrorClassifier.classify(cancelError);
+        if (classification.getErrorCode() == HandlerErrorCode.NotFound) {
+            throw new CfnNotFoundException(ResourceModel.TYPE_NAME, model.getId());
+        }
+        if (classification != ErrorClassifier.CONFLICT && classification != ErrorClassifier.UNKNOWN) {
+            return;
+        }
+        try {
+            // throws NotFound itself when the reservation is cancelled
+            describeCapacityReservations(Translator.translateToReadRequest(model, logger), proxyClient, logger);
+        } catch (final RuntimeException e) {
+            if (ErrorClassifier.classify(e).getErrorCode() == HandlerErrorCode.NotFound) {
+                throw new CfnNotFoundException(ResourceModel.TYPE_NAME, model.getId());
+            }
+        }
     }
 }
@@ -0,0 +1,137 @@
+package software.amazon.ec2.capacityreservation;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+
+/**
+ * Merges single-reservation describes that arrive close together into one multi-ID describe.
+ *
+ * The first caller for a key becomes the leader of a batch: it waits up to the window (or until the batch is full),
+ * closes the batch and describes every collected ID with its own client. The other callers wait for that result for
+ * at most the configured time. Callers never share a failure: when the batch call fails or a caller gives up waiting,
+ * the caller gets an empty result and is expected to fall back to its own single describe, so errors surface with
+ * the caller's credentials and request only.
+ *
+ * Batches are keyed by account, region and the access key id of the caller's credentials. All callers of a key must
+ * act with the same permissions, since the leader's credentials describe everybody's reservations; keying by the
+ * credentials makes sure of that even when invocations of one JVM run with different roles.
+ * LambdaWrapper keeps one handler instance per action, so a coalescer held by a handler is shared by all of its
+ * concurrent invocations in a long-lived JVM.
+ */
+final class DescribeCoalescer {
+    private final long windowMillis;
+    private final long maxWaitMillis;
+    private final int maxBatchSize;
+    private final Object lock = new Object();
+    private final Map<String, Batch> openBatches = new HashMap<>();
+
+    private final AtomicLong requests = new AtomicLong();
+    private final AtomicLong batches = new AtomicLong();
+    private final AtomicLong fallbacks = new AtomicLong();
+
+    DescribeCoalescer(final long windowMillis, final long maxWaitMillis, final int maxBatchSize) {
+        this.windowMillis = windowMillis;
+        this.maxWaitMillis = maxWaitMillis;
+        this.maxBatchSize = maxBatchSize;
+    }
+
+    /**
+     * Looks up one reservation as part of a shared batch.
+     * @param key account and region the reservation belongs to
+     * @param capacityReservationId id to describe
+     * @param batchDescriber multi-ID describe, used only if this caller ends up leading the batch
+     * @return the lookup, or empty if the caller has to describe the reservation on its own
+     */
+    Optional<CapacityReservationLookup> describe(
+            final String key,
+            final String capacityReservationId,
+            final Function<Collection<String>, Map<String, CapacityReservationLookup>> batchDescriber) {
+        requests.incrementAndGet();
+        final Batch batch;
+        final boolean leader;
+        synchronized (lock) {
+            final Batch open = openBatches.get(key);
+            if (open != null && open.ids.size() < maxBatchSize) {
+                batch = open;
+                leader = false;
+            } else {
+                batch = new Batch();
+                openBatches.put(key, batch);
+                leader = true;
+            }
+            batch.ids.add(capacityReservationId);
+            if (batch.ids.size() >= maxBatchSize) {
+                batch.full.countDown();
+            }
+        }
+        if (leader) {
+            lead(key, batch, batchDescriber);
+        }
+        try {
+            final Map<String, CapacityReservationLookup> lookups = batch.result.get(maxWaitMillis, TimeUnit.MILLISECONDS);
+            final CapacityReservationLookup lookup = lookups.get(capacityReservationId);
+            if (lookup != null) {
+                return Optional.of(lookup);
+            }
+        } catch (final InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (final ExecutionException | TimeoutException e) {
+            // fall back to a describe of its own below
+        }
+        fallbacks.incrementAndGet();
+        return Optional.empty();
+    }
+
+    private void lead(
+            final String key,
+            final Batch batch,
+            final Function<Collection<String>, Map<String, CapacityReservationLookup>> batchDescriber) {
+        try {
+            batch.full.await(windowMillis, TimeUnit.MILLISECONDS);
+        } catch (final InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        final List<String> ids;
+        synchronized (lock) {
+            openBatches.remove(key, batch);
+            ids = new ArrayList<>(batch.ids);
+        }
+        batches.incrementAndGet();
+        try {
+            batch.result.complete(batchDescriber.apply(ids));
+        } catch (final RuntimeException e) {
+            batch.result.completeExceptionally(e);
+        }
+    }
+
+    long getRequests() {
+        return requests.get();
+    }
+
+    long getBatches() {
+        return batches.get();
+    }
+
+    long getFallbacks() {
+        return fallbacks.get();
+    }
+
+    private static final class Batch {
+        private final Set<String> ids = new LinkedHashSet<>();
+        private final CountDownLatch full = new CountDownLatch(1);
+        private final CompletableFuture<Map<String, CapacityReservationLookup>> result = new CompletableFuture<>();
+    }
+}
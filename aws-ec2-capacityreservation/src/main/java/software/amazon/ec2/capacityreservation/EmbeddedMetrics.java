@@ -0,0 +1,179 @@
+package software.amazon.ec2.capacityreservation;
+
+import software.amazon.cloudformation.proxy.Logger;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Renders {@link OperationMetrics} as CloudWatch embedded metric format (EMF) lines, which CloudWatch Logs turns into
+ * metrics without any API call. An invocation produces one line for the operation (dimension Action), one per
+ * call chain step (Action, Step) and one per EC2 operation (Action, Ec2Operation); EC2 latencies are written as
+ * value arrays so they aggregate into distributions.
+ */
+final class EmbeddedMetrics {
+    static final String NAMESPACE = "AWS-EC2-CapacityReservation";
+
+    /**
+     * Where the lines go: the handler logger, the function's stdout, or nowhere.
+     */
+    enum Destination {
+        LOGGER,
+        STDOUT,
+        OFF
+    }
+
+    private EmbeddedMetrics() {
+    }
+
+    static void emit(final Destination destination, final Logger logger, final OperationMetrics metrics, final String outcome,
+                     final int stabilizationAttempts, final long clientBuilds) {
+        if (destination == Destination.OFF || (destination == Destination.LOGGER && logger == null)) {
+            return;
+        }
+        for (final String line : render(metrics, outcome, stabilizationAttempts, clientBuilds, System.currentTimeMillis())) {
+            if (destination == Destination.STDOUT) {
+                System.out.println(line);
+            } else {
+                logger.log(line);
+            }
+        }
+    }
+
+    static List<String> render(final OperationMetrics metrics, final String outcome, final int stabilizationAttempts,
+                               final long clientBuilds, final long timestamp) {
+        final Map<String, OperationMetrics.Timings> ec2Operations = metrics.getEc2Operations();
+        int calls = 0;
+        int errors = 0;
+        int throttles = 0;
+        int retries = metrics.getHandlerRetries();
+        for (final OperationMetrics.Timings timings : ec2Operations.values()) {
+            calls += timings.getCalls();
+            errors += timings.getErrors();
+            throttles += timings.getThrottles();
+            retries += timings.getRetries();
+        }
+
+        final List<String> lines = new ArrayList<>();
+        lines.add(new Line(timestamp, metrics.getAction())
+                .property("Outcome", outcome)
+                .metric("Latency", "Milliseconds", metrics.elapsedMillis())
+                .metric("Ec2Calls", "Count", calls)
+                .metric("Ec2Errors", "Count", errors)
+                .metric("Ec2Throttles", "Count", throttles)
+                .metric("Retries", "Count", retries)
+                .metric("StabilizationAttempts", "Count", stabilizationAttempts)
+                .metric("ClientBuilds", "Count", clientBuilds)
+                .render());
+        metrics.getSteps().forEach((step, timings) -> lines.add(new Line(timestamp, metrics.getAction())
+                .dimension("Step", step)
+                .metric("StepLatency", "Milliseconds", timings.getLatenciesMillis())
+                .metric("StepEc2Calls", "Count", metrics.getStepEc2Calls(step))
+                .render()));
+        ec2Operations.forEach((operation, timings) -> lines.add(new Line(timestamp, metrics.getAction())
+                .dimension("Ec2Operation", operation)
+                .metric("Ec2Latency", "Milliseconds", timings.getLatenciesMillis())
+                .metric("Ec2Calls", "Count", timings.getCalls())
+                .metric("Ec2Errors", "Count", timings.getErrors())
+                .metric("Ec2Throttles", "Count", timings.getThrottles())
+                .metric("Retries", "Count", timings.getRetries())
+                .render()));
+        return lines;
+    }
+
+    /**
+     * One EMF document: the {@code _aws} metadata plus dimension, metric and property members at the root.
+     */
+    private static final class Line {
+        private final long timestamp;
+        private final StringBuilder dimensions = new StringBuilder();
+        private final StringBuilder definitions = new StringBuilder();
+        private final StringBuilder members = new StringBuilder();
+
+        private Line(final long timestamp, final String action) {
+            this.timestamp = timestamp;
+            dimension("Action", action);
+        }
+
+        private Line dimension(final String name, final String value) {
+            separate(dimensions);
+            string(dimensions, name);
+            return property(name, value);
+        }
+
+        private Line property(final String name, final String value) {
+            separate(members);
+            string(members, name);
+            members.append(':');
+            string(members, value);
+            return this;
+        }
+
+        private Line metric(final String name, final String unit, final Object value) {
+            separate(definitions);
+            definitions.append("{\"Name\":");
+            string(definitions, name);
+            definitions.append(",\"Unit\":");
+            string(definitions, unit);
+            definitions.append('}');
+            separate(members);
+            string(members, name);
+            members.append(':');
+            if (value instanceof List) {
+                members.append('[');
+                boolean first = true;
+                for (final Object item : (List<?>) value) {
+                    if (!first) {
+                        members.append(',');
+                    }
+                    number(members, item);
+                    first = false;
+                }
+                members.append(']');
+            } else {
+                number(members, value);
+            }
+            return this;
+        }
+
+        private String render() {
+            return "{\"_aws\":{\"Timestamp\":" + timestamp
+                    + ",\"CloudWatchMetrics\":[{\"Namespace\":\"" + NAMESPACE + "\""
+                    + ",\"Dimensions\":[[" + dimensions + "]]"
+                    + ",\"Metrics\":[" + definitions + "]}]}"
+                    + "," + members + "}";
+        }
+
+        private static void separate(final StringBuilder builder) {
+            if (builder.length() > 0) {
+                builder.append(',');
+            }
+        }
+
+        private static void number(final StringBuilder builder, final Object value) {
+            if (value instanceof Double) {
+                builder.append(String.format(Locale.ROOT, "%.3f", (Double) value));
+            } else {
+                builder.append(value);
+            }
+        }
+
+        private static void string(final StringBuilder builder, final String value) {
+            builder.append('"');
+            final String text = value == null ? "" : value;
+            for (int i = 0; i < text.length(); i++) {
+                final char c = text.charAt(i);
+                if (c == '"' || c == '\\') {
+                    builder.append('\\').append(c);
+                } else if (c < 0x20) {
+                    builder.append(String.format(Locale.ROOT, "\\u%04x", (int) c));
+                } else {
+                    builder.append(c);
+                }
+            }
+            builder.append('"');
+        }
+    }
+}
@@ -0,0 +1,302 @@
+package software.amazon.ec2.capacityreservation;
+
+import java.text.DateFormatSymbols;
+import java.time.Instant;
+import java.time.Month;
+import java.time.Year;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TimeZone;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Parser for the EndDate property. Accepted forms:
+ * <ul>
+ *   <li>ISO-8601 with a zone designator, e.g. {@code 2021-06-30T23:59:59Z}, {@code 2021-06-30T23:59:59.5+02:00}</li>
+ *   <li>epoch seconds of at least 9 digits (1973 onwards), or epoch milliseconds when longer than 11 digits; shorter
+ *   numbers such as a bare year are rejected rather than read as a date in 1970</li>
+ *   <li>the legacy {@code java.util.Date#toString()} form, e.g. {@code Wed Jun 30 23:59:59 UTC 2021}, which older
+ *   versions of this resource accepted</li>
+ * </ul>
+ * The form is picked from the shape of the input and every field is checked by hand, so invalid input costs no
+ * exception and nothing but the resulting {@link Instant} is allocated for ISO and epoch input. The parser keeps no
+ * mutable state and is safe to share between threads.
+ */
+final class EndDateParser {
+    private static final String[] MONTHS = {"Jan", "Feb", "Mar", "Apr", "May", "Jun", "Jul", "Aug", "Sep", "Oct", "Nov", "Dec"};
+    private static final int EPOCH_MIN_DIGITS = 9;
+    private static final int EPOCH_SECONDS_MAX_DIGITS = 11;
+    private static final int EPOCH_MAX_DIGITS = 18;
+    private static final int MAX_OFFSET_SECONDS = 18 * 3600;
+
+    /**
+     * Offsets in seconds of the zone abbreviations understood by the legacy form, resolved once. These are the short
+     * names {@code SimpleDateFormat} accepted for {@code z} in the US locale, read the way it read them: a standard
+     * name is the zone's raw offset and a daylight name adds the zone's DST savings, whatever the date, so
+     * {@code PDT} is -07:00 in January too. A name shared by several zones, such as {@code CST} or {@code IST},
+     * belongs to the first zone listed, as it did for {@code SimpleDateFormat} in a JVM running in UTC.
+     */
+    private static final Map<String, Integer> LEGACY_ZONES = legacyZones();
+
+    private EndDateParser() {
+    }
+
+    /**
+     * @param text end date as given in the template
+     * @return the parsed instant, or null when the text is null or not a valid date in any supported form
+     */
+    static Instant parse(final String text) {
+        if (text == null) {
+            return null;
+        }
+        final int start = skipWhitespace(text, 0);
+        final int end = trimEnd(text, start);
+        if (start >= end) {
+            return null;
+        }
+        final char first = text.charAt(start);
+        if (isLetter(first)) {
+            return parseLegacy(text, start, end);
+        }
+        if (end - start > 10 && text.charAt(start + 10) == 'T') {
+            return parseIso(text, start, end);
+        }
+        return parseEpoch(text, start, end);
+    }
+
+    private static Instant parseEpoch(final String text, final int start, final int end) {
+        final int digits = end - start;
+        if (digits < EPOCH_MIN_DIGITS || digits > EPOCH_MAX_DIGITS) {
+            return null;
+        }
+        final long value = digits(text, start, end);
+        if (value < 0) {
+            return null;
+        }
+        return digits > EPOCH_SECONDS_MAX_DIGITS ? Instant.ofEpochMilli(value) : Instant.ofEpochSecond(value);
+    }
+
+    /**
+     * yyyy-MM-ddTHH:mm[:ss[.fffffffff]](Z|+HH[[:]mm]|-HH[[:]mm])
+     */
+    private static Instant parseIso(final String text, final int start, final int end) {
+        int pos = start;
+        final int year = (int) digits(text, pos, pos + 4);
+        if (year < 0 || !charAt(text, pos + 4, end, '-')) {
+            return null;
+        }
+        pos += 5;
+        final int month = (int) digits(text, pos, pos + 2);
+        if (!charAt(text, pos + 2, end, '-')) {
+            return null;
+        }
+        pos += 3;
+        final int day = (int) digits(text, pos, pos + 2);
+        pos += 3; // the 'T' was checked by the caller
+        if (pos + 5 > end || !charAt(text, pos + 2, end, ':')) {
+            return null;
+        }
+        final int hour = (int) digits(text, pos, pos + 2);
+        final int minute = (int) digits(text, pos + 3, pos + 5);
+        pos += 5;
+        int second = 0;
+        int nanos = 0;
+        if (charAt(text, pos, end, ':')) {
+            if (pos + 3 > end) {
+                return null;
+            }
+            second = (int) digits(text, pos + 1, pos + 3);
+            pos += 3;
+            if (charAt(text, pos, end, '.') || charAt(text, pos, end, ',')) {
+                final int fractionStart = ++pos;
+                while (pos < end && pos - fractionStart < 9 && isDigit(text.charAt(pos))) {
+                    nanos = nanos * 10 + (text.charAt(pos++) - '0');
+                }
+                if (pos == fractionStart || (pos < end && isDigit(text.charAt(pos)))) {
+                    return null;
+                }
+                for (int i = pos - fractionStart; i < 9; i++) {
+                    nanos *= 10;
+                }
+            }
+        }
+        if (!isValidDate(year, month, day) || !isValidTime(hour, minute, second)) {
+            return null;
+        }
+        final int offsetSeconds = offsetSeconds(text, pos, end);
+        if (offsetSeconds == Integer.MIN_VALUE) {
+            return null;
+        }
+        return Instant.ofEpochSecond(epochSecond(year, month, day, hour, minute, second) - offsetSeconds, nanos);
+    }
+
+    /**
+     * EEE MMM dd HH:mm:ss zzz yyyy
+     */
+    private static Instant parseLegacy(final String text, final int start, final int end) {
+        if (end - start < 26 || !isLetter(text.charAt(start + 1)) || !isLetter(text.charAt(start + 2))
+                || text.charAt(start + 3) != ' ' || text.charAt(start + 7) != ' ' || text.charAt(start + 10) != ' '
+                || text.charAt(start + 13) != ':' || text.charAt(start + 16) != ':' || text.charAt(start + 19) != ' '
+                || text.charAt(end - 5) != ' ') {
+            return null;
+        }
+        final int month = month(text, start + 4);
+        final int day = (int) digits(text, start + 8, start + 10);
+        final int hour = (int) digits(text, start + 11, start + 13);
+        final int minute = (int) digits(text, start + 14, start + 16);
+        final int second = (int) digits(text, start + 17, start + 19);
+        final int year = (int) digits(text, end - 4, end);
+        if (!isValidDate(year, month, day) || !isValidTime(hour, minute, second)) {
+            return null;
+        }
+        final int zoneStart = start + 20;
+        final int zoneEnd = end - 5;
+        if (isUtc(text, zoneStart, zoneEnd)) {
+            return Instant.ofEpochSecond(epochSecond(year, month, day, hour, minute, second));
+        }
+        final Integer offsetSeconds = LEGACY_ZONES.get(text.substring(zoneStart, zoneEnd));
+        if (offsetSeconds == null) {
+            return null;
+        }
+        return Instant.ofEpochSecond(epochSecond(year, month, day, hour, minute, second) - offsetSeconds);
+    }
+
+    /**
+     * @return offset in seconds east of UTC, or Integer.MIN_VALUE if the text from pos to end is not a zone designator
+     */
+    private static int offsetSeconds(final String text, final int pos, final int end) {
+        if (pos >= end) {
+            return Integer.MIN_VALUE;
+        }
+        final char sign = text.charAt(pos);
+        if (sign == 'Z' || sign == 'z') {
+            return pos + 1 == end ? 0 : Integer.MIN_VALUE;
+        }
+        if (sign != '+' && sign != '-') {
+            return Integer.MIN_VALUE;
+        }
+        final int length = end - pos - 1;
+        final int hours;
+        final int minutes;
+        if (length == 2) {
+            hours = (int) digits(text, pos + 1, pos + 3);
+            minutes = 0;
+        } else if (length == 4) {
+            hours = (int) digits(text, pos + 1, pos + 3);
+            minutes = (int) digits(text, pos + 3, pos + 5);
+        } else if (length == 5 && text.charAt(pos + 3) == ':') {
+            hours = (int) digits(text, pos + 1, pos + 3);
+            minutes = (int) digits(text, pos + 4, pos + 6);
+        } else {
+            return Integer.MIN_VALUE;
+        }
+        if (hours < 0 || minutes < 0 || minutes > 59) {
+            return Integer.MIN_VALUE;
+        }
+        final int seconds = hours * 3600 + minutes * 60;
+        if (seconds > MAX_OFFSET_SECONDS) {
+            return Integer.MIN_VALUE;
+        }
+        return sign == '-' ? -seconds : seconds;
+    }
+
+    private static long epochSecond(final int year, final int month, final int day, final int hour, final int minute, final int second) {
+        return epochDay(year, month, day) * 86400L + hour * 3600L + minute * 60L + second;
+    }
+
+    /**
+     * Days since 1970-01-01 of a proleptic Gregorian date, without building a LocalDate.
+     */
+    private static long epochDay(final int year, final int month, final int day) {
+        final long y = month <= 2 ? year - 1 : year;
+        final long era = (y >= 0 ? y : y - 399) / 400;
+        final long yearOfEra = y - era * 400;
+        final long dayOfYear = (153L * (month > 2 ? month - 3 : month + 9) + 2) / 5 + day - 1;
+        final long dayOfEra = yearOfEra * 365 + yearOfEra / 4 - yearOfEra / 100 + dayOfYear;
+        return era * 146097 + dayOfEra - 719468;
+    }
+
+    private static boolean isValidDate(final int year, final int month, final int day) {
+        return year >= 0 && month >= 1 && month <= 12 && day >= 1 && day <= Month.of(month).length(Year.isLeap(year));
+    }
+
+    private static boolean isValidTime(final int hour, final int minute, final int second) {
+        return hour >= 0 && hour <= 23 && minute >= 0 && minute <= 59 && second >= 0 && second <= 59;
+    }
+
+    /**
+     * @return 1-12, or -1 when the three letters at pos are not a month abbreviation
+     */
+    private static int month(final String text, final int pos) {
+        for (int i = 0; i < MONTHS.length; i++) {
+            if (text.regionMatches(true, pos, MONTHS[i], 0, 3)) {
+                return i + 1;
+            }
+        }
+        return -1;
+    }
+
+    private static boolean isUtc(final String text, final int start, final int end) {
+        final int length = end - start;
+        return (length == 3 && (text.regionMatches(true, start, "UTC", 0, 3) || text.regionMatches(true, start, "GMT", 0, 3)))
+                || (length == 1 && (text.charAt(start) == 'Z' || text.charAt(start) == 'z'));
+    }
+
+    /**
+     * @return the unsigned decimal value of text[start, end), or -1 if the range is empty, out of bounds or not all digits
+     */
+    private static long digits(final String text, final int start, final int end) {
+        if (start >= end || end > text.length()) {
+            return -1;
+        }
+        long value = 0;
+        for (int i = start; i < end; i++) {
+            final char c = text.charAt(i);
+            if (!isDigit(c)) {
+                return -1;
+            }
+            value = value * 10 + (c - '0');
+        }
+        return value;
+    }
+
+    private static boolean charAt(final String text, final int pos, final int end, final char expected) {
+        return pos < end && text.charAt(pos) == expected;
+    }
+
+    private static boolean isDigit(final char c) {
+        return c >= '0' && c <= '9';
+    }
+
+    private static boolean isLetter(final char c) {
+        return (c >= 'A' && c <= 'Z') || (c >= 'a' && c <= 'z');
+    }
+
+    private static int skipWhitespace(final String text, final int from) {
+        int pos = from;
+        while (pos < text.length() && Character.isWhitespace(text.charAt(pos))) {
+            pos++;
+        }
+        return pos;
+    }
+
+    private static int trimEnd(final String text, final int start) {
+        int end = text.length();
+        while (end > start && Character.isWhitespace(text.charAt(end - 1))) {
+            end--;
+        }
+        return end;
+    }
+
+    private static Map<String, Integer> legacyZones() {
+        final Map<String, Integer> zones = new HashMap<>();
+        for (final String[] names : DateFormatSymbols.getInstance(Locale.US).getZoneStrings()) {
+            final TimeZone zone = TimeZone.getTimeZone(names[0]);
+            zones.putIfAbsent(names[2], (int) TimeUnit.MILLISECONDS.toSeconds(zone.getRawOffset()));
+            zones.putIfAbsent(names[4], (int) TimeUnit.MILLISECONDS.toSeconds(zone.getRawOffset() + zone.getDSTSavings()));
+        }
+        return Collections.unmodifiableMap(zones);
+    }
+}
@@ -0,0 +1,115 @@
+package software.amazon.ec2.capacityreservation;
+
+import software.amazon.awssdk.awscore.exception.AwsServiceException;
+import software.amazon.awssdk.core.exception.SdkClientException;
+import software.amazon.cloudformation.exceptions.BaseHandlerException;
+import software.amazon.cloudformation.proxy.HandlerErrorCode;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Maps a failure of an EC2 call to the {@link HandlerErrorCode} reported to CloudFormation, whether trying again
+ * later can succeed, and how long to wait before doing so. EC2 error codes are looked up in a table; failures
+ * without a known code fall back to the HTTP status.
+ */
+final class ErrorClassifier {
+
+    /**
+     * Outcome of classifying one failure.
+     */
+    @lombok.Value
+    static class Classification {
+        HandlerErrorCode errorCode;
+        boolean retryable;
+        /**
+         * Suggested wait before retrying, zero for permanent failures.
+         */
+        int callbackDelaySeconds;
+    }
+
+    static final Classification NOT_FOUND = permanent(HandlerErrorCode.NotFound);
+    static final Classification THROTTLING = retryable(HandlerErrorCode.Throttling, 10);
+    static final Classification SERVICE_UNAVAILABLE = retryable(HandlerErrorCode.ServiceInternalError, 5);
+    static final Classification INSUFFICIENT_CAPACITY = retryable(HandlerErrorCode.GeneralServiceException, 30);
+    static final Classification LIMIT_EXCEEDED = permanent(HandlerErrorCode.ServiceLimitExceeded);
+    static final Classification ACCESS_DENIED = permanent(HandlerErrorCode.AccessDenied);
+    static final Classification INVALID_REQUEST = permanent(HandlerErrorCode.InvalidRequest);
+    static final Classification CONFLICT = retryable(HandlerErrorCode.ResourceConflict, 5);
+    static final Classification NETWORK_FAILURE = retryable(HandlerErrorCode.NetworkFailure, 5);
+    static final Classification UNKNOWN = permanent(HandlerErrorCode.GeneralServiceException);
+
+    private static final String INVALID_PARAMETER_PREFIX = "InvalidParameter";
+
+    private static final Map<String, Classification> BY_ERROR_CODE;
+
+    static {
+        final Map<String, Classification> byErrorCode = new HashMap<>();
+        byErrorCode.put("InvalidCapacityReservationId.NotFound", NOT_FOUND);
+        byErrorCode.put("InvalidCapacityReservationId.Malformed", NOT_FOUND);
+        byErrorCode.put("RequestLimitExceeded", THROTTLING);
+        byErrorCode.put("Throttling", THROTTLING);
+        byErrorCode.put("Unavailable", SERVICE_UNAVAILABLE);
+        byErrorCode.put("ServiceUnavailable", SERVICE_UNAVAILABLE);
+        byErrorCode.put("InternalError", SERVICE_UNAVAILABLE);
+        byErrorCode.put("InsufficientInstanceCapacity", INSUFFICIENT_CAPACITY);
+        byErrorCode.put("InsufficientCapacity", INSUFFICIENT_CAPACITY);
+        byErrorCode.put("InstanceLimitExceeded", LIMIT_EXCEEDED);
+        byErrorCode.put("ReservationCapacityExceeded", LIMIT_EXCEEDED);
+        byErrorCode.put("UnauthorizedOperation", ACCESS_DENIED);
+        byErrorCode.put("AuthFailure", ACCESS_DENIED);
+        byErrorCode.put("MissingParameter", INVALID_REQUEST);
+        byErrorCode.put("InvalidParameterValue", INVALID_REQUEST);
+        byErrorCode.put("InvalidParameterCombination", INVALID_REQUEST);
+        byErrorCode.put("IncorrectCapacityReservationState", CONFLICT);
+        BY_ERROR_CODE = Collections.unmodifiableMap(byErrorCode);
+    }
+
+    private ErrorClassifier() {
+    }
+
+    static Classification classify(final Throwable ex) {
+        if (ex instanceof BaseHandlerException) {
+            return permanent(((BaseHandlerException) ex).getErrorCode());
+        }
+        if (ex instanceof AwsServiceException) {
+            return classify((AwsServiceException) ex);
+        }
+        if (ex instanceof SdkClientException) {
+            return NETWORK_FAILURE;
+        }
+        return UNKNOWN;
+    }
+
+    private static Classification classify(final AwsServiceException ex) {
+        final String errorCode = ex.awsErrorDetails() == null ? null : ex.awsErrorDetails().errorCode();
+        if (errorCode != null) {
+            final Classification classification = BY_ERROR_CODE.get(errorCode);
+            if (classification != null) {
+                return classification;
+            }
+            if (errorCode.startsWith(INVALID_PARAMETER_PREFIX)) {
+                return INVALID_REQUEST;
+            }
+        }
+        if (ex.isThrottlingException() || ex.statusCode() == 429) {
+            return THROTTLING;
+        }
+        if (ex.statusCode() >= 500) {
+            return SERVICE_UNAVAILABLE;
+        }
+        if (ex.statusCode() >= 400) {
+            return INVALID_REQUEST;
+        }
+        return UNKNOWN;
+    }
+
+    private static Classification permanent(final HandlerErrorCode errorCode) {
+        return new Classification(errorCode, false, 0);
+    }
+
+    private static Classification retryable(final HandlerErrorCode errorCode, final int callbackDelaySeconds) {
+        return new Classification(errorCode, true, callbackDelaySeconds);
+    }
+}
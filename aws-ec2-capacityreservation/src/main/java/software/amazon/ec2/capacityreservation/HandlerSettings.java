@@ -0,0 +1,258 @@
+package software.amazon.ec2.capacityreservation;
+
+import java.util.Locale;
+import java.util.Optional;
+import java.util.function.Function;
+
+/**
+ * Tunables shared by all handlers. Production values come from the function environment,
+ * tests build their own through {@link #builder()}.
+ */
+@lombok.Builder(toBuilder = true)
+@lombok.Getter
+@lombok.ToString
+final class HandlerSettings {
+    static final String STABILIZATION_BASE_DELAY_SECONDS = "STABILIZATION_BASE_DELAY_SECONDS";
+    static final String STABILIZATION_MAX_DELAY_SECONDS = "STABILIZATION_MAX_DELAY_SECONDS";
+    static final String STABILIZATION_TIMEOUT_SECONDS = "STABILIZATION_TIMEOUT_SECONDS";
+    static final String LIST_PAGE_SIZE = "LIST_PAGE_SIZE";
+    static final String LIST_TIME_BUDGET_MILLIS = "LIST_TIME_BUDGET_MILLIS";
+    static final String LIST_MAX_MODELS = "LIST_MAX_MODELS";
+    static final String LIST_FULL_MODELS = "LIST_FULL_MODELS";
+    static final String DESCRIBE_COALESCING_ENABLED = "DESCRIBE_COALESCING_ENABLED";
+    static final String DESCRIBE_COALESCING_WINDOW_MILLIS = "DESCRIBE_COALESCING_WINDOW_MILLIS";
+    static final String DESCRIBE_COALESCING_MAX_WAIT_MILLIS = "DESCRIBE_COALESCING_MAX_WAIT_MILLIS";
+    static final String RESERVATION_CACHE_TTL_MILLIS = "RESERVATION_CACHE_TTL_MILLIS";
+    static final String METRICS_DESTINATION = "METRICS_DESTINATION";
+    static final String RATE_LIMITER_ENABLED = "RATE_LIMITER_ENABLED";
+    static final String RATE_LIMIT_INITIAL_TPS = "RATE_LIMIT_INITIAL_TPS";
+    static final String RATE_LIMIT_MAX_TPS = "RATE_LIMIT_MAX_TPS";
+    static final String THROTTLE_RETRY_MAX_ATTEMPTS = "THROTTLE_RETRY_MAX_ATTEMPTS";
+    static final String THROTTLE_RETRY_BASE_DELAY_MILLIS = "THROTTLE_RETRY_BASE_DELAY_MILLIS";
+    static final String TRANSIENT_RETRY_MAX_ATTEMPTS = "TRANSIENT_RETRY_MAX_ATTEMPTS";
+    static final String DELETE_FAST_PATH_ENABLED = "DELETE_FAST_PATH_ENABLED";
+    static final String DELETE_STABILIZATION_ENABLED = "DELETE_STABILIZATION_ENABLED";
+    static final String INVOCATION_BUDGET_MILLIS = "INVOCATION_BUDGET_MILLIS";
+    static final String DEADLINE_MARGIN_MILLIS = "DEADLINE_MARGIN_MILLIS";
+    static final String EC2_ATTEMPT_TIMEOUT_MILLIS = "EC2_ATTEMPT_TIMEOUT_MILLIS";
+
+    /**
+     * Callback delay of the first stabilization re-invocation, doubled (with jitter) on every further attempt.
+     */
+    @lombok.Builder.Default
+    private final int stabilizationBaseDelaySeconds = 5;
+
+    @lombok.Builder.Default
+    private final int stabilizationMaxDelaySeconds = 60;
+
+    /**
+     * How long a reservation may stay in a transitional state before the operation fails with NotStabilized.
+     */
+    @lombok.Builder.Default
+    private final int stabilizationTimeoutSeconds = 1800;
+
+    /**
+     * MaxResults of each DescribeCapacityReservations page in List (1 to 1000), null for the service default.
+     */
+    private final Integer listPageSize;
+
+    /**
+     * How long List keeps following nextToken within one invocation. 0 returns after a single page.
+     */
+    @lombok.Builder.Default
+    private final int listTimeBudgetMillis = 0;
+
+    /**
+     * Once this many models are collected List stops fetching further pages, even with budget left.
+     */
+    @lombok.Builder.Default
+    private final int listMaxModels = 1000;
+
+    /**
+     * Return every property of each listed reservation, as read would, so callers need no follow-up reads.
+     */
+    @lombok.Builder.Default
+    private final boolean listFullModels = false;
+
+    /**
+     * Serve concurrent Read describes of the same account and region with shared multi-ID calls,
+     * see {@link DescribeCoalescer}. Only useful when many invocations share a JVM.
+     */
+    @lombok.Builder.Default
+    private final boolean describeCoalescingEnabled = false;
+
+    /**
+     * How long the first describe of a batch waits for others to join.
+     */
+    @lombok.Builder.Default
+    private final int describeCoalescingWindowMillis = 20;
+
+    /**
+     * How long a caller waits for a shared describe before describing on its own.
+     */
+    @lombok.Builder.Default
+    private final int describeCoalescingMaxWaitMillis = 2000;
+
+    /**
+     * How long Read may answer from a reservation described earlier in this JVM, see {@link ReservationCache}.
+     * 0 disables the cache. Only writes made by this JVM invalidate entries, so a change made through another
+     * container or outside CloudFormation can be missed for this long; values above
+     * {@link ReservationCache#MAX_TTL_MILLIS} are capped to it.
+     */
+    @lombok.Builder.Default
+    private final int reservationCacheTtlMillis = 0;
+
+    /**
+     * Where the embedded metric format lines of every invocation are written, see {@link EmbeddedMetrics}.
+     */
+    @lombok.Builder.Default
+    private final EmbeddedMetrics.Destination metricsDestination = EmbeddedMetrics.Destination.LOGGER;
+
+    /**
+     * Send EC2 calls through the JVM-wide {@link AdaptiveRateLimiter} of the account and region and retry
+     * throttled ones, see {@link ThrottlingRetry}. Off by default, which leaves throttle retries to the SDK.
+     */
+    @lombok.Builder.Default
+    private final boolean rateLimiterEnabled = false;
+
+    /**
+     * Calls per second a new limiter allows before EC2 pushed back, also its burst size.
+     */
+    @lombok.Builder.Default
+    private final int rateLimitInitialTps = 20;
+
+    @lombok.Builder.Default
+    private final int rateLimitMaxTps = 100;
+
+    /**
+     * Attempts of a throttled call within one invocation, including the first.
+     */
+    @lombok.Builder.Default
+    private final int throttleRetryMaxAttempts = 4;
+
+    /**
+     * Pause before the first retry of a throttled call, doubled with jitter on each further retry.
+     */
+    @lombok.Builder.Default
+    private final int throttleRetryBaseDelayMillis = 200;
+
+    /**
+     * Re-invocations Create, Update and Delete spend on retryable EC2 errors (throttling, unavailability,
+     * insufficient capacity, state conflicts) before reporting them as failed; 0 fails on the first one.
+     */
+    @lombok.Builder.Default
+    private final int transientRetryMaxAttempts = 3;
+
+    /**
+     * Cancel without describing the reservation first; the cancel error tells whether it is already gone,
+     * and only an ambiguous one is settled by a describe. Off by default: if EC2 accepts the cancel of a reservation
+     * that is already cancelled, the delete succeeds where the handler contract asks for NotFound.
+     */
+    @lombok.Builder.Default
+    private final boolean deleteFastPathEnabled = false;
+
+    /**
+     * Report Delete as done only once a describe shows the reservation cancelled, re-checking through
+     * callback delays with the stabilization backoff settings.
+     */
+    @lombok.Builder.Default
+    private final boolean deleteStabilizationEnabled = false;
+
+    /**
+     * Time an invocation may use, kept a minute below the function timeout of template.yml (300s).
+     */
+    @lombok.Builder.Default
+    private final int invocationBudgetMillis = 240_000;
+
+    /**
+     * Part of the budget kept in reserve: no step, retry pause or List page is started within it,
+     * and EC2 call timeouts end before it.
+     */
+    @lombok.Builder.Default
+    private final int deadlineMarginMillis = 10_000;
+
+    /**
+     * Upper bound of a single EC2 request attempt, also set on the shared clients.
+     */
+    @lombok.Builder.Default
+    private final int ec2AttemptTimeoutMillis = 20_000;
+
+    public int getReservationCacheTtlMillis() {
+        return Math.min(reservationCacheTtlMillis, ReservationCache.MAX_TTL_MILLIS);
+    }
+
+    static HandlerSettings defaults() {
+        return builder().build();
+    }
+
+    static HandlerSettings fromEnvironment() {
+        return fromEnvironment(System::getenv);
+    }
+
+    static HandlerSettings fromEnvironment(final Function<String, String> environment) {
+        final HandlerSettingsBuilder builder = builder();
+        number(environment, STABILIZATION_BASE_DELAY_SECONDS).ifPresent(builder::stabilizationBaseDelaySeconds);
+        number(environment, STABILIZATION_MAX_DELAY_SECONDS).ifPresent(builder::stabilizationMaxDelaySeconds);
+        number(environment, STABILIZATION_TIMEOUT_SECONDS).ifPresent(builder::stabilizationTimeoutSeconds);
+        number(environment, LIST_PAGE_SIZE).ifPresent(builder::listPageSize);
+        number(environment, LIST_TIME_BUDGET_MILLIS).ifPresent(builder::listTimeBudgetMillis);
+        number(environment, LIST_MAX_MODELS).ifPresent(builder::listMaxModels);
+        flag(environment, LIST_FULL_MODELS).ifPresent(builder::listFullModels);
+        flag(environment, DESCRIBE_COALESCING_ENABLED).ifPresent(builder::describeCoalescingEnabled);
+        number(environment, DESCRIBE_COALESCING_WINDOW_MILLIS).ifPresent(builder::describeCoalescingWindowMillis);
+        number(environment, DESCRIBE_COALESCING_MAX_WAIT_MILLIS).ifPresent(builder::describeCoalescingMaxWaitMillis);
+        number(environment, RESERVATION_CACHE_TTL_MILLIS).ifPresent(builder::reservationCacheTtlMillis);
+        value(environment, METRICS_DESTINATION).map(HandlerSettings::destination).ifPresent(builder::metricsDestination);
+        flag(environment, RATE_LIMITER_ENABLED).ifPresent(builder::rateLimiterEnabled);
+        number(environment, RATE_LIMIT_INITIAL_TPS).ifPresent(builder::rateLimitInitialTps);
+        number(environment, RATE_LIMIT_MAX_TPS).ifPresent(builder::rateLimitMaxTps);
+        number(environment, THROTTLE_RETRY_MAX_ATTEMPTS).ifPresent(builder::throttleRetryMaxAttempts);
+        number(environment, THROTTLE_RETRY_BASE_DELAY_MILLIS).ifPresent(builder::throttleRetryBaseDelayMillis);
+        number(environment, TRANSIENT_RETRY_MAX_ATTEMPTS).ifPresent(builder::transientRetryMaxAttempts);
+        flag(environment, DELETE_FAST_PATH_ENABLED).ifPresent(builder::deleteFastPathEnabled);
+        flag(environment, DELETE_STABILIZATION_ENABLED).ifPresent(builder::deleteStabilizationEnabled);
+        number(environment, INVOCATION_BUDGET_MILLIS).ifPresent(builder::invocationBudgetMillis);
+        number(environment, DEADLINE_MARGIN_MILLIS).ifPresent(builder::deadlineMarginMillis);
+        number(environment, EC2_ATTEMPT_TIMEOUT_MILLIS).ifPresent(builder::ec2AttemptTimeoutMillis);
+        return builder.build();
+    }
+
+    private static Optional<String> value(final Function<String, String> environment, final String name) {
+        return Optional.ofNullable(environment.apply(name))
+                .map(String::trim)
+                .filter(value -> !value.isEmpty());
+    }
+
+    /**
+     * An unknown destination falls back to the logger rather than failing every handler over a typo.
+     */
+    private static EmbeddedMetrics.Destination destination(final String value) {
+        for (final EmbeddedMetrics.Destination destination : EmbeddedMetrics.Destination.values()) {
+            if (destination.name().equals(value.toUpperCase(Locale.ROOT))) {
+                return destination;
+            }
+        }
+        return EmbeddedMetrics.Destination.LOGGER;
+    }
+
+    private static Optional<Boolean> flag(final Function<String, String> environment, final String name) {
+        return value(environment, name).map(Boolean::parseBoolean);
+    }
+
+    /**
+     * A malformed number keeps the default and is reported on stderr, which ends up in the function log; no handler
+     * logger exists yet while the settings are read.
+     */
+    private static Optional<Integer> number(final Function<String, String> environment, final String name) {
+        return value(environment, name).flatMap(value -> {
+            try {
+                return Optional.of(Integer.valueOf(value));
+            } catch (final NumberFormatException e) {
+                if (Log.isEnabled(Log.Level.WARN)) {
+                    System.err.println(Log.format(Log.Level.WARN, "Ignoring malformed handler setting", "name", name, "value", value));
+                }
+                return Optional.empty();
+            }
+        });
+    }
+}
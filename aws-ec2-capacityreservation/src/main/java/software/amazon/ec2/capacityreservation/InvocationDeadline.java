@@ -0,0 +1,92 @@
+package software.amazon.ec2.capacityreservation;
+
+import software.amazon.awssdk.awscore.AwsRequest;
+import software.amazon.awssdk.awscore.AwsRequestOverrideConfiguration;
+
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Time budget of one handler invocation, bound to the invocation thread between {@link #begin} and {@link #end}.
+ * The budget is kept well below the function timeout so that, once it is nearly spent, a handler still has time to
+ * return IN_PROGRESS with its callback context instead of being cut off and losing the attempt. EC2 calls get
+ * timeouts derived from the time left, so a hanging call fails while there is still time to report it.
+ */
+final class InvocationDeadline {
+    private static final ThreadLocal<InvocationDeadline> CURRENT = new ThreadLocal<>();
+
+    private final long deadlineNanos;
+    private final long marginMillis;
+    private final long attemptTimeoutMillis;
+
+    private InvocationDeadline(final long deadlineNanos, final long marginMillis, final long attemptTimeoutMillis) {
+        this.deadlineNanos = deadlineNanos;
+        this.marginMillis = marginMillis;
+        this.attemptTimeoutMillis = attemptTimeoutMillis;
+    }
+
+    /**
+     * Starts the budget of an invocation on the calling thread.
+     * @param budgetMillis time the invocation may use
+     * @param marginMillis time kept in reserve to save progress and return
+     * @param attemptTimeoutMillis upper bound of a single EC2 request attempt
+     */
+    static InvocationDeadline begin(final long budgetMillis, final long marginMillis, final long attemptTimeoutMillis) {
+        final InvocationDeadline deadline = new InvocationDeadline(System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(budgetMillis),
+                marginMillis, attemptTimeoutMillis);
+        CURRENT.set(deadline);
+        return deadline;
+    }
+
+    /**
+     * @return budget of the invocation running on this thread, null outside of one
+     */
+    static InvocationDeadline current() {
+        return CURRENT.get();
+    }
+
+    void end() {
+        CURRENT.remove();
+    }
+
+    long remainingMillis() {
+        return TimeUnit.NANOSECONDS.toMillis(deadlineNanos - System.nanoTime());
+    }
+
+    /**
+     * @return whether work taking the given time still leaves the margin, always true outside of an invocation
+     */
+    static boolean allows(final long millis) {
+        final InvocationDeadline deadline = current();
+        return deadline == null || deadline.remainingMillis() - millis > deadline.marginMillis;
+    }
+
+    /**
+     * @return whether the invocation should stop starting new work and hand its progress back
+     */
+    static boolean nearlySpent() {
+        return !allows(0);
+    }
+
+    /**
+     * Adds call and attempt timeouts fitting the time left to a request the proxy has already signed. The proxy
+     * replaces the request's override configuration with its credentials, so this has to run after it, inside the
+     * request function; the credentials provider is kept.
+     */
+    @SuppressWarnings("unchecked")
+    static <RequestT extends AwsRequest> RequestT withCallTimeout(final RequestT request) {
+        final InvocationDeadline deadline = current();
+        if (deadline == null) {
+            return request;
+        }
+        final Duration callTimeout = Duration.ofMillis(Math.max(1, deadline.remainingMillis() - deadline.marginMillis));
+        final Duration attemptTimeout = Duration.ofMillis(Math.min(callTimeout.toMillis(), deadline.attemptTimeoutMillis));
+        final AwsRequestOverrideConfiguration overrideConfiguration = request.overrideConfiguration()
+                .map(AwsRequestOverrideConfiguration::toBuilder)
+                .orElseGet(AwsRequestOverrideConfiguration::builder)
+                .apiCallTimeout(callTimeout)
+                .apiCallAttemptTimeout(attemptTimeout)
+                .build();
+        return (RequestT) request.toBuilder().overrideConfiguration(overrideConfiguration).build();
+    }
+}
@@ -12,9 +12,18 @@ import software.amazon.cloudformation.proxy.ResourceHandlerRequest;
 
 import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.TimeUnit;
 
 public class ListHandler extends BaseHandlerStd {
 
+    public ListHandler() {
+        super();
+    }
+
+    ListHandler(final HandlerSettings settings) {
+        super(settings);
+    }
+
     @Override
     public ProgressEvent<ResourceModel, CallbackContext> handleRequest(
             final AmazonWebServicesClientProxy proxy,
@@ -22,21 +31,37 @@ public class ListHandler extends BaseHandlerStd {
             final CallbackContext callbackContext,
             final ProxyClient<Ec2Client> client,
             final Logger logger) {
-        List<ResourceModel> models = new ArrayList<>();
-        // STEP 1 [construct a body of a request]
-        final DescribeCapacityReservationsRequest reservationsRequest = Translator.translateToListRequest(request.getNextToken());
-        // STEP 2 [make an api call]
-        DescribeCapacityReservationsResponse awsResponse = null;
-        // STEP 3 [get a token for the next page]
-        String nextToken = null;
-        try {
-            awsResponse = proxy.injectCredentialsAndInvokeV2(reservationsRequest, (proxyRequest) -> client.client().describeCapacityReservations(proxyRequest));
+        final List<ResourceModel> models = new ArrayList<>();
+        final ThrottlingRetry throttlingRetry = throttlingRetry(request);
+        // With a time budget, keep following nextToken inside this invocation instead of paying a handler
+        // round trip per page. The token of the first page not fetched is handed back so CloudFormation resumes there.
+        final long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(getSettings().getListTimeBudgetMillis());
+        String nextToken = request.getNextToken();
+        int pages = 0;
+        do {
+            // STEP 1 [construct a body of a request]
+            final DescribeCapacityReservationsRequest reservationsRequest = Translator.translateToListRequest(nextToken,
+                    request.getDesiredResourceState(), getSettings().getListPageSize());
+            // STEP 2 [make an api call]
+            final DescribeCapacityReservationsResponse awsResponse;
+            try {
+                awsResponse = throttlingRetry.call(() -> proxy.injectCredentialsAndInvokeV2(reservationsRequest,
+                        (proxyRequest) -> client.client().describeCapacityReservations(InvocationDeadline.withCallTimeout(proxyRequest))));
+            } catch (Exception ex) {
+                Log.error(logger, "Exception while describing capacity reservations in list handler", "page", pages + 1, "error", ex);
+                if (pages == 0) {
+                    return Translator.translateError(ex);
+                }
+                // Keep what was already collected, the next invocation retries the failed page
+                break;
+            }
+            // STEP 3 [get a token for the next page]
             nextToken = awsResponse.nextToken();
-            models = Translator.translateFromListResponse(awsResponse);
-        } catch (Exception ex) {
-            logger.log(String.format("[ERROR]Exception while describing capacity reservation in list handler : %s", ex));
-            return Translator.translateError(ex);
-        }
+            models.addAll(Translator.translateFromListResponse(awsResponse, getSettings().isListFullModels()));
+            pages++;
+        } while (nextToken != null && models.size() < getSettings().getListMaxModels() && System.nanoTime() - deadline < 0
+                && !InvocationDeadline.nearlySpent());
+        Log.info(logger, "Listed capacity reservations", "count", models.size(), "pages", pages, "morePages", nextToken != null);
         // STEP 4 [ construct resource models]
         // e.g. https://github.com/aws-cloudformation/aws-cloudformation-resource-providers-logs/blob/master/aws-logs-loggroup/src/main/java/software/amazon/logs/loggroup/ListHandler.java#L19-L21
         return ProgressEvent.<ResourceModel, CallbackContext>builder()
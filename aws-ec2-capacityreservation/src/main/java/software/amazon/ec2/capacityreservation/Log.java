@@ -0,0 +1,127 @@
+package software.amazon.ec2.capacityreservation;
+
+import software.amazon.cloudformation.proxy.Logger;
+
+import java.util.Locale;
+import java.util.function.Supplier;
+
+/**
+ * Level-gated, structured logging on top of the CloudFormation {@link Logger}.
+ *
+ * A line is only built when its level is enabled, so debug detail costs nothing at INFO. Fields are given as
+ * alternating keys and values; values are rendered with {@code toString()} at output time and a {@link Supplier}
+ * value is only evaluated then, which keeps expensive computations off the disabled path:
+ * <pre>
+ *   Log.debug(logger, "Describe capacity reservation response", "id", id, "response", reservationsResponse);
+ * </pre>
+ * produces {@code [DEBUG] Describe capacity reservation response id=cr-123 response="DescribeCapacity..."}.
+ * The threshold comes from the {@code LOG_LEVEL} environment variable and defaults to INFO.
+ */
+final class Log {
+    static final String LOG_LEVEL = "LOG_LEVEL";
+
+    enum Level {
+        DEBUG,
+        INFO,
+        WARN,
+        ERROR
+    }
+
+    private static volatile Level threshold = parseLevel(System.getenv(LOG_LEVEL));
+
+    private Log() {
+    }
+
+    static boolean isEnabled(final Level level) {
+        return level.compareTo(threshold) >= 0;
+    }
+
+    static void setLevel(final Level level) {
+        threshold = level;
+    }
+
+    static Level getLevel() {
+        return threshold;
+    }
+
+    /**
+     * Marks a value to be computed only if the line is written.
+     */
+    static <T> Supplier<T> lazy(final Supplier<T> supplier) {
+        return supplier;
+    }
+
+    static void debug(final Logger logger, final String message, final Object... fields) {
+        log(Level.DEBUG, logger, message, fields);
+    }
+
+    static void info(final Logger logger, final String message, final Object... fields) {
+        log(Level.INFO, logger, message, fields);
+    }
+
+    static void warn(final Logger logger, final String message, final Object... fields) {
+        log(Level.WARN, logger, message, fields);
+    }
+
+    static void error(final Logger logger, final String message, final Object... fields) {
+        log(Level.ERROR, logger, message, fields);
+    }
+
+    static void log(final Level level, final Logger logger, final String message, final Object... fields) {
+        if (logger == null || !isEnabled(level)) {
+            return;
+        }
+        logger.log(format(level, message, fields));
+    }
+
+    static String format(final Level level, final String message, final Object... fields) {
+        final StringBuilder line = new StringBuilder(64).append('[').append(level).append("] ").append(message);
+        for (int i = 0; i < fields.length; i += 2) {
+            line.append(' ').append(fields[i]).append('=');
+            appendValue(line, i + 1 < fields.length ? fields[i + 1] : null);
+        }
+        return line.toString();
+    }
+
+    private static void appendValue(final StringBuilder line, final Object value) {
+        final Object resolved = value instanceof Supplier ? ((Supplier<?>) value).get() : value;
+        final String text = String.valueOf(resolved);
+        if (!needsQuotes(text)) {
+            line.append(text);
+            return;
+        }
+        line.append('"');
+        for (int i = 0; i < text.length(); i++) {
+            final char c = text.charAt(i);
+            if (c == '"' || c == '\\') {
+                line.append('\\');
+            }
+            line.append(c == '\n' ? ' ' : c);
+        }
+        line.append('"');
+    }
+
+    private static boolean needsQuotes(final String text) {
+        if (text.isEmpty()) {
+            return true;
+        }
+        for (int i = 0; i < text.length(); i++) {
+            final char c = text.charAt(i);
+            if (c == ' ' || c == '"' || c == '=' || c == '\n') {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static Level parseLevel(final String value) {
+        if (value != null) {
+            for (final Level level : Level.values()) {
+                if (level.name().equals(value.trim().toUpperCase(Locale.ROOT))) {
+                    return level;
+                }
+            }
+        }
+        return Level.INFO;
+    }
+}
@@ -0,0 +1,67 @@
+package software.amazon.ec2.capacityreservation;
+
+import software.amazon.awssdk.awscore.exception.AwsServiceException;
+import software.amazon.awssdk.core.interceptor.Context;
+import software.amazon.awssdk.core.interceptor.ExecutionAttribute;
+import software.amazon.awssdk.core.interceptor.ExecutionAttributes;
+import software.amazon.awssdk.core.interceptor.ExecutionInterceptor;
+import software.amazon.awssdk.core.interceptor.SdkExecutionAttribute;
+
+/**
+ * Attributes every EC2 call made by a {@link ClientBuilder} client to the {@link OperationMetrics} of the invocation
+ * that started it. Attempts are counted before each transmission, so SDK retries show up as well. The metrics are
+ * captured when the call starts, which keeps async completions on other threads attributed correctly.
+ */
+final class MetricsInterceptor implements ExecutionInterceptor {
+    private static final ExecutionAttribute<OperationMetrics> METRICS = new ExecutionAttribute<>("CapacityReservationOperationMetrics");
+    private static final ExecutionAttribute<String> STEP = new ExecutionAttribute<>("CapacityReservationStep");
+    private static final ExecutionAttribute<Long> STARTED = new ExecutionAttribute<>("CapacityReservationCallStarted");
+    private static final ExecutionAttribute<Integer> ATTEMPTS = new ExecutionAttribute<>("CapacityReservationCallAttempts");
+
+    @Override
+    public void beforeExecution(final Context.BeforeExecution context, final ExecutionAttributes executionAttributes) {
+        final OperationMetrics metrics = OperationMetrics.current();
+        if (metrics == null) {
+            return;
+        }
+        executionAttributes.putAttribute(METRICS, metrics);
+        executionAttributes.putAttribute(STARTED, System.nanoTime());
+        executionAttributes.putAttribute(ATTEMPTS, 0);
+        if (metrics.getCurrentStep() != null) {
+            executionAttributes.putAttribute(STEP, metrics.getCurrentStep());
+        }
+    }
+
+    @Override
+    public void beforeTransmission(final Context.BeforeTransmission context, final ExecutionAttributes executionAttributes) {
+        final Integer attempts = executionAttributes.getAttribute(ATTEMPTS);
+        if (attempts != null) {
+            executionAttributes.putAttribute(ATTEMPTS, attempts + 1);
+        }
+    }
+
+    @Override
+    public void afterExecution(final Context.AfterExecution context, final ExecutionAttributes executionAttributes) {
+        record(executionAttributes, null);
+    }
+
+    @Override
+    public void onExecutionFailure(final Context.FailedExecution context, final ExecutionAttributes executionAttributes) {
+        record(executionAttributes, context.exception());
+    }
+
+    private static void record(final ExecutionAttributes executionAttributes, final Throwable failure) {
+        final OperationMetrics metrics = executionAttributes.getAttribute(METRICS);
+        if (metrics == null) {
+            return;
+        }
+        final boolean throttled = failure instanceof AwsServiceException && ((AwsServiceException) failure).isThrottlingException();
+        metrics.recordCall(
+                executionAttributes.getAttribute(SdkExecutionAttribute.OPERATION_NAME),
+                executionAttributes.getAttribute(STEP),
+                System.nanoTime() - executionAttributes.getAttribute(STARTED),
+                Math.max(1, executionAttributes.getAttribute(ATTEMPTS)),
+                failure != null,
+                throttled);
+    }
+}
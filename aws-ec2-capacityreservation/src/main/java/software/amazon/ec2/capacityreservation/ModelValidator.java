@@ -0,0 +1,199 @@
+package software.amazon.ec2.capacityreservation;
+
+import org.json.JSONArray;
+import software.amazon.awssdk.services.ec2.model.CapacityReservationTenancy;
+import software.amazon.awssdk.services.ec2.model.EndDateType;
+import software.amazon.awssdk.services.ec2.model.InstanceMatchCriteria;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.function.Function;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+
+/**
+ * Checks a resource model before any EC2 call, so a template EC2 would reject fails in milliseconds with every
+ * problem listed instead of after a CreateCapacityReservation or ModifyCapacityReservation round trip.
+ *
+ * Required properties come from the resource schema; the other rules are EC2's: EndDate is given exactly when
+ * EndDateType is {@code limited} and must be a date {@link EndDateParser} understands, InstanceCount is positive,
+ * InstanceType looks like {@code family.size}, and Tenancy and InstanceMatchCriteria take one of their EC2 values.
+ * Those values are compared ignoring case, leaving a spelling such as {@code Dedicated} for EC2 to judge.
+ * Tags follow EC2's limits for every resource type they are applied to, counted after the stack-level tags and the
+ * TagSpecifications are merged the way {@link TagMerger} merges them; CloudFormation's {@code aws:} system tags do not
+ * count and users cannot set that prefix.
+ * Dates in the past are left to EC2, which knows its own clock.
+ */
+final class ModelValidator {
+    static final String SYSTEM_TAG_PREFIX = "aws:";
+    static final int MAX_TAGS_PER_RESOURCE = 50;
+    static final int MAX_KEY_LENGTH = 128;
+    static final int MAX_VALUE_LENGTH = 256;
+
+    private static final Pattern INSTANCE_TYPE = Pattern.compile("[a-z0-9][a-z0-9-]*\\.[a-z0-9]+");
+
+    /**
+     * Schema property name -> value of the model.
+     */
+    private static final Map<String, Function<ResourceModel, Object>> PROPERTIES = properties();
+
+    private static final List<String> REQUIRED = required();
+
+    private static final Set<String> TENANCIES = values(CapacityReservationTenancy.knownValues());
+    private static final Set<String> MATCH_CRITERIA = values(InstanceMatchCriteria.knownValues());
+    private static final Set<String> END_DATE_TYPES = values(EndDateType.knownValues());
+
+    private ModelValidator() {
+    }
+
+    /**
+     * @return problems of the desired state of a create without stack-level tags, empty when it is valid
+     */
+    static List<String> validateForCreate(final ResourceModel model) {
+        return validateForCreate(model, null);
+    }
+
+    /**
+     * @param model desired state of the create
+     * @param stackTags stack-level tags applied to the reservation, may be null
+     * @return problems of the desired state of a create, empty when it is valid
+     */
+    static List<String> validateForCreate(final ResourceModel model, final Map<String, String> stackTags) {
+        final List<String> problems = new ArrayList<>();
+        for (final String property : REQUIRED) {
+            if (isMissing(PROPERTIES.get(property).apply(model))) {
+                problems.add(String.format("Required property %s is missing", property));
+            }
+        }
+        if (model.getInstanceType() != null && !INSTANCE_TYPE.matcher(model.getInstanceType()).matches()) {
+            problems.add(String.format("InstanceType %s is not an instance type such as m5.large", model.getInstanceType()));
+        }
+        checkValue(problems, "Tenancy", model.getTenancy(), TENANCIES);
+        checkValue(problems, "InstanceMatchCriteria", model.getInstanceMatchCriteria(), MATCH_CRITERIA);
+        checkMutable(problems, model);
+        checkTags(problems, stackTags, model.getTagSpecifications());
+        return problems;
+    }
+
+    /**
+     * Only the properties ModifyCapacityReservation takes are checked, the create-only ones cannot change here.
+     * @return problems of the desired state of an update, empty when it is valid
+     */
+    static List<String> validateForUpdate(final ResourceModel model) {
+        final List<String> problems = new ArrayList<>();
+        checkMutable(problems, model);
+        return problems;
+    }
+
+    private static void checkMutable(final List<String> problems, final ResourceModel model) {
+        if (model.getInstanceCount() != null && model.getInstanceCount() < 1) {
+            problems.add(String.format("InstanceCount must be at least 1, got %d", model.getInstanceCount()));
+        }
+        checkValue(problems, "EndDateType", model.getEndDateType(), END_DATE_TYPES);
+        if (model.getEndDate() != null && EndDateParser.parse(model.getEndDate()) == null) {
+            problems.add(String.format("EndDate %s is not a valid date, use ISO-8601 such as 2030-12-31T23:59:59Z", model.getEndDate()));
+        }
+        if (EndDateType.LIMITED.toString().equalsIgnoreCase(model.getEndDateType()) && model.getEndDate() == null) {
+            problems.add("EndDate is required when EndDateType is limited");
+        }
+        if (EndDateType.UNLIMITED.toString().equalsIgnoreCase(model.getEndDateType()) && model.getEndDate() != null) {
+            problems.add("EndDate must be omitted when EndDateType is unlimited");
+        }
+    }
+
+    private static void checkTags(final List<String> problems, final Map<String, String> stackTags,
+                                  final List<TagSpecification> tagSpecifications) {
+        // resource type -> distinct keys, as they are sent after merging
+        final Map<String, Set<String>> keysByResourceType = new LinkedHashMap<>();
+        if (stackTags != null) {
+            stackTags.forEach((key, value) -> checkTag(problems, TagMerger.CR_RESOURCE_TYPE, key, value, keysByResourceType));
+        }
+        if (tagSpecifications != null) {
+            for (final TagSpecification tagSpecification : tagSpecifications) {
+                if (tagSpecification.getTags() == null) {
+                    continue;
+                }
+                final String resourceType = TagMerger.CR_RESOURCE_TYPE.equalsIgnoreCase(tagSpecification.getResourceType())
+                        ? TagMerger.CR_RESOURCE_TYPE
+                        : tagSpecification.getResourceType();
+                for (final Tag tag : tagSpecification.getTags()) {
+                    checkTag(problems, resourceType, tag.getKey(), tag.getValue(), keysByResourceType);
+                }
+            }
+        }
+        keysByResourceType.forEach((resourceType, keys) -> {
+            if (keys.size() > MAX_TAGS_PER_RESOURCE) {
+                problems.add(String.format("%d tags requested on %s, at most %d are allowed", keys.size(), resourceType, MAX_TAGS_PER_RESOURCE));
+            }
+        });
+    }
+
+    private static void checkTag(final List<String> problems, final String resourceType, final String key, final String value,
+                                 final Map<String, Set<String>> keysByResourceType) {
+        keysByResourceType.computeIfAbsent(resourceType, type -> new HashSet<>()).add(key);
+        if (key == null || key.isEmpty() || key.length() > MAX_KEY_LENGTH) {
+            problems.add(String.format("Tag key [%s] on %s must be 1 to %d characters long", key, resourceType, MAX_KEY_LENGTH));
+        } else if (key.regionMatches(true, 0, SYSTEM_TAG_PREFIX, 0, SYSTEM_TAG_PREFIX.length())) {
+            problems.add(String.format("Tag key [%s] on %s uses the reserved prefix %s", key, resourceType, SYSTEM_TAG_PREFIX));
+        }
+        if (value != null && value.length() > MAX_VALUE_LENGTH) {
+            problems.add(String.format("Value of tag [%s] on %s exceeds %d characters", key, resourceType, MAX_VALUE_LENGTH));
+        }
+    }
+
+    private static void checkValue(final List<String> problems, final String property, final String value, final Set<String> allowed) {
+        if (value != null && !allowed.contains(value)) {
+            problems.add(String.format("%s %s is not one of %s", property, value, allowed));
+        }
+    }
+
+    private static boolean isMissing(final Object value) {
+        return value == null || (value instanceof String && ((String) value).trim().isEmpty());
+    }
+
+    private static List<String> required() {
+        final JSONArray required = new Configuration().resourceSchemaJSONObject().optJSONArray("required");
+        final List<String> properties = new ArrayList<>();
+        if (required != null) {
+            for (int i = 0; i < required.length(); i++) {
+                final String property = required.getString(i);
+                if (!PROPERTIES.containsKey(property)) {
+                    throw new IllegalStateException("Required property " + property + " of the schema is not in the model");
+                }
+                properties.add(property);
+            }
+        }
+        return Collections.unmodifiableList(properties);
+    }
+
+    private static <E extends Enum<E>> Set<String> values(final Set<E> knownValues) {
+        return Collections.unmodifiableSet(knownValues.stream().map(Object::toString).collect(Collectors.toCollection(() -> new TreeSet<>(String.CASE_INSENSITIVE_ORDER))));
+    }
+
+    private static Map<String, Function<ResourceModel, Object>> properties() {
+        final Map<String, Function<ResourceModel, Object>> properties = new LinkedHashMap<>();
+        properties.put("Tenancy", ResourceModel::getTenancy);
+        properties.put("EndDateType", ResourceModel::getEndDateType);
+        properties.put("TagSpecifications", ResourceModel::getTagSpecifications);
+        properties.put("AvailabilityZone", ResourceModel::getAvailabilityZone);
+        properties.put("TotalInstanceCount", ResourceModel::getTotalInstanceCount);
+        properties.put("EndDate", ResourceModel::getEndDate);
+        properties.put("EbsOptimized", ResourceModel::getEbsOptimized);
+        properties.put("OutPostArn", ResourceModel::getOutPostArn);
+        properties.put("InstanceCount", ResourceModel::getInstanceCount);
+        properties.put("PlacementGroupArn", ResourceModel::getPlacementGroupArn);
+        properties.put("AvailableInstanceCount", ResourceModel::getAvailableInstanceCount);
+        properties.put("InstancePlatform", ResourceModel::getInstancePlatform);
+        properties.put("Id", ResourceModel::getId);
+        properties.put("InstanceType", ResourceModel::getInstanceType);
+        properties.put("EphemeralStorage", ResourceModel::getEphemeralStorage);
+        properties.put("InstanceMatchCriteria", ResourceModel::getInstanceMatchCriteria);
+        return Collections.unmodifiableMap(properties);
+    }
+}
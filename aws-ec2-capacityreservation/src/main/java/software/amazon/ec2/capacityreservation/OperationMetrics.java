@@ -0,0 +1,161 @@
+package software.amazon.ec2.capacityreservation;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+/**
+ * Measurements of one handler invocation: time spent in each call chain step and every EC2 call with its
+ * latency, SDK attempts and outcome. The instance is bound to the invocation thread between {@link #begin} and
+ * {@link #end}; EC2 calls are attributed to it by {@link MetricsInterceptor}, so SDK clients need no wrapping.
+ */
+final class OperationMetrics {
+    private static final ThreadLocal<OperationMetrics> CURRENT = new ThreadLocal<>();
+
+    /**
+     * Latency samples and outcome counts of a step or an EC2 operation.
+     */
+    static final class Timings {
+        private final List<Double> latenciesMillis = new ArrayList<>();
+        private int calls;
+        private int attempts;
+        private int errors;
+        private int throttles;
+
+        List<Double> getLatenciesMillis() {
+            return latenciesMillis;
+        }
+
+        int getCalls() {
+            return calls;
+        }
+
+        int getRetries() {
+            return Math.max(0, attempts - calls);
+        }
+
+        int getErrors() {
+            return errors;
+        }
+
+        int getThrottles() {
+            return throttles;
+        }
+    }
+
+    private final String action;
+    private final long startedNanos = System.nanoTime();
+    private final Map<String, Timings> steps = new LinkedHashMap<>();
+    private final Map<String, Timings> ec2Operations = new LinkedHashMap<>();
+    private final Map<String, Integer> stepCalls = new LinkedHashMap<>();
+    private volatile String currentStep;
+    private int handlerRetries;
+
+    private OperationMetrics(final String action) {
+        this.action = action;
+    }
+
+    /**
+     * Starts measuring an invocation on the calling thread.
+     */
+    static OperationMetrics begin(final String action) {
+        final OperationMetrics metrics = new OperationMetrics(action);
+        CURRENT.set(metrics);
+        return metrics;
+    }
+
+    /**
+     * @return metrics of the invocation running on this thread, null outside of one
+     */
+    static OperationMetrics current() {
+        return CURRENT.get();
+    }
+
+    void end() {
+        CURRENT.remove();
+    }
+
+    String getAction() {
+        return action;
+    }
+
+    String getCurrentStep() {
+        return currentStep;
+    }
+
+    double elapsedMillis() {
+        return toMillis(System.nanoTime() - startedNanos);
+    }
+
+    /**
+     * Runs one step of the handler, EC2 calls made meanwhile are attributed to it.
+     */
+    <T> T step(final String name, final Supplier<T> work) {
+        final String previous = currentStep;
+        currentStep = name;
+        final long start = System.nanoTime();
+        try {
+            return work.get();
+        } finally {
+            final long elapsed = System.nanoTime() - start;
+            synchronized (this) {
+                final Timings timings = steps.computeIfAbsent(name, key -> new Timings());
+                timings.calls++;
+                timings.latenciesMillis.add(toMillis(elapsed));
+            }
+            currentStep = previous;
+        }
+    }
+
+    /**
+     * @param step step the call was started from, null outside of a step
+     * @param attempts requests sent, 1 unless the SDK retried
+     */
+    synchronized void recordCall(final String operation, final String step, final long nanos, final int attempts,
+                                 final boolean failed, final boolean throttled) {
+        final Timings timings = ec2Operations.computeIfAbsent(operation, key -> new Timings());
+        timings.calls++;
+        timings.attempts += attempts;
+        timings.latenciesMillis.add(toMillis(nanos));
+        if (failed) {
+            timings.errors++;
+        }
+        if (throttled) {
+            timings.throttles++;
+        }
+        if (step != null) {
+            stepCalls.merge(step, 1, Integer::sum);
+        }
+    }
+
+    /**
+     * Counts a call repeated by the handler itself, on top of the SDK's own retries.
+     */
+    synchronized void recordRetry() {
+        handlerRetries++;
+    }
+
+    synchronized int getHandlerRetries() {
+        return handlerRetries;
+    }
+
+    synchronized Map<String, Timings> getSteps() {
+        return Collections.unmodifiableMap(new LinkedHashMap<>(steps));
+    }
+
+    synchronized Map<String, Timings> getEc2Operations() {
+        return Collections.unmodifiableMap(new LinkedHashMap<>(ec2Operations));
+    }
+
+    synchronized int getStepEc2Calls(final String step) {
+        return stepCalls.getOrDefault(step, 0);
+    }
+
+    private static double toMillis(final long nanos) {
+        return nanos / (double) TimeUnit.MILLISECONDS.toNanos(1);
+    }
+}
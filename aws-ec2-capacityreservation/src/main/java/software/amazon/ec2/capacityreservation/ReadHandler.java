@@ -13,6 +13,14 @@ import software.amazon.cloudformation.proxy.ResourceHandlerRequest;
 public class ReadHandler extends BaseHandlerStd {
     private Logger logger;
 
+    public ReadHandler() {
+        super();
+    }
+
+    ReadHandler(final HandlerSettings settings) {
+        super(settings);
+    }
+
     protected ProgressEvent<ResourceModel, CallbackContext> handleRequest(
             final AmazonWebServicesClientProxy proxy,
             final ResourceHandlerRequest<ResourceModel> request,
@@ -23,14 +31,14 @@ public class ReadHandler extends BaseHandlerStd {
         this.logger = logger;
 
         // STEP 1 [initialize a proxy context]
-        return proxy.initiate("AWS-EC2-CapacityReservation::Read", proxyClient, request.getDesiredResourceState(), callbackContext)
+        return step("AWS-EC2-CapacityReservation::Read", callGraph -> proxy.initiate(callGraph, proxyClient, request.getDesiredResourceState(), callbackContext)
                 // STEP 2 [construct body of the request]
                 .translateToServiceRequest(model -> Translator.translateToReadRequest(model, logger))
                 // STEP 3 [make an api call]
-                .makeServiceCall((describeCapacityReservationsRequest, ec2client) -> describeCapacityReservations(describeCapacityReservationsRequest, ec2client, logger))
+                .makeServiceCall((describeCapacityReservationsRequest, ec2client) -> readCapacityReservation(request, describeCapacityReservationsRequest, ec2client, logger))
                 // STEP 4 [Handle error]
                 .handleError((describeCapacityReservationsRequest, exception, ec2client, model, context) -> Translator.translateError(exception))
                 // STEP 5 [gather all properties of the resource]
-                .done(awsResponse -> ProgressEvent.defaultSuccessHandler(Translator.translateFromReadResponse(awsResponse, logger)));
+                .done(awsResponse -> ProgressEvent.defaultSuccessHandler(Translator.translateFromReadResponse(awsResponse, logger))));
     }
 }
@@ -0,0 +1,122 @@
+package software.amazon.ec2.capacityreservation;
+
+import software.amazon.awssdk.services.ec2.model.CapacityReservation;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Short lived, size bounded cache of described reservations, keyed by account, region and reservation id.
+ *
+ * Entries expire after the TTL given on lookup and the least recently used entry is evicted once the cache is full.
+ * Our own modify and cancel calls invalidate the reservation they touched. A describe that was already in flight when
+ * an invalidation happened may have read the old state, so every invalidation moves the cache to a new generation and
+ * results read in an older generation are not stored.
+ *
+ * The cache only sees writes made by this JVM; changes made elsewhere, including by the handlers of another container,
+ * become visible once the TTL expires. That is why the TTL is capped at {@link #MAX_TTL_MILLIS}.
+ */
+final class ReservationCache {
+    static final int MAX_ENTRIES = 1024;
+    static final int MAX_TTL_MILLIS = 5_000;
+
+    private static final ReservationCache SHARED = new ReservationCache(MAX_ENTRIES);
+
+    private final Map<String, Entry> entries;
+    private long generation;
+
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong invalidations = new AtomicLong();
+
+    ReservationCache(final int maxEntries) {
+        this.entries = new LinkedHashMap<String, Entry>(16, 0.75f, true) {
+            private static final long serialVersionUID = 1L;
+
+            @Override
+            protected boolean removeEldestEntry(final Map.Entry<String, Entry> eldest) {
+                return size() > maxEntries;
+            }
+        };
+    }
+
+    /**
+     * Cache shared by all handlers of this JVM, so Read sees the invalidations of Update and Delete.
+     */
+    static ReservationCache shared() {
+        return SHARED;
+    }
+
+    static String key(final String awsAccountId, final String region, final String capacityReservationId) {
+        return awsAccountId + "|" + region + "|" + capacityReservationId;
+    }
+
+    synchronized Optional<CapacityReservation> get(final String key, final long ttlMillis) {
+        final Entry entry = entries.get(key);
+        if (entry == null || System.currentTimeMillis() - entry.storedAt > ttlMillis) {
+            if (entry != null) {
+                entries.remove(key);
+            }
+            misses.incrementAndGet();
+            return Optional.empty();
+        }
+        hits.incrementAndGet();
+        return Optional.of(entry.capacityReservation);
+    }
+
+    /**
+     * @return generation to pass to {@link #put} for a describe started now
+     */
+    synchronized long generation() {
+        return generation;
+    }
+
+    /**
+     * Stores a described reservation unless an invalidation happened since the describe started.
+     */
+    synchronized void put(final String key, final CapacityReservation capacityReservation, final long readGeneration) {
+        if (readGeneration == generation) {
+            entries.put(key, new Entry(capacityReservation, System.currentTimeMillis()));
+        }
+    }
+
+    synchronized void invalidate(final String key) {
+        generation++;
+        entries.remove(key);
+        invalidations.incrementAndGet();
+    }
+
+    synchronized void invalidateAll() {
+        generation++;
+        entries.clear();
+        invalidations.incrementAndGet();
+    }
+
+    synchronized int size() {
+        return entries.size();
+    }
+
+    long getHits() {
+        return hits.get();
+    }
+
+    long getMisses() {
+        return misses.get();
+    }
+
+    long getInvalidations() {
+        return invalidations.get();
+    }
+
+    private static final class Entry {
+        private final CapacityReservation capacityReservation;
+        private final long storedAt;
+
+        private Entry(final CapacityReservation capacityReservation, final long storedAt) {
+            this.capacityReservation = capacityReservation;
+            this.storedAt = storedAt;
+        }
+    }
+}
@@ -0,0 +1,99 @@
+package software.amazon.ec2.capacityreservation;
+
+import software.amazon.awssdk.services.ec2.model.CapacityReservation;
+import software.amazon.awssdk.services.ec2.model.EndDateType;
+import software.amazon.cloudformation.proxy.Logger;
+
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.Collections;
+import java.util.EnumSet;
+import java.util.Objects;
+import java.util.Set;
+
+/**
+ * Field level comparison of the properties ModifyCapacityReservation can change (InstanceCount, EndDateType, EndDate).
+ *
+ * The desired state is first normalized into a {@link Target} (dates parsed, an EndDate without EndDateType taken as
+ * {@code limited}), then compared with the live reservation. A property the template leaves out is not managed by the
+ * update, so an omitted EndDateType and EndDate leave the reservation's end date as it is. Only fields that differ from what EC2 reports are
+ * part of the diff, so an update that changes nothing effective does not need a modify call at all.
+ */
+@lombok.Getter
+@lombok.ToString
+final class ReservationDiff {
+
+    enum Field {
+        INSTANCE_COUNT,
+        END_DATE_TYPE,
+        END_DATE
+    }
+
+    private final Target target;
+    private final Set<Field> changedFields;
+
+    private ReservationDiff(final Target target, final Set<Field> changedFields) {
+        this.target = target;
+        this.changedFields = Collections.unmodifiableSet(changedFields);
+    }
+
+    /**
+     * Normalizes the desired mutable properties.
+     * @param desired resource state requested by the update
+     * @param logger logger
+     * @return normalized desired values, null meaning the property is not managed by this update
+     */
+    static Target target(final ResourceModel desired, final Logger logger) {
+        final Instant endDate = desired.getEndDate() == null ? null
+                : truncate(Translator.getEndDate(desired.getEndDate(), logger));
+        final String endDateType = desired.getEndDateType() == null && endDate != null
+                ? EndDateType.LIMITED.toString()
+                : desired.getEndDateType();
+        return new Target(desired.getId(), desired.getInstanceCount(), endDateType, endDate);
+    }
+
+    static ReservationDiff compute(final ResourceModel desired,
+                                   final CapacityReservation live,
+                                   final Logger logger) {
+        return compute(target(desired, logger), live);
+    }
+
+    static ReservationDiff compute(final Target target, final CapacityReservation live) {
+        final Set<Field> changed = EnumSet.noneOf(Field.class);
+        if (target.getInstanceCount() != null && !target.getInstanceCount().equals(live.totalInstanceCount())) {
+            changed.add(Field.INSTANCE_COUNT);
+        }
+        if (target.getEndDateType() != null && !target.getEndDateType().equalsIgnoreCase(live.endDateTypeAsString())) {
+            changed.add(Field.END_DATE_TYPE);
+        }
+        if (target.isLimited() && target.getEndDate() != null && !Objects.equals(target.getEndDate(), truncate(live.endDate()))) {
+            changed.add(Field.END_DATE);
+        }
+        return new ReservationDiff(target, changed);
+    }
+
+    boolean hasChanges() {
+        return !changedFields.isEmpty();
+    }
+
+    boolean endDateChanged() {
+        return changedFields.contains(Field.END_DATE_TYPE) || changedFields.contains(Field.END_DATE);
+    }
+
+    // EC2 keeps end dates at second precision
+    private static Instant truncate(final Instant instant) {
+        return instant == null ? null : instant.truncatedTo(ChronoUnit.SECONDS);
+    }
+
+    @lombok.Value
+    static class Target {
+        String capacityReservationId;
+        Integer instanceCount;
+        String endDateType;
+        Instant endDate;
+
+        boolean isLimited() {
+            return EndDateType.LIMITED.toString().equalsIgnoreCase(endDateType);
+        }
+    }
+}
@@ -0,0 +1,81 @@
+package software.amazon.ec2.capacityreservation;
+
+import software.amazon.awssdk.services.ec2.model.ResourceType;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Builds the TagSpecifications of CreateCapacityReservation from every tag source in one pass.
+ *
+ * Tags are grouped by resource type and de-duplicated by key. For the capacity reservation itself, conflicting keys
+ * resolve in this order, last one wins:
+ * <ol>
+ *   <li>stack-level tags</li>
+ *   <li>tags of the resource's TagSpecifications (a later specification wins over an earlier one)</li>
+ *   <li>CloudFormation system tags ({@code aws:} prefix), which users cannot set</li>
+ * </ol>
+ * Tag limits are checked by {@link ModelValidator} before any call, together with the rest of the model.
+ */
+final class TagMerger {
+    static final String CR_RESOURCE_TYPE = ResourceType.CAPACITY_RESERVATION.toString();
+
+    private TagMerger() {
+    }
+
+    /**
+     * @param stackTags stack-level tags, may be null
+     * @param systemTags CloudFormation system tags, may be null
+     * @param tagSpecifications TagSpecifications of the resource model, may be null
+     * @return tag specifications to send, empty when there is nothing to tag
+     */
+    static List<software.amazon.awssdk.services.ec2.model.TagSpecification> merge(
+            final Map<String, String> stackTags,
+            final Map<String, String> systemTags,
+            final List<TagSpecification> tagSpecifications) {
+        // resource type -> key -> value, kept in first-seen order
+        final Map<String, Map<String, String>> byResourceType = new LinkedHashMap<>();
+        final Map<String, String> reservationTags = new LinkedHashMap<>();
+
+        if (stackTags != null) {
+            reservationTags.putAll(stackTags);
+        }
+        if (tagSpecifications != null) {
+            for (final TagSpecification tagSpecification : tagSpecifications) {
+                if (tagSpecification.getTags() == null) {
+                    continue;
+                }
+                final String resourceType = tagSpecification.getResourceType();
+                final Map<String, String> target = CR_RESOURCE_TYPE.equalsIgnoreCase(resourceType)
+                        ? reservationTags
+                        : byResourceType.computeIfAbsent(resourceType, type -> new LinkedHashMap<>());
+                for (final Tag tag : tagSpecification.getTags()) {
+                    target.put(tag.getKey(), tag.getValue());
+                }
+            }
+        }
+        if (systemTags != null) {
+            reservationTags.putAll(systemTags);
+        }
+
+        final List<software.amazon.awssdk.services.ec2.model.TagSpecification> specifications = new ArrayList<>(byResourceType.size() + 1);
+        byResourceType.forEach((resourceType, tags) -> specifications.add(specification(resourceType, tags)));
+        if (!reservationTags.isEmpty()) {
+            specifications.add(specification(CR_RESOURCE_TYPE, reservationTags));
+        }
+        return specifications;
+    }
+
+    private static software.amazon.awssdk.services.ec2.model.TagSpecification specification(
+            final String resourceType,
+            final Map<String, String> tags) {
+        final List<software.amazon.awssdk.services.ec2.model.Tag> ec2Tags = new ArrayList<>(tags.size());
+        tags.forEach((key, value) -> ec2Tags.add(software.amazon.awssdk.services.ec2.model.Tag.builder().key(key).value(value).build()));
+        return software.amazon.awssdk.services.ec2.model.TagSpecification.builder()
+                .resourceType(resourceType)
+                .tags(ec2Tags)
+                .build();
+    }
+}
@@ -0,0 +1,90 @@
+package software.amazon.ec2.capacityreservation;
+
+import software.amazon.awssdk.awscore.exception.AwsServiceException;
+
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+/**
+ * Sends EC2 calls through an {@link AdaptiveRateLimiter} and retries the ones EC2 throttles after a jittered,
+ * exponentially growing pause. Other errors are not retried here. A throttle that outlasts the attempts is
+ * rethrown and surfaces as {@code HandlerErrorCode.Throttling}, which CloudFormation retries later; so is one whose
+ * pause would not fit in the {@link InvocationDeadline}.
+ */
+final class ThrottlingRetry {
+    static final long MAX_DELAY_MILLIS = 5000;
+
+    /**
+     * Waits between attempts, replaceable in tests.
+     */
+    interface Sleeper {
+        void sleep(long millis) throws InterruptedException;
+    }
+
+    private final AdaptiveRateLimiter limiter;
+    private final int maxAttempts;
+    private final long baseDelayMillis;
+    private final Sleeper sleeper;
+
+    /**
+     * @param limiter limiter every attempt goes through, null to send right away
+     * @param maxAttempts attempts per call including the first one
+     * @param baseDelayMillis pause before the first retry, doubled with jitter for every further one
+     */
+    ThrottlingRetry(final AdaptiveRateLimiter limiter, final int maxAttempts, final long baseDelayMillis, final Sleeper sleeper) {
+        this.limiter = limiter;
+        this.maxAttempts = Math.max(1, maxAttempts);
+        this.baseDelayMillis = baseDelayMillis;
+        this.sleeper = sleeper;
+    }
+
+    /**
+     * Sends every call once, without limiting.
+     */
+    static ThrottlingRetry direct() {
+        return new ThrottlingRetry(null, 1, 0, Thread::sleep);
+    }
+
+    <T> T call(final Supplier<T> call) {
+        for (int attempt = 0; ; attempt++) {
+            if (limiter != null) {
+                pause(TimeUnit.NANOSECONDS.toMillis(limiter.reserve()));
+            }
+            try {
+                final T result = call.get();
+                if (limiter != null) {
+                    limiter.onSuccess();
+                }
+                return result;
+            } catch (final AwsServiceException e) {
+                if (!e.isThrottlingException()) {
+                    throw e;
+                }
+                if (limiter != null) {
+                    limiter.onThrottle();
+                }
+                final long delayMillis = Backoff.jitteredDelayMillis(attempt, baseDelayMillis, MAX_DELAY_MILLIS);
+                // a pause running into the invocation's reserve is left to CloudFormation's retry instead
+                if (attempt + 1 >= maxAttempts || !InvocationDeadline.allows(delayMillis)) {
+                    throw e;
+                }
+                final OperationMetrics metrics = OperationMetrics.current();
+                if (metrics != null) {
+                    metrics.recordRetry();
+                }
+                pause(delayMillis);
+            }
+        }
+    }
+
+    private void pause(final long millis) {
+        if (millis <= 0) {
+            return;
+        }
+        try {
+            sleeper.sleep(millis);
+        } catch (final InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -1,21 +1,19 @@
 package software.amazon.ec2.capacityreservation;
 
-import lombok.SneakyThrows;
-import software.amazon.awssdk.awscore.exception.AwsServiceException;
 import software.amazon.awssdk.services.ec2.model.CancelCapacityReservationRequest;
 import software.amazon.awssdk.services.ec2.model.CapacityReservation;
+import software.amazon.awssdk.services.ec2.model.CapacityReservationState;
 import software.amazon.awssdk.services.ec2.model.CreateCapacityReservationRequest;
 import software.amazon.awssdk.services.ec2.model.DescribeCapacityReservationsRequest;
 import software.amazon.awssdk.services.ec2.model.DescribeCapacityReservationsResponse;
+import software.amazon.awssdk.services.ec2.model.EndDateType;
+import software.amazon.awssdk.services.ec2.model.Filter;
 import software.amazon.awssdk.services.ec2.model.ModifyCapacityReservationRequest;
-import software.amazon.awssdk.services.ec2.model.ResourceType;
 import software.amazon.cloudformation.exceptions.CfnNotFoundException;
-import software.amazon.cloudformation.proxy.HandlerErrorCode;
 import software.amazon.cloudformation.proxy.Logger;
 import software.amazon.cloudformation.proxy.ProgressEvent;
 import software.amazon.cloudformation.proxy.ResourceHandlerRequest;
 
-import java.text.SimpleDateFormat;
 import java.time.Instant;
 import java.util.ArrayList;
 import java.util.Arrays;
@@ -34,7 +32,10 @@ import java.util.stream.Stream;
 
 public class Translator {
 
-  private static final String CR_RESOURCE_TYPE = "capacity-reservation";
+  private static final List<String> LISTED_STATES = CapacityReservationState.knownValues().stream()
+          .filter(state -> state != CapacityReservationState.CANCELLED)
+          .map(CapacityReservationState::toString)
+          .collect(Collectors.toList());
 
   /**
    * Request to create a resource
@@ -68,28 +69,15 @@ public class Translator {
       return builder.build();
   }
 
-  @SneakyThrows
-  private static Instant getEndDate(final String endDate, final Logger logger) {
-    if (endDate == null) {
-      return null;
-    }
-
-    try {
-      return Instant.parse(endDate);
-    } catch (Exception e) {
-      logger.log(String.format("Instance parse failed with %s", e));
-    }
-
-    //This is for backward compatibility
-    try {
-      logger.log(String.format("Parsing the date using SimpleDateFormat [E MMM dd HH:mm:ss z yyyy]"));
-      SimpleDateFormat oldDateFormat = new SimpleDateFormat("E MMM dd HH:mm:ss z yyyy");
-      return oldDateFormat.parse(endDate).toInstant();
-    } catch (Exception e) {
-      return null;
+  static Instant getEndDate(final String endDate, final Logger logger) {
+    final Instant parsed = EndDateParser.parse(endDate);
+    if (parsed == null && endDate != null) {
+      Log.warn(logger, "EndDate is not a valid date", "endDate", endDate);
     }
+    return parsed;
   }
 
+
   /**
    * Request to read a resource
    * @param model resource model
@@ -97,9 +85,9 @@ public class Translator {
    */
   static DescribeCapacityReservationsRequest translateToReadRequest(final ResourceModel model, final Logger logger) {
     final String crID = model.getId();
-    logger.log(String.format("Capacity reservation ID = %s", crID));
+    Log.debug(logger, "Translating request", "id", crID);
     if (crID == null) {
-      logger.log("Capacity reservation ID is null throwing exception");
+      Log.error(logger, "Capacity reservation ID is null");
       throw new CfnNotFoundException(ResourceModel.TYPE_NAME, null);
     }
     return DescribeCapacityReservationsRequest.builder()
@@ -113,7 +101,15 @@ public class Translator {
    * @return model resource model
    */
   static ResourceModel translateFromReadResponse(final DescribeCapacityReservationsResponse reservationsResponse, final Logger logger) {
-    final CapacityReservation cr = reservationsResponse.capacityReservations().get(0);
+    return translateFromCapacityReservation(reservationsResponse.capacityReservations().get(0));
+  }
+
+  /**
+   * Translates a capacity reservation snapshot (from a describe or a create response) into a resource model
+   * @param cr capacity reservation returned by EC2
+   * @return model resource model
+   */
+  static ResourceModel translateFromCapacityReservation(final CapacityReservation cr) {
     final List<Tag> tags = cr.tags().stream().map(tag -> Tag.builder()
             .key(tag.key())
             .value(tag.value())
@@ -123,7 +119,7 @@ public class Translator {
             .availabilityZone(cr.availabilityZone())
             .availableInstanceCount(cr.availableInstanceCount())
             .ebsOptimized(cr.ebsOptimized())
-            .endDate(String.valueOf(cr.endDate()))
+            .endDate(cr.endDate() == null ? null : cr.endDate().toString())
             .endDateType(cr.endDateTypeAsString())
             .ephemeralStorage(cr.ephemeralStorage())
             .totalInstanceCount(cr.totalInstanceCount())
@@ -134,7 +130,7 @@ public class Translator {
             .placementGroupArn(cr.placementGroupArn())
             .outPostArn(cr.outpostArn())
             .tagSpecifications(Arrays.asList(TagSpecification.builder()
-                    .resourceType(CR_RESOURCE_TYPE).tags(tags).build()))
+                    .resourceType(TagMerger.CR_RESOURCE_TYPE).tags(tags).build()))
             .build();
     final ResourceModel model = builder.build();
     return model;
@@ -147,9 +143,9 @@ public class Translator {
    */
   static CancelCapacityReservationRequest translateToDeleteRequest(final ResourceModel model, final Logger logger) {
     final String crID = model.getId();
-    logger.log(String.format("Capacity reservation ID = %s", crID));
+    Log.debug(logger, "Translating request", "id", crID);
     if (crID == null) {
-      logger.log("Capacity reservation ID is null throwing exception");
+      Log.error(logger, "Capacity reservation ID is null");
       throw new CfnNotFoundException(ResourceModel.TYPE_NAME, null);
     }
     final CancelCapacityReservationRequest request = CancelCapacityReservationRequest.builder()
@@ -161,68 +157,112 @@ public class Translator {
   /**
    * Request to update properties of a previously created resource
    * @param model resource model
+   * @param diff fields that differ from the live reservation, only those are sent
    * @return awsRequest the aws service request to modify a resource
    */
-  static ModifyCapacityReservationRequest translateToUpdateRequest(final ResourceModel model, final Logger logger) {
+  static ModifyCapacityReservationRequest translateToUpdateRequest(final ResourceModel model, final ReservationDiff diff, final Logger logger) {
     final String crID = model.getId();
-    logger.log(String.format("Capacity reservation ID = %s", crID));
+    Log.debug(logger, "Translating request", "id", crID);
     if (crID == null) {
-      logger.log("Capacity reservation ID is null throwing exception");
+      Log.error(logger, "Capacity reservation ID is null");
       throw new CfnNotFoundException(ResourceModel.TYPE_NAME, null);
     }
-    logger.log("Model : " + model.toString());
+    Log.debug(logger, "Translating update", "model", model, "changedFields", diff.getChangedFields());
+    final ReservationDiff.Target target = diff.getTarget();
     final ModifyCapacityReservationRequest.Builder request = ModifyCapacityReservationRequest.builder()
             .capacityReservationId(crID);
-    if (model.getEndDate() != null) {
-      request.endDate(getEndDate(model.getEndDate(), logger));
-    }
-    if (model.getEndDateType() != null) {
-      request.endDateType(model.getEndDateType());
+    if (diff.endDateChanged()) {
+      // EC2 validates the end date together with its type, so both are sent when either one changes
+      request.endDateType(target.getEndDateType());
+      if (target.isLimited()) {
+        request.endDate(target.getEndDate());
+      }
     }
-    if (model.getInstanceCount() != null) {
-      request.instanceCount(model.getInstanceCount());
+    if (diff.getChangedFields().contains(ReservationDiff.Field.INSTANCE_COUNT)) {
+      request.instanceCount(target.getInstanceCount());
     }
     return request.build();
   }
 
+  /**
+   * Builds the model of a reservation after a successful modify from the snapshot taken before the update,
+   * so the update does not need another describe call.
+   * @param snapshot capacity reservation as described before the modify call
+   * @param appliedRequest the modify request EC2 accepted
+   * @return model resource model reflecting the applied changes
+   */
+  static ResourceModel translateFromModifiedReservation(final CapacityReservation snapshot,
+                                                        final ModifyCapacityReservationRequest appliedRequest) {
+    final CapacityReservation.Builder merged = snapshot.toBuilder();
+    if (appliedRequest.instanceCount() != null) {
+      merged.totalInstanceCount(appliedRequest.instanceCount());
+      if (snapshot.totalInstanceCount() != null && snapshot.availableInstanceCount() != null) {
+        // Instances already running in the reservation are not affected by the modify call
+        final int usedInstanceCount = snapshot.totalInstanceCount() - snapshot.availableInstanceCount();
+        merged.availableInstanceCount(Math.max(0, appliedRequest.instanceCount() - usedInstanceCount));
+      }
+    }
+    if (appliedRequest.endDateType() != null) {
+      merged.endDateType(appliedRequest.endDateTypeAsString());
+      if (EndDateType.UNLIMITED.toString().equalsIgnoreCase(appliedRequest.endDateTypeAsString())) {
+        merged.endDate(null);
+      }
+    }
+    if (appliedRequest.endDate() != null) {
+      merged.endDate(appliedRequest.endDate());
+    }
+    return translateFromCapacityReservation(merged.build());
+  }
+
   /**
    * Request to list resources
    * @param nextToken token passed to the aws service list resources request
+   * @param model optional model whose AvailabilityZone/InstanceType narrow the listing
+   * @param maxResults page size, null for the service default
    * @return awsRequest the aws service request to list resources within aws account
    */
-  static DescribeCapacityReservationsRequest translateToListRequest(final String nextToken) {
+  static DescribeCapacityReservationsRequest translateToListRequest(final String nextToken,
+                                                                    final ResourceModel model,
+                                                                    final Integer maxResults) {
+    // Filtering on the service side keeps cancelled reservations, usually most of an account's history, off the wire
+    final List<Filter> filters = new ArrayList<>();
+    filters.add(Filter.builder().name("state").values(LISTED_STATES).build());
+    if (model != null && model.getAvailabilityZone() != null) {
+      filters.add(Filter.builder().name("availability-zone").values(model.getAvailabilityZone()).build());
+    }
+    if (model != null && model.getInstanceType() != null) {
+      filters.add(Filter.builder().name("instance-type").values(model.getInstanceType()).build());
+    }
     return DescribeCapacityReservationsRequest.builder()
             .nextToken(nextToken)
+            .maxResults(maxResults)
+            .filters(filters)
             .build();
   }
 
   /**
-   * Translates resource objects from sdk into a resource model (primary identifier only)
+   * Translates a list page into resource models
    * @param awsResponse the aws service describe resource response
+   * @param fullModels map every property like read does, instead of only the primary identifier
    * @return list of resource models
    */
-  static List<ResourceModel> translateFromListResponse(final DescribeCapacityReservationsResponse awsResponse) {
+  static List<ResourceModel> translateFromListResponse(final DescribeCapacityReservationsResponse awsResponse, final boolean fullModels) {
     // e.g. https://github.com/aws-cloudformation/aws-cloudformation-resource-providers-logs/blob/2077c92299aeb9a68ae8f4418b5e932b12a8b186/aws-logs-loggroup/src/main/java/com/aws/logs/loggroup/Translator.java#L75-L82
     return streamOfOrEmpty(awsResponse.capacityReservations()).filter(capacityReservation -> !capacityReservation.state().toString().equalsIgnoreCase("cancelled"))
-            .map(resource -> ResourceModel.builder()
+            .map(resource -> fullModels
+                    ? translateFromCapacityReservation(resource)
+                    : ResourceModel.builder()
                     // include only primary identifier
                     .id(resource.capacityReservationId())
                     .build())
             .collect(Collectors.toList());
   }
 
+  /**
+   * Failed event for an error of an EC2 call, with the error code chosen by {@link ErrorClassifier}.
+   */
   static ProgressEvent<ResourceModel, CallbackContext> translateError(final Exception ex) {
-    if (ex instanceof CfnNotFoundException) {
-      return ProgressEvent.defaultFailureHandler(ex, HandlerErrorCode.NotFound);
-    } else if (ex instanceof AwsServiceException) {
-      final AwsServiceException serviceException = (AwsServiceException) ex;
-      if (serviceException.statusCode() == 500) {
-        return ProgressEvent.defaultFailureHandler(ex, HandlerErrorCode.ServiceInternalError);
-      } else if (serviceException.statusCode() == 400) {
-        return ProgressEvent.defaultFailureHandler(ex, HandlerErrorCode.InvalidRequest);
-      }
-    }
-    return ProgressEvent.defaultFailureHandler(ex, HandlerErrorCode.GeneralServiceException);
+    return ProgressEvent.defaultFailureHandler(ex, ErrorClassifier.classify(ex).getErrorCode());
   }
 
   private static <T> Stream<T> streamOfOrEmpty(final Collection<T> collection) {
@@ -234,71 +274,13 @@ public class Translator {
   private static List<software.amazon.awssdk.services.ec2.model.TagSpecification> consolidateTags(final ResourceHandlerRequest<ResourceModel> handlerRequest,
                                                                                                   final ResourceModel model,
                                                                                                   final Logger logger) {
-    final List<software.amazon.awssdk.services.ec2.model.Tag> tags = new ArrayList<>();
-    final List<software.amazon.awssdk.services.ec2.model.TagSpecification> crTagSpecs = new ArrayList<>();
-
-    // Get stack-level tags from CFN
-    if (handlerRequest.getDesiredResourceTags() != null) {
-      handlerRequest.getDesiredResourceTags().forEach((key, value) -> {
-        software.amazon.awssdk.services.ec2.model.Tag tag = software.amazon.awssdk.services.ec2.model.Tag.builder()
-                .key(key)
-                .value(value)
-                .build();
-        tags.add(tag);
-      });
-    }
-
-    /* Get CFN system tags https://docs.aws.amazon.com/AWSCloudFormation/latest/UserGuide/aws-properties-resource-tags.html
-      aws:cloudformation:logical-id
-      aws:cloudformation:stack-id
-      aws:cloudformation:stack-name
+    /* Stack-level tags, CFN system tags https://docs.aws.amazon.com/AWSCloudFormation/latest/UserGuide/aws-properties-resource-tags.html
+      (aws:cloudformation:logical-id, aws:cloudformation:stack-id, aws:cloudformation:stack-name) and user-provided tags
      */
-    if (handlerRequest.getSystemTags() != null) {
-      handlerRequest.getSystemTags().forEach((key, value) -> {
-        software.amazon.awssdk.services.ec2.model.Tag tag = software.amazon.awssdk.services.ec2.model.Tag.builder()
-                .key(key)
-                .value(value)
-                .build();
-        tags.add(tag);
-      });
-    }
-
-    if (tags.isEmpty()) {
-      logger.log("No stack-level tags and system tags for CFN");
-    }
-
-
-    // Get user-provided tags
-    if (model.getTagSpecifications() != null && model.getTagSpecifications().size() > 0) {
-
-      for(TagSpecification tagSpecification : model.getTagSpecifications()){
-        if(tagSpecification.getResourceType().equalsIgnoreCase(CR_RESOURCE_TYPE)){
-          tags.addAll(tagSpecification.getTags().stream().map(tag -> software.amazon.awssdk.services.ec2.model.Tag.builder()
-                  .key(tag.getKey())
-                  .value(tag.getValue())
-                  .build()).collect(Collectors.toList()));
-        } else{
-          crTagSpecs.add(software.amazon.awssdk.services.ec2.model.TagSpecification.builder()
-                  .resourceType(tagSpecification.getResourceType())
-                  .tags(tagSpecification.getTags().stream().map(tag -> software.amazon.awssdk.services.ec2.model.Tag.builder()
-                          .key(tag.getKey())
-                          .value(tag.getValue())
-                          .build()).collect(Collectors.toList()))
-                  .build());
-        }
-      }
-    }
-    if(tags.isEmpty()){
-      return crTagSpecs;
-    }
-
-    //Add resource tags
-    crTagSpecs.add(software.amazon.awssdk.services.ec2.model.TagSpecification.builder()
-            .resourceType(ResourceType.CAPACITY_RESERVATION)
-            .tags(tags)
-            .build());
-
-    logger.log("TagSpecifications to add : " + crTagSpecs);
+    final List<software.amazon.awssdk.services.ec2.model.TagSpecification> crTagSpecs = TagMerger.merge(
+            handlerRequest.getDesiredResourceTags(), handlerRequest.getSystemTags(), model.getTagSpecifications());
+    Log.debug(logger, "TagSpecifications to add", "tagSpecifications", crTagSpecs);
     return crTagSpecs;
   }
+
 }
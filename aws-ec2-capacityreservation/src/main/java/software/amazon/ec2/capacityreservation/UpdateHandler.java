@@ -2,6 +2,7 @@ package software.amazon.ec2.capacityreservation;
 
 import software.amazon.awssdk.awscore.exception.AwsServiceException;
 import software.amazon.awssdk.services.ec2.Ec2Client;
+import software.amazon.awssdk.services.ec2.model.CapacityReservation;
 import software.amazon.awssdk.services.ec2.model.ModifyCapacityReservationResponse;
 import software.amazon.cloudformation.proxy.AmazonWebServicesClientProxy;
 import software.amazon.cloudformation.proxy.Logger;
@@ -9,12 +10,23 @@ import software.amazon.cloudformation.proxy.ProgressEvent;
 import software.amazon.cloudformation.proxy.ProxyClient;
 import software.amazon.cloudformation.proxy.ResourceHandlerRequest;
 
+import java.util.List;
+import java.util.concurrent.atomic.AtomicReference;
+
 /**
  * https://awscli.amazonaws.com/v2/documentation/api/latest/reference/ec2/modify-capacity-reservation.html
  */
 public class UpdateHandler extends BaseHandlerStd {
     private Logger logger;
 
+    public UpdateHandler() {
+        super();
+    }
+
+    UpdateHandler(final HandlerSettings settings) {
+        super(settings);
+    }
+
     protected ProgressEvent<ResourceModel, CallbackContext> handleRequest(
             final AmazonWebServicesClientProxy proxy,
             final ResourceHandlerRequest<ResourceModel> request,
@@ -23,46 +35,89 @@ public class UpdateHandler extends BaseHandlerStd {
             final Logger logger) {
 
         this.logger = logger;
+        final List<String> problems = ModelValidator.validateForUpdate(request.getDesiredResourceState());
+        if (!problems.isEmpty()) {
+            return rejectInvalid(problems, request.getDesiredResourceState(), callbackContext, logger);
+        }
 
+        final AtomicReference<CheckedReservation> checked = new AtomicReference<>();
         return ProgressEvent.progress(request.getDesiredResourceState(), callbackContext)
 
-                // STEP 1 [check if resource already exists]
-                .then(progress ->
-                        proxy.initiate("AWS-EC2-CapacityReservation::Update::PreUpdateCheck", proxyClient, progress.getResourceModel(), progress.getCallbackContext())
-
+                // STEP 1 [check if resource already exists, the described reservation is kept to build the returned model]
+                .then(progress -> step("AWS-EC2-CapacityReservation::Update::PreUpdateCheck", progress, callGraph ->
+                        proxy.initiate(callGraph, proxyClient, progress.getResourceModel(), progress.getCallbackContext())
                                 .translateToServiceRequest((model) -> Translator.translateToReadRequest(model, logger))
                                 .makeServiceCall((describeCapacityReservationsRequest, ec2client) -> describeCapacityReservations(describeCapacityReservationsRequest, ec2client, logger))
-                                .handleError((awsRequest, exception, client, model, context) -> Translator.translateError(exception))
-                                .progress())
-                // STEP 2 [first update/stabilize progress chain - required for resource update]
-                .then(progress ->
-                        // STEP 2.0 [initialize a proxy context]
-                        proxy.initiate("AWS-EC2-CapacityReservation::Update", proxyClient, progress.getResourceModel(), progress.getCallbackContext())
-                                // STEP 2.1 [Construct body of modify request]
-                                .translateToServiceRequest((model) -> Translator.translateToUpdateRequest(model, logger))
-                                // STEP 2.2 [make an api call]
-                                .makeServiceCall((awsRequest, client) -> {
-                                    ModifyCapacityReservationResponse reservationResponse = null;
-                                    try {
-                                        reservationResponse = client.injectCredentialsAndInvokeV2(awsRequest, client.client()::modifyCapacityReservation);
-                                    } catch (final AwsServiceException e) {
-                                        logger.log(String.format("%s has thrown error in Update.", ResourceModel.TYPE_NAME));
-                                        throw e;
-                                    }
-                                    logger.log(String.format("%s has successfully been updated.", ResourceModel.TYPE_NAME));
-                                    return reservationResponse;
-                                })
-                                // STEP 2.3 [stabilize step is not necessarily required but typically involves describing the resource until it is in a certain status, though it can take many forms]
-                                .stabilize((awsRequest, awsResponse, client, model, context) -> {
-                                    //No stabilization code is required for update
-                                    final boolean stabilized = true;
-                                    logger.log(String.format("%s [%s] update has stabilized: %s", ResourceModel.TYPE_NAME, model.getPrimaryIdentifier(), stabilized));
-                                    return stabilized;
-                                })
-                                // STEP 2.4 [Handle errors]
-                                .handleError((modifyCapacityReservationRequest, exception, ec2client, model, context) -> Translator.translateError(exception))
-                                .progress())
-                // STEP 3 [describe call/chain to return the resource model]
-                .then(progress -> new ReadHandler().handleRequest(proxy, request, callbackContext, proxyClient, logger));
+                                .handleError((awsRequest, exception, client, model, context) -> retryOrFail(exception, model, context, logger))
+                                .done(describeResponse -> {
+                                    final CapacityReservation snapshot = describeResponse.capacityReservations().get(0);
+                                    checked.set(new CheckedReservation(snapshot,
+                                            ReservationDiff.compute(progress.getResourceModel(), snapshot, logger)));
+                                    return progress;
+                                })))
+
+                // STEP 2 [modify in a step of its own, so the pre-update check's latency and calls do not include it]
+                .then(progress -> checked.get() == null
+                        ? progress
+                        : update(proxy, proxyClient, request, progress, checked.get().getSnapshot(), checked.get().getDiff(), logger));
+    }
+
+    /**
+     * Reservation described by the pre-update check and the changes it needs, handed from STEP 1 to STEP 2.
+     * Unset when the check did not complete, e.g. it is being retried or the invocation budget ran out.
+     */
+    @lombok.Value
+    private static class CheckedReservation {
+        CapacityReservation snapshot;
+        ReservationDiff diff;
+    }
+
+    /**
+     * Modifies the reservation and returns the model built from the pre-update snapshot merged with the
+     * applied changes, which saves the describe call a read-after-write would cost.
+     * The modify call is skipped entirely when no mutable property differs from the live reservation.
+     */
+    private ProgressEvent<ResourceModel, CallbackContext> update(
+            final AmazonWebServicesClientProxy proxy,
+            final ProxyClient<Ec2Client> proxyClient,
+            final ResourceHandlerRequest<ResourceModel> request,
+            final ProgressEvent<ResourceModel, CallbackContext> progress,
+            final CapacityReservation snapshot,
+            final ReservationDiff diff,
+            final Logger logger) {
+        if (!diff.hasChanges()) {
+            Log.info(logger, "Capacity reservation already matches the desired state, skipping modify", "id", snapshot.capacityReservationId());
+            return ProgressEvent.defaultSuccessHandler(Translator.translateFromCapacityReservation(snapshot));
+        }
+        // STEP 2.0 [initialize a proxy context]
+        return step("AWS-EC2-CapacityReservation::Update", progress, callGraph -> proxy.initiate(callGraph, proxyClient, progress.getResourceModel(), progress.getCallbackContext())
+                // STEP 2.1 [Construct body of modify request]
+                .translateToServiceRequest((model) -> Translator.translateToUpdateRequest(model, diff, logger))
+                // STEP 2.2 [make an api call]
+                .makeServiceCall((awsRequest, client) -> {
+                    ModifyCapacityReservationResponse reservationResponse = null;
+                    try {
+                        reservationResponse = client.injectCredentialsAndInvokeV2(awsRequest, client.client()::modifyCapacityReservation);
+                    } catch (final AwsServiceException e) {
+                        Log.error(logger, "ModifyCapacityReservation failed", "id", awsRequest.capacityReservationId(), "error", e.getMessage());
+                        throw e;
+                    } finally {
+                        invalidateCachedReservation(request, awsRequest.capacityReservationId());
+                    }
+                    Log.info(logger, "Capacity reservation updated", "id", awsRequest.capacityReservationId());
+                    return reservationResponse;
+                })
+                // STEP 2.3 [stabilize step is not necessarily required but typically involves describing the resource until it is in a certain status, though it can take many forms]
+                .stabilize((awsRequest, awsResponse, client, model, context) -> {
+                    //No stabilization code is required for update
+                    final boolean stabilized = true;
+                    Log.debug(logger, "Update has stabilized", "id", model.getId(), "stabilized", stabilized);
+                    return stabilized;
+                })
+                // STEP 2.4 [Handle errors]
+                .handleError((modifyCapacityReservationRequest, exception, ec2client, model, context) -> retryOrFail(exception, model, context, logger))
+                // STEP 3 [return the resource model from the snapshot and the applied changes]
+                .done((modifyCapacityReservationRequest, modifyResponse, ec2client, model, context) ->
+                        ProgressEvent.defaultSuccessHandler(Translator.translateFromModifiedReservation(snapshot, modifyCapacityReservationRequest))));
     }
 }
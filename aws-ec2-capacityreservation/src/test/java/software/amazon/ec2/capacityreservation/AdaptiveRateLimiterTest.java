@@ -0,0 +1,116 @@
+package software.amazon.ec2.capacityreservation;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import software.amazon.awssdk.awscore.exception.AwsErrorDetails;
+import software.amazon.awssdk.awscore.exception.AwsServiceException;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.within;
+
+public class AdaptiveRateLimiterTest {
+
+    private final AtomicLong clock = new AtomicLong();
+
+    @Test
+    public void test_bucket_allows_burst_then_paces_calls() {
+        final AdaptiveRateLimiter limiter = new AdaptiveRateLimiter(2, 10, clock::get);
+
+        assertThat(limiter.reserve()).isZero();
+        assertThat(limiter.reserve()).isZero();
+        assertThat(limiter.reserve()).isEqualTo(TimeUnit.MILLISECONDS.toNanos(500));
+
+        clock.addAndGet(TimeUnit.SECONDS.toNanos(1));
+        assertThat(limiter.reserve()).isZero();
+    }
+
+    @Test
+    public void test_throttles_halve_the_rate_and_successes_raise_it() {
+        final AdaptiveRateLimiter limiter = new AdaptiveRateLimiter(8, 10, clock::get);
+
+        limiter.onThrottle();
+        assertThat(limiter.getRate()).isEqualTo(4.0);
+        // the bucket is emptied, so the next call waits for a token at the lower rate
+        assertThat(limiter.reserve()).isEqualTo(TimeUnit.MILLISECONDS.toNanos(250));
+
+        for (int i = 0; i < 10; i++) {
+            limiter.onSuccess();
+        }
+        assertThat(limiter.getRate()).isCloseTo(5.0, within(1e-9));
+
+        for (int i = 0; i < 10; i++) {
+            limiter.onThrottle();
+        }
+        assertThat(limiter.getRate()).isEqualTo(AdaptiveRateLimiter.MIN_RATE);
+        for (int i = 0; i < 1000; i++) {
+            limiter.onSuccess();
+        }
+        assertThat(limiter.getRate()).isEqualTo(10.0);
+    }
+
+    @Test
+    public void test_retry_backs_off_on_throttles_only() {
+        final List<Long> pauses = new ArrayList<>();
+        final ThrottlingRetry retry = new ThrottlingRetry(new AdaptiveRateLimiter(100, 100, clock::get), 3, 100, pauses::add);
+        final AtomicInteger calls = new AtomicInteger();
+
+        final String result = retry.call(() -> {
+            if (calls.incrementAndGet() < 3) {
+                throw throttled();
+            }
+            return "ok";
+        });
+
+        assertThat(result).isEqualTo("ok");
+        assertThat(calls.get()).isEqualTo(3);
+        // jittered exponential pauses: 50-100ms, then 100-200ms, plus the waits for tokens of the halved rate
+        assertThat(pauses).hasSizeGreaterThanOrEqualTo(2);
+
+        calls.set(0);
+        Assertions.assertThrows(AwsServiceException.class, () -> retry.call(() -> {
+            calls.incrementAndGet();
+            throw AwsServiceException.builder().statusCode(400).message("invalid").build();
+        }));
+        assertThat(calls.get()).isEqualTo(1);
+
+        calls.set(0);
+        final AwsServiceException exhausted = Assertions.assertThrows(AwsServiceException.class, () -> retry.call(() -> {
+            calls.incrementAndGet();
+            throw throttled();
+        }));
+        assertThat(exhausted.isThrottlingException()).isTrue();
+        assertThat(calls.get()).isEqualTo(3);
+    }
+
+    @Test
+    public void test_retry_is_not_paused_into_the_invocation_reserve() {
+        final List<Long> pauses = new ArrayList<>();
+        final ThrottlingRetry retry = new ThrottlingRetry(null, 3, 100, pauses::add);
+        final AtomicInteger calls = new AtomicInteger();
+
+        final InvocationDeadline deadline = InvocationDeadline.begin(1_000, 10_000, 5_000);
+        try {
+            Assertions.assertThrows(AwsServiceException.class, () -> retry.call(() -> {
+                calls.incrementAndGet();
+                throw throttled();
+            }));
+        } finally {
+            deadline.end();
+        }
+        assertThat(calls.get()).isEqualTo(1);
+        assertThat(pauses).isEmpty();
+    }
+
+    private static AwsServiceException throttled() {
+        return AwsServiceException.builder()
+                .statusCode(503)
+                .awsErrorDetails(AwsErrorDetails.builder().errorCode("RequestLimitExceeded").build())
+                .build();
+    }
+}
@@ -0,0 +1,62 @@
+package software.amazon.ec2.capacityreservation;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import software.amazon.awssdk.regions.Region;
+import software.amazon.awssdk.services.ec2.Ec2Client;
+
+import java.net.URI;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class ClientBuilderTest {
+
+    @AfterEach
+    public void tear_down() {
+        ClientBuilder.closeAll();
+    }
+
+    @Test
+    public void test_client_is_reused_for_same_region() {
+        final long buildsBefore = ClientBuilder.metrics().getBuilds();
+        final long hitsBefore = ClientBuilder.metrics().getHits();
+
+        final Ec2Client first = ClientBuilder.getClient(Region.US_EAST_1, null);
+        final Ec2Client second = ClientBuilder.getClient(Region.US_EAST_1, null);
+
+        assertThat(second).isSameAs(first);
+        assertThat(ClientBuilder.metrics().getBuilds() - buildsBefore).isEqualTo(1);
+        assertThat(ClientBuilder.metrics().getHits() - hitsBefore).isEqualTo(1);
+    }
+
+    @Test
+    public void test_clients_are_keyed_by_region_and_endpoint() {
+        final Ec2Client east = ClientBuilder.getClient(Region.US_EAST_1, null);
+        final Ec2Client west = ClientBuilder.getClient(Region.US_WEST_2, null);
+        final Ec2Client local = ClientBuilder.getClient(Region.US_EAST_1, URI.create("http://localhost:8080"));
+
+        assertThat(west).isNotSameAs(east);
+        assertThat(local).isNotSameAs(east);
+    }
+
+    @Test
+    public void test_clients_are_keyed_by_settings() {
+        final HandlerSettings settings = HandlerSettings.defaults();
+        final Ec2Client unlimited = ClientBuilder.getClient(Region.US_EAST_1, null, settings);
+        final Ec2Client limited = ClientBuilder.getClient(Region.US_EAST_1, null, HandlerSettings.builder().rateLimiterEnabled(true).build());
+
+        assertThat(ClientBuilder.getClient(Region.US_EAST_1, null, HandlerSettings.defaults())).isSameAs(unlimited);
+        assertThat(unlimited).isNotSameAs(limited);
+    }
+
+    @Test
+    public void test_close_all_evicts_clients() {
+        final Ec2Client first = ClientBuilder.getClient(Region.US_EAST_1, null);
+        final long closedBefore = ClientBuilder.metrics().getClosed();
+
+        ClientBuilder.closeAll();
+
+        assertThat(ClientBuilder.metrics().getClosed()).isGreaterThan(closedBefore);
+        assertThat(ClientBuilder.getClient(Region.US_EAST_1, null)).isNotSameAs(first);
+    }
+}
@@ -5,6 +5,7 @@ import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
+import software.amazon.awssdk.awscore.exception.AwsErrorDetails;
 import software.amazon.awssdk.awscore.exception.AwsServiceException;
 import software.amazon.awssdk.services.ec2.Ec2Client;
 import software.amazon.awssdk.services.ec2.model.CapacityReservation;
@@ -13,6 +14,7 @@ import software.amazon.awssdk.services.ec2.model.CreateCapacityReservationRespon
 import software.amazon.awssdk.services.ec2.model.DescribeCapacityReservationsRequest;
 import software.amazon.awssdk.services.ec2.model.DescribeCapacityReservationsResponse;
 import software.amazon.cloudformation.proxy.AmazonWebServicesClientProxy;
+import software.amazon.cloudformation.proxy.HandlerErrorCode;
 import software.amazon.cloudformation.proxy.OperationStatus;
 import software.amazon.cloudformation.proxy.ProgressEvent;
 import software.amazon.cloudformation.proxy.ProxyClient;
@@ -24,6 +26,9 @@ import java.util.Arrays;
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
 @ExtendWith(MockitoExtension.class)
@@ -49,12 +54,7 @@ public class CreateHandlerTest extends AbstractTestBase {
     public void simple_create_handle_request() {
         final CreateHandler handler = new CreateHandler();
 
-        final ResourceModel model = ResourceModel.builder()
-                .instanceType("t2.micro")
-                .availabilityZone("us-east-1a")
-                .instancePlatform("Windows")
-                .instanceCount(1)
-                .build();
+        final ResourceModel model = model().build();
 
         final ResourceHandlerRequest<ResourceModel> request = ResourceHandlerRequest.<ResourceModel>builder()
                 .desiredResourceState(model)
@@ -71,11 +71,6 @@ public class CreateHandlerTest extends AbstractTestBase {
                 .capacityReservation(cr).build();
 
         when(ec2Client.createCapacityReservation(any(CreateCapacityReservationRequest.class))).thenReturn(createResponse);
-        final DescribeCapacityReservationsResponse reservationsResponse = DescribeCapacityReservationsResponse.builder()
-                .capacityReservations(cr)
-                .build();
-
-        when(ec2Client.describeCapacityReservations(any(DescribeCapacityReservationsRequest.class))).thenReturn(reservationsResponse);
 
         final ProgressEvent<ResourceModel, CallbackContext> response = handler.handleRequest(proxy, request, new CallbackContext(), proxyClient, logger);
 
@@ -84,17 +79,14 @@ public class CreateHandlerTest extends AbstractTestBase {
         assertThat(cr.capacityReservationId()).isEqualTo(response.getResourceModel().getId());
         assertThat(cr.availabilityZone()).isEqualTo(response.getResourceModel().getAvailabilityZone());
         assertThat(cr.instanceType()).isEqualTo(response.getResourceModel().getInstanceType());
+        verify(ec2Client, never()).describeCapacityReservations(any(DescribeCapacityReservationsRequest.class));
     }
 
     @Test
     public void create_CR_with_end_date() {
         final CreateHandler handler = new CreateHandler();
 
-        final ResourceModel model = ResourceModel.builder()
-                .instanceType("t2.micro")
-                .availabilityZone("us-east-1a")
-                .instancePlatform("Windows")
-                .instanceCount(1)
+        final ResourceModel model = model()
                 .endDateType("limited")
                 .endDate("2124-08-31T23:59:59Z")
                 .build();
@@ -114,11 +106,6 @@ public class CreateHandlerTest extends AbstractTestBase {
                 .capacityReservation(cr).build();
 
         when(ec2Client.createCapacityReservation(any(CreateCapacityReservationRequest.class))).thenReturn(createResponse);
-        final DescribeCapacityReservationsResponse reservationsResponse = DescribeCapacityReservationsResponse.builder()
-                .capacityReservations(cr)
-                .build();
-
-        when(ec2Client.describeCapacityReservations(any(DescribeCapacityReservationsRequest.class))).thenReturn(reservationsResponse);
 
         final ProgressEvent<ResourceModel, CallbackContext> response = handler.handleRequest(proxy, request, new CallbackContext(), proxyClient, logger);
 
@@ -133,11 +120,7 @@ public class CreateHandlerTest extends AbstractTestBase {
     @Test
     public void create_CR_with_end_date_backwards_compatible() {
         final CreateHandler handler = new CreateHandler();
-        final ResourceModel model = ResourceModel.builder()
-                .instanceType("t2.micro")
-                .availabilityZone("us-east-1a")
-                .instancePlatform("Windows")
-                .instanceCount(1)
+        final ResourceModel model = model()
                 .endDateType("limited")
                 .endDate("Fri Jan 01 00:00:00 GMT 2100")
                 .build();
@@ -157,11 +140,6 @@ public class CreateHandlerTest extends AbstractTestBase {
                 .capacityReservation(cr).build();
 
         when(ec2Client.createCapacityReservation(any(CreateCapacityReservationRequest.class))).thenReturn(createResponse);
-        final DescribeCapacityReservationsResponse reservationsResponse = DescribeCapacityReservationsResponse.builder()
-                .capacityReservations(cr)
-                .build();
-
-        when(ec2Client.describeCapacityReservations(any(DescribeCapacityReservationsRequest.class))).thenReturn(reservationsResponse);
 
         final ProgressEvent<ResourceModel, CallbackContext> response = handler.handleRequest(proxy, request, new CallbackContext(), proxyClient, logger);
 
@@ -177,11 +155,7 @@ public class CreateHandlerTest extends AbstractTestBase {
     public void create_handle_request_with_Tags() {
         final CreateHandler handler = new CreateHandler();
 
-        final ResourceModel model = ResourceModel.builder()
-                .instanceType("t2.micro")
-                .availabilityZone("us-east-1a")
-                .instancePlatform("Windows")
-                .instanceCount(1)
+        final ResourceModel model = model()
                 .tagSpecifications(Arrays.asList(TagSpecification.builder()
                                 .tags(Arrays.asList(Tag.builder()
                                         .key("TestKey")
@@ -211,11 +185,6 @@ public class CreateHandlerTest extends AbstractTestBase {
                 .capacityReservation(cr).build();
 
         when(ec2Client.createCapacityReservation(any(CreateCapacityReservationRequest.class))).thenReturn(createResponse);
-        final DescribeCapacityReservationsResponse reservationsResponse = DescribeCapacityReservationsResponse.builder()
-                .capacityReservations(cr)
-                .build();
-
-        when(ec2Client.describeCapacityReservations(any(DescribeCapacityReservationsRequest.class))).thenReturn(reservationsResponse);
 
         final ProgressEvent<ResourceModel, CallbackContext> response = handler.handleRequest(proxy, request, new CallbackContext(), proxyClient, logger);
 
@@ -226,15 +195,36 @@ public class CreateHandlerTest extends AbstractTestBase {
         assertThat(cr.instanceType()).isEqualTo(response.getResourceModel().getInstanceType());
     }
 
+    @Test
+    public void create_rejects_reserved_tag_keys_before_calling_ec2() {
+        final CreateHandler handler = new CreateHandler();
+
+        final ResourceModel model = model()
+                .tagSpecifications(Arrays.asList(TagSpecification.builder()
+                        .tags(Arrays.asList(Tag.builder()
+                                .key("aws:owner")
+                                .value("TestValue").build()
+                        ))
+                        .resourceType("capacity-reservation").build()))
+                .build();
+
+        final ResourceHandlerRequest<ResourceModel> request = ResourceHandlerRequest.<ResourceModel>builder()
+                .desiredResourceState(model)
+                .build();
+
+        final ProgressEvent<ResourceModel, CallbackContext> response = handler.handleRequest(proxy, request, new CallbackContext(), proxyClient, logger);
+
+        assertThat(response.getStatus()).isEqualTo(OperationStatus.FAILED);
+        assertThat(response.getErrorCode()).isEqualTo(HandlerErrorCode.InvalidRequest);
+        assertThat(response.getMessage()).isEqualTo("Tag key [aws:owner] on capacity-reservation uses the reserved prefix aws:");
+        verify(ec2Client, never()).createCapacityReservation(any(CreateCapacityReservationRequest.class));
+    }
+
     @Test
     public void handle_when_ODCR_Throws_Exception() {
         final CreateHandler handler = new CreateHandler();
 
-        final ResourceModel model = ResourceModel.builder()
-                .instanceType("t2.micro")
-                .availabilityZone("us-east-1a")
-                .instancePlatform("Windows")
-                .instanceCount(1)
+        final ResourceModel model = model()
                 .tagSpecifications(Arrays.asList(TagSpecification.builder()
                         .tags(Arrays.asList(Tag.builder()
                                 .key("TestKey")
@@ -279,4 +269,297 @@ public class CreateHandlerTest extends AbstractTestBase {
         assertThat(response.getCallbackDelaySeconds()).isEqualTo(0);
         assertThat(response.getResourceModels()).isNull();
     }
+
+    @Test
+    public void create_rejects_invalid_model_before_calling_ec2() {
+        final CreateHandler handler = new CreateHandler(HandlerSettings.defaults());
+
+        final ResourceModel model = model()
+                .endDateType("limited")
+                .endDate("end of next month")
+                .build();
+
+        final ResourceHandlerRequest<ResourceModel> request = ResourceHandlerRequest.<ResourceModel>builder()
+                .desiredResourceState(model)
+                .build();
+
+        final ProgressEvent<ResourceModel, CallbackContext> response = handler.handleRequest(proxy, request, new CallbackContext(), proxyClient, logger);
+
+        assertThat(response.getStatus()).isEqualTo(OperationStatus.FAILED);
+        assertThat(response.getErrorCode()).isEqualTo(HandlerErrorCode.InvalidRequest);
+        assertThat(response.getMessage()).startsWith("EndDate end of next month is not a valid date");
+        verify(ec2Client, never()).createCapacityReservation(any(CreateCapacityReservationRequest.class));
+    }
+
+    @Test
+    public void create_pending_CR_returns_in_progress_with_callback_delay() {
+        final CreateHandler handler = new CreateHandler(HandlerSettings.defaults());
+
+        final ResourceModel model = model().build();
+
+        final ResourceHandlerRequest<ResourceModel> request = ResourceHandlerRequest.<ResourceModel>builder()
+                .desiredResourceState(model)
+                .build();
+
+        final CapacityReservation pending = CapacityReservation.builder()
+                .capacityReservationId("cr-121")
+                .availabilityZone("us-east-1a")
+                .state("pending")
+                .build();
+
+        when(ec2Client.createCapacityReservation(any(CreateCapacityReservationRequest.class)))
+                .thenReturn(CreateCapacityReservationResponse.builder().capacityReservation(pending).build());
+
+        final CallbackContext context = new CallbackContext();
+        final ProgressEvent<ResourceModel, CallbackContext> response = handler.handleRequest(proxy, request, context, proxyClient, logger);
+
+        assertThat(response.getStatus()).isEqualTo(OperationStatus.IN_PROGRESS);
+        assertThat(response.getCallbackDelaySeconds()).isGreaterThan(0);
+        // the first describe waits for the re-invocation, right after the create it may not see the reservation
+        verify(ec2Client, never()).describeCapacityReservations(any(DescribeCapacityReservationsRequest.class));
+        assertThat(response.getResourceModel().getId()).isEqualTo("cr-121");
+        assertThat(response.getCallbackContext().getStabilizationAttempts()).isEqualTo(1);
+        assertThat(response.getCallbackContext().getStabilizationDeadline())
+                .isGreaterThan(response.getCallbackContext().getStabilizationStartedAt());
+    }
+
+    @Test
+    public void create_pending_CR_succeeds_on_re_invocation_once_active() {
+        final CreateHandler handler = new CreateHandler(HandlerSettings.defaults());
+
+        final ResourceModel model = model().build();
+
+        final ResourceHandlerRequest<ResourceModel> request = ResourceHandlerRequest.<ResourceModel>builder()
+                .desiredResourceState(model)
+                .build();
+
+        final CapacityReservation pending = CapacityReservation.builder()
+                .capacityReservationId("cr-121")
+                .availabilityZone("us-east-1a")
+                .state("pending")
+                .build();
+        final CapacityReservation active = pending.toBuilder().state("active").build();
+
+        when(ec2Client.createCapacityReservation(any(CreateCapacityReservationRequest.class)))
+                .thenReturn(CreateCapacityReservationResponse.builder().capacityReservation(pending).build());
+        when(ec2Client.describeCapacityReservations(any(DescribeCapacityReservationsRequest.class)))
+                .thenReturn(DescribeCapacityReservationsResponse.builder().capacityReservations(active).build());
+
+        final CallbackContext context = new CallbackContext();
+        final ProgressEvent<ResourceModel, CallbackContext> first = handler.handleRequest(proxy, request, context, proxyClient, logger);
+        assertThat(first.getStatus()).isEqualTo(OperationStatus.IN_PROGRESS);
+
+        final ProgressEvent<ResourceModel, CallbackContext> second = handler.handleRequest(proxy, request, first.getCallbackContext(), proxyClient, logger);
+
+        assertThat(second.getStatus()).isEqualTo(OperationStatus.SUCCESS);
+        assertThat(second.getResourceModel().getId()).isEqualTo("cr-121");
+        verify(ec2Client, times(1)).describeCapacityReservations(any(DescribeCapacityReservationsRequest.class));
+    }
+
+    @Test
+    public void create_treats_reservation_not_visible_yet_as_pending() {
+        final CreateHandler handler = new CreateHandler(HandlerSettings.defaults());
+
+        final ResourceHandlerRequest<ResourceModel> request = ResourceHandlerRequest.<ResourceModel>builder()
+                .desiredResourceState(model().build())
+                .build();
+
+        when(ec2Client.describeCapacityReservations(any(DescribeCapacityReservationsRequest.class)))
+                .thenThrow(AwsServiceException.builder()
+                        .statusCode(400)
+                        .awsErrorDetails(AwsErrorDetails.builder().errorCode("InvalidCapacityReservationId.NotFound").build())
+                        .build())
+                .thenReturn(DescribeCapacityReservationsResponse.builder().build());
+
+        final CallbackContext context = new CallbackContext();
+        context.setCapacityReservationId("cr-121");
+        context.setCreatePhase(CallbackContext.CreatePhase.STABILIZING);
+
+        final ProgressEvent<ResourceModel, CallbackContext> notFound = handler.handleRequest(proxy, request, context, proxyClient, logger);
+        assertThat(notFound.getStatus()).isEqualTo(OperationStatus.IN_PROGRESS);
+        assertThat(notFound.getCallbackDelaySeconds()).isGreaterThan(0);
+
+        final ProgressEvent<ResourceModel, CallbackContext> empty = handler.handleRequest(proxy, request, context, proxyClient, logger);
+        assertThat(empty.getStatus()).isEqualTo(OperationStatus.IN_PROGRESS);
+        assertThat(context.getStabilizationAttempts()).isEqualTo(2);
+        verify(ec2Client, never()).createCapacityReservation(any(CreateCapacityReservationRequest.class));
+    }
+
+    @Test
+    public void create_resumes_from_recorded_reservation_without_calling_create() {
+        final CreateHandler handler = new CreateHandler(HandlerSettings.defaults());
+
+        final ResourceModel model = model().build();
+
+        final ResourceHandlerRequest<ResourceModel> request = ResourceHandlerRequest.<ResourceModel>builder()
+                .desiredResourceState(model)
+                .clientRequestToken("token")
+                .build();
+
+        final CapacityReservation active = CapacityReservation.builder()
+                .capacityReservationId("cr-121")
+                .availabilityZone("us-east-1a")
+                .state("active")
+                .build();
+
+        when(ec2Client.describeCapacityReservations(any(DescribeCapacityReservationsRequest.class)))
+                .thenReturn(DescribeCapacityReservationsResponse.builder().capacityReservations(active).build());
+
+        final CallbackContext context = new CallbackContext();
+        context.setCapacityReservationId("cr-121");
+        context.setCreatePhase(CallbackContext.CreatePhase.STABILIZING);
+
+        final ProgressEvent<ResourceModel, CallbackContext> response = handler.handleRequest(proxy, request, context, proxyClient, logger);
+
+        assertThat(response.getStatus()).isEqualTo(OperationStatus.SUCCESS);
+        assertThat(response.getResourceModel().getId()).isEqualTo("cr-121");
+        verify(ec2Client, never()).createCapacityReservation(any(CreateCapacityReservationRequest.class));
+    }
+
+    @Test
+    public void create_resume_does_not_validate_the_model_again() {
+        final CreateHandler handler = new CreateHandler(HandlerSettings.defaults());
+
+        final ResourceModel model = model()
+                .endDateType("limited")
+                .build();
+
+        final ResourceHandlerRequest<ResourceModel> request = ResourceHandlerRequest.<ResourceModel>builder()
+                .desiredResourceState(model)
+                .build();
+
+        final CapacityReservation active = CapacityReservation.builder()
+                .capacityReservationId("cr-121")
+                .state("active")
+                .build();
+
+        when(ec2Client.describeCapacityReservations(any(DescribeCapacityReservationsRequest.class)))
+                .thenReturn(DescribeCapacityReservationsResponse.builder().capacityReservations(active).build());
+
+        final CallbackContext context = new CallbackContext();
+        context.setCapacityReservationId("cr-121");
+        context.setCreatePhase(CallbackContext.CreatePhase.STABILIZING);
+
+        final ProgressEvent<ResourceModel, CallbackContext> response = handler.handleRequest(proxy, request, context, proxyClient, logger);
+
+        assertThat(response.getStatus()).isEqualTo(OperationStatus.SUCCESS);
+        assertThat(response.getResourceModel().getId()).isEqualTo("cr-121");
+    }
+
+    @Test
+    public void create_records_reservation_and_phase_while_pending() {
+        final CreateHandler handler = new CreateHandler(HandlerSettings.defaults());
+
+        final ResourceModel model = model().build();
+
+        final ResourceHandlerRequest<ResourceModel> request = ResourceHandlerRequest.<ResourceModel>builder()
+                .desiredResourceState(model)
+                .build();
+
+        final CapacityReservation pending = CapacityReservation.builder()
+                .capacityReservationId("cr-121")
+                .state("pending")
+                .build();
+
+        when(ec2Client.createCapacityReservation(any(CreateCapacityReservationRequest.class)))
+                .thenReturn(CreateCapacityReservationResponse.builder().capacityReservation(pending).build());
+
+        final CallbackContext context = new CallbackContext();
+        final ProgressEvent<ResourceModel, CallbackContext> response = handler.handleRequest(proxy, request, context, proxyClient, logger);
+
+        assertThat(response.getStatus()).isEqualTo(OperationStatus.IN_PROGRESS);
+        assertThat(context.getCapacityReservationId()).isEqualTo("cr-121");
+        assertThat(context.getCreatePhase()).isEqualTo(CallbackContext.CreatePhase.STABILIZING);
+    }
+
+    @Test
+    public void create_fails_when_stabilization_deadline_passed() {
+        final CreateHandler handler = new CreateHandler(HandlerSettings.defaults());
+
+        final ResourceModel model = model().build();
+
+        final ResourceHandlerRequest<ResourceModel> request = ResourceHandlerRequest.<ResourceModel>builder()
+                .desiredResourceState(model)
+                .build();
+
+        final CapacityReservation pending = CapacityReservation.builder()
+                .capacityReservationId("cr-121")
+                .state("pending")
+                .build();
+
+        when(ec2Client.createCapacityReservation(any(CreateCapacityReservationRequest.class)))
+                .thenReturn(CreateCapacityReservationResponse.builder().capacityReservation(pending).build());
+
+        final CallbackContext context = new CallbackContext();
+        context.setStabilizationAttempts(10);
+        context.setStabilizationStartedAt(System.currentTimeMillis() - 3_600_000L);
+        context.setStabilizationDeadline(System.currentTimeMillis() - 1_000L);
+
+        final ProgressEvent<ResourceModel, CallbackContext> response = handler.handleRequest(proxy, request, context, proxyClient, logger);
+
+        assertThat(response.getStatus()).isEqualTo(OperationStatus.FAILED);
+        assertThat(response.getErrorCode()).isEqualTo(HandlerErrorCode.NotStabilized);
+    }
+
+    @Test
+    public void create_fails_when_CR_enters_failed_state() {
+        final CreateHandler handler = new CreateHandler(HandlerSettings.defaults());
+
+        final ResourceModel model = model().build();
+
+        final ResourceHandlerRequest<ResourceModel> request = ResourceHandlerRequest.<ResourceModel>builder()
+                .desiredResourceState(model)
+                .build();
+
+        final CapacityReservation failed = CapacityReservation.builder()
+                .capacityReservationId("cr-121")
+                .state("failed")
+                .build();
+
+        when(ec2Client.createCapacityReservation(any(CreateCapacityReservationRequest.class)))
+                .thenReturn(CreateCapacityReservationResponse.builder().capacityReservation(failed).build());
+
+        final ProgressEvent<ResourceModel, CallbackContext> response = handler.handleRequest(proxy, request, new CallbackContext(), proxyClient, logger);
+
+        assertThat(response.getStatus()).isEqualTo(OperationStatus.FAILED);
+        assertThat(response.getErrorCode()).isEqualTo(HandlerErrorCode.NotStabilized);
+    }
+
+    @Test
+    public void create_retries_insufficient_capacity_then_fails() {
+        final CreateHandler handler = new CreateHandler(HandlerSettings.builder().transientRetryMaxAttempts(1).build());
+
+        final ResourceModel model = model().build();
+
+        final ResourceHandlerRequest<ResourceModel> request = ResourceHandlerRequest.<ResourceModel>builder()
+                .desiredResourceState(model)
+                .build();
+
+        when(ec2Client.createCapacityReservation(any(CreateCapacityReservationRequest.class)))
+                .thenThrow(AwsServiceException.builder()
+                        .statusCode(500)
+                        .awsErrorDetails(AwsErrorDetails.builder().errorCode("InsufficientInstanceCapacity").build())
+                        .build());
+
+        final CallbackContext context = new CallbackContext();
+        final ProgressEvent<ResourceModel, CallbackContext> retry = handler.handleRequest(proxy, request, context, proxyClient, logger);
+
+        assertThat(retry.getStatus()).isEqualTo(OperationStatus.IN_PROGRESS);
+        assertThat(retry.getCallbackDelaySeconds()).isBetween(15, 30);
+        assertThat(context.getTransientRetries()).isEqualTo(1);
+
+        final ProgressEvent<ResourceModel, CallbackContext> failed = handler.handleRequest(proxy, request, context, proxyClient, logger);
+
+        assertThat(failed.getStatus()).isEqualTo(OperationStatus.FAILED);
+        assertThat(failed.getErrorCode()).isEqualTo(HandlerErrorCode.GeneralServiceException);
+        verify(ec2Client, times(2)).createCapacityReservation(any(CreateCapacityReservationRequest.class));
+    }
+
+    private static ResourceModel.ResourceModelBuilder model() {
+        return ResourceModel.builder()
+                .instanceType("t2.micro")
+                .availabilityZone("us-east-1a")
+                .instancePlatform("Windows")
+                .instanceCount(1);
+    }
 }
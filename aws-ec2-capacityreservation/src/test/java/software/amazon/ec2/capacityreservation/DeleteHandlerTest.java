@@ -7,6 +7,7 @@ import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
+import software.amazon.awssdk.awscore.exception.AwsErrorDetails;
 import software.amazon.awssdk.awscore.exception.AwsServiceException;
 import software.amazon.awssdk.services.ec2.Ec2Client;
 import software.amazon.awssdk.services.ec2.model.CancelCapacityReservationRequest;
@@ -16,6 +17,7 @@ import software.amazon.awssdk.services.ec2.model.DescribeCapacityReservationsReq
 import software.amazon.awssdk.services.ec2.model.DescribeCapacityReservationsResponse;
 import software.amazon.cloudformation.exceptions.CfnNotFoundException;
 import software.amazon.cloudformation.proxy.AmazonWebServicesClientProxy;
+import software.amazon.cloudformation.proxy.HandlerErrorCode;
 import software.amazon.cloudformation.proxy.OperationStatus;
 import software.amazon.cloudformation.proxy.ProgressEvent;
 import software.amazon.cloudformation.proxy.ProxyClient;
@@ -27,6 +29,8 @@ import static org.assertj.core.api.Assertions.assertThat;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.Mockito.atLeastOnce;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.verifyNoMoreInteractions;
 import static org.mockito.Mockito.when;
@@ -92,6 +96,31 @@ public class DeleteHandlerTest extends AbstractTestBase {
         assertThat(response.getStatus()).isEqualTo(OperationStatus.SUCCESS);
     }
 
+    @Test
+    public void test_fast_path_delete_skips_describe() {
+        final DeleteHandler handler = new DeleteHandler(HandlerSettings.builder().deleteFastPathEnabled(true).build());
+
+        final ResourceModel model = ResourceModel.builder()
+                .id("cr-121")
+                .build();
+
+        final ResourceHandlerRequest<ResourceModel> request = ResourceHandlerRequest.<ResourceModel>builder()
+                .desiredResourceState(model)
+                .build();
+
+        final CancelCapacityReservationResponse cancelResponse = CancelCapacityReservationResponse.builder()
+                .returnValue(true)
+                .build();
+
+        when(ec2Client.cancelCapacityReservation(any(CancelCapacityReservationRequest.class))).thenReturn(cancelResponse);
+
+        final ProgressEvent<ResourceModel, CallbackContext> response = handler.handleRequest(proxy, request, new CallbackContext(), proxyClient, logger);
+
+        assertThat(response).isNotNull();
+        assertThat(response.getStatus()).isEqualTo(OperationStatus.SUCCESS);
+        verify(ec2Client, never()).describeCapacityReservations(any(DescribeCapacityReservationsRequest.class));
+    }
+
     @Test
     public void test_cancelled_cr_delete() {
         final DeleteHandler handler = new DeleteHandler();
@@ -123,6 +152,39 @@ public class DeleteHandlerTest extends AbstractTestBase {
         });
     }
 
+    @Test
+    public void test_fast_path_cancelled_cr_delete() {
+        final DeleteHandler handler = new DeleteHandler(HandlerSettings.builder().deleteFastPathEnabled(true).build());
+
+        final ResourceModel model = ResourceModel.builder()
+                .id("cr-121")
+                .build();
+
+        final ResourceHandlerRequest<ResourceModel> request = ResourceHandlerRequest.<ResourceModel>builder()
+                .desiredResourceState(model)
+                .build();
+
+        final CapacityReservation cr = CapacityReservation.builder()
+                .capacityReservationId("cr-121")
+                .availabilityZone("us-east-1a")
+                .instancePlatform("Windows")
+                .state("cancelled")
+                .totalInstanceCount(1)
+                .build();
+
+        final DescribeCapacityReservationsResponse describeResponse = DescribeCapacityReservationsResponse.builder()
+                .capacityReservations(cr)
+                .build();
+
+        when(ec2Client.describeCapacityReservations(any(DescribeCapacityReservationsRequest.class))).thenReturn(describeResponse);
+        when(ec2Client.cancelCapacityReservation(any(CancelCapacityReservationRequest.class)))
+                .thenThrow(error(400, "IncorrectCapacityReservationState"));
+
+        Assertions.assertThrows(CfnNotFoundException.class, () -> {
+            handler.handleRequest(proxy, request, new CallbackContext(), proxyClient, logger);
+        });
+    }
+
     @Test
     public void test_delete_without_crId() {
         final DeleteHandler handler = new DeleteHandler();
@@ -199,5 +261,155 @@ public class DeleteHandlerTest extends AbstractTestBase {
         assertThat(response.getStatus()).isEqualTo(OperationStatus.FAILED);
     }
 
+    @Test
+    public void test_unknown_id_is_not_found_without_describe() {
+        final DeleteHandler handler = new DeleteHandler(HandlerSettings.builder().deleteFastPathEnabled(true).build());
+
+        final ResourceModel model = ResourceModel.builder()
+                .id("cr-121")
+                .build();
+
+        final ResourceHandlerRequest<ResourceModel> request = ResourceHandlerRequest.<ResourceModel>builder()
+                .desiredResourceState(model)
+                .build();
 
+        when(ec2Client.cancelCapacityReservation(any(CancelCapacityReservationRequest.class)))
+                .thenThrow(error(400, "InvalidCapacityReservationId.NotFound"));
+
+        Assertions.assertThrows(CfnNotFoundException.class, () ->
+                handler.handleRequest(proxy, request, new CallbackContext(), proxyClient, logger));
+        verify(ec2Client, never()).describeCapacityReservations(any(DescribeCapacityReservationsRequest.class));
+    }
+
+    @Test
+    public void test_state_conflict_of_live_reservation_is_retried() {
+        final DeleteHandler handler = new DeleteHandler(HandlerSettings.builder().deleteFastPathEnabled(true).build());
+
+        final ResourceModel model = ResourceModel.builder()
+                .id("cr-121")
+                .build();
+
+        final ResourceHandlerRequest<ResourceModel> request = ResourceHandlerRequest.<ResourceModel>builder()
+                .desiredResourceState(model)
+                .build();
+
+        final CapacityReservation cr = CapacityReservation.builder()
+                .capacityReservationId("cr-121")
+                .state("pending")
+                .build();
+
+        when(ec2Client.cancelCapacityReservation(any(CancelCapacityReservationRequest.class)))
+                .thenThrow(error(400, "IncorrectCapacityReservationState"));
+        when(ec2Client.describeCapacityReservations(any(DescribeCapacityReservationsRequest.class)))
+                .thenReturn(DescribeCapacityReservationsResponse.builder().capacityReservations(cr).build());
+
+        final ProgressEvent<ResourceModel, CallbackContext> response = handler.handleRequest(proxy, request, new CallbackContext(), proxyClient, logger);
+
+        assertThat(response.getStatus()).isEqualTo(OperationStatus.IN_PROGRESS);
+        assertThat(response.getCallbackDelaySeconds()).isPositive();
+    }
+
+    @Test
+    public void test_delete_stabilization_waits_for_cancelled_state() {
+        final DeleteHandler handler = new DeleteHandler(HandlerSettings.builder().deleteFastPathEnabled(true).deleteStabilizationEnabled(true).build());
+
+        final ResourceModel model = ResourceModel.builder()
+                .id("cr-121")
+                .build();
+
+        final ResourceHandlerRequest<ResourceModel> request = ResourceHandlerRequest.<ResourceModel>builder()
+                .desiredResourceState(model)
+                .build();
+
+        final CapacityReservation active = CapacityReservation.builder()
+                .capacityReservationId("cr-121")
+                .state("active")
+                .build();
+        final CapacityReservation cancelled = active.toBuilder().state("cancelled").build();
+
+        when(ec2Client.cancelCapacityReservation(any(CancelCapacityReservationRequest.class)))
+                .thenReturn(CancelCapacityReservationResponse.builder().returnValue(true).build());
+        when(ec2Client.describeCapacityReservations(any(DescribeCapacityReservationsRequest.class)))
+                .thenReturn(DescribeCapacityReservationsResponse.builder().capacityReservations(active).build(),
+                        DescribeCapacityReservationsResponse.builder().capacityReservations(cancelled).build());
+
+        final ProgressEvent<ResourceModel, CallbackContext> first = handler.handleRequest(proxy, request, new CallbackContext(), proxyClient, logger);
+
+        assertThat(first.getStatus()).isEqualTo(OperationStatus.IN_PROGRESS);
+        assertThat(first.getCallbackDelaySeconds()).isPositive();
+        assertThat(first.getCallbackContext().getStabilizationAttempts()).isEqualTo(1);
+
+        final ProgressEvent<ResourceModel, CallbackContext> second = handler.handleRequest(proxy, request, first.getCallbackContext(), proxyClient, logger);
+
+        assertThat(second.getStatus()).isEqualTo(OperationStatus.SUCCESS);
+        verify(ec2Client, times(1)).cancelCapacityReservation(any(CancelCapacityReservationRequest.class));
+        verify(ec2Client, times(2)).describeCapacityReservations(any(DescribeCapacityReservationsRequest.class));
+    }
+
+    @Test
+    public void test_delete_stabilization_accepts_expired_and_fails_on_failed_state() {
+        final DeleteHandler handler = new DeleteHandler(HandlerSettings.builder().deleteFastPathEnabled(true).deleteStabilizationEnabled(true).build());
+
+        final ResourceModel model = ResourceModel.builder()
+                .id("cr-121")
+                .build();
+
+        final ResourceHandlerRequest<ResourceModel> request = ResourceHandlerRequest.<ResourceModel>builder()
+                .desiredResourceState(model)
+                .build();
+
+        final CapacityReservation expired = CapacityReservation.builder()
+                .capacityReservationId("cr-121")
+                .state("expired")
+                .build();
+        final CapacityReservation failed = expired.toBuilder().state("failed").build();
+
+        when(ec2Client.cancelCapacityReservation(any(CancelCapacityReservationRequest.class)))
+                .thenReturn(CancelCapacityReservationResponse.builder().returnValue(true).build());
+        when(ec2Client.describeCapacityReservations(any(DescribeCapacityReservationsRequest.class)))
+                .thenReturn(DescribeCapacityReservationsResponse.builder().capacityReservations(expired).build(),
+                        DescribeCapacityReservationsResponse.builder().capacityReservations(failed).build());
+
+        final ProgressEvent<ResourceModel, CallbackContext> deleted = handler.handleRequest(proxy, request, new CallbackContext(), proxyClient, logger);
+
+        assertThat(deleted.getStatus()).isEqualTo(OperationStatus.SUCCESS);
+
+        final ProgressEvent<ResourceModel, CallbackContext> rejected = handler.handleRequest(proxy, request, new CallbackContext(), proxyClient, logger);
+
+        assertThat(rejected.getStatus()).isEqualTo(OperationStatus.FAILED);
+        assertThat(rejected.getErrorCode()).isEqualTo(HandlerErrorCode.NotStabilized);
+        assertThat(rejected.getMessage()).contains("entered state failed while waiting for cancelled");
+    }
+
+    @Test
+    public void test_delete_yields_when_the_invocation_budget_is_spent() {
+        final DeleteHandler handler = new DeleteHandler();
+
+        final ResourceModel model = ResourceModel.builder()
+                .id("cr-121")
+                .build();
+
+        final ResourceHandlerRequest<ResourceModel> request = ResourceHandlerRequest.<ResourceModel>builder()
+                .desiredResourceState(model)
+                .build();
+
+        final InvocationDeadline deadline = InvocationDeadline.begin(0, 10_000, 5_000);
+        final ProgressEvent<ResourceModel, CallbackContext> response;
+        try {
+            response = handler.handleRequest(proxy, request, new CallbackContext(), proxyClient, logger);
+        } finally {
+            deadline.end();
+        }
+
+        assertThat(response.getStatus()).isEqualTo(OperationStatus.IN_PROGRESS);
+        assertThat(response.getCallbackDelaySeconds()).isEqualTo(1);
+        verifyNoMoreInteractions(ec2Client);
+    }
+
+    private static AwsServiceException error(final int statusCode, final String errorCode) {
+        return AwsServiceException.builder()
+                .statusCode(statusCode)
+                .awsErrorDetails(AwsErrorDetails.builder().errorCode(errorCode).build())
+                .build();
+    }
 }
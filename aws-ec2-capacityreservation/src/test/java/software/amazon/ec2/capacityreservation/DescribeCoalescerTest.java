@@ -0,0 +1,114 @@
+package software.amazon.ec2.capacityreservation;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import software.amazon.awssdk.services.ec2.model.CapacityReservation;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class DescribeCoalescerTest {
+
+    private final ExecutorService executor = Executors.newCachedThreadPool();
+
+    @AfterEach
+    public void tear_down() {
+        executor.shutdownNow();
+    }
+
+    @Test
+    public void test_concurrent_describes_share_one_call() throws Exception {
+        final DescribeCoalescer coalescer = new DescribeCoalescer(5_000, 10_000, 5);
+        final AtomicInteger calls = new AtomicInteger();
+        final Function<Collection<String>, Map<String, CapacityReservationLookup>> describer = ids -> {
+            calls.incrementAndGet();
+            return found(ids);
+        };
+
+        final CountDownLatch start = new CountDownLatch(1);
+        final List<Future<Optional<CapacityReservationLookup>>> results = new ArrayList<>();
+        for (int i = 0; i < 5; i++) {
+            final String id = "cr-" + i;
+            results.add(executor.submit(() -> {
+                start.await();
+                return coalescer.describe("123456789012|us-east-1", id, describer);
+            }));
+        }
+        start.countDown();
+
+        for (int i = 0; i < 5; i++) {
+            final Optional<CapacityReservationLookup> lookup = results.get(i).get(10, TimeUnit.SECONDS);
+            assertThat(lookup).isPresent();
+            assertThat(lookup.get().getCapacityReservationId()).isEqualTo("cr-" + i);
+        }
+        assertThat(calls.get()).isEqualTo(1);
+        assertThat(coalescer.getBatches()).isEqualTo(1);
+        assertThat(coalescer.getFallbacks()).isEqualTo(0);
+    }
+
+    @Test
+    public void test_batches_are_keyed_by_account_and_region() {
+        final DescribeCoalescer coalescer = new DescribeCoalescer(0, 1_000, 100);
+
+        assertThat(coalescer.describe("123456789012|us-east-1", "cr-1", DescribeCoalescerTest::found)).isPresent();
+        assertThat(coalescer.describe("123456789012|us-west-2", "cr-1", DescribeCoalescerTest::found)).isPresent();
+        assertThat(coalescer.getBatches()).isEqualTo(2);
+    }
+
+    @Test
+    public void test_failed_batch_falls_back_to_own_describe() {
+        final DescribeCoalescer coalescer = new DescribeCoalescer(0, 1_000, 100);
+
+        final Optional<CapacityReservationLookup> lookup = coalescer.describe("123456789012|us-east-1", "cr-1", ids -> {
+            throw new IllegalStateException("throttled");
+        });
+
+        assertThat(lookup).isEmpty();
+        assertThat(coalescer.getFallbacks()).isEqualTo(1);
+    }
+
+    @Test
+    public void test_waiting_caller_gives_up_after_max_wait() throws Exception {
+        final DescribeCoalescer coalescer = new DescribeCoalescer(500, 50, 100);
+        final CountDownLatch release = new CountDownLatch(1);
+        final Function<Collection<String>, Map<String, CapacityReservationLookup>> slowDescriber = ids -> {
+            try {
+                release.await(10, TimeUnit.SECONDS);
+            } catch (final InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            return found(ids);
+        };
+
+        final Future<Optional<CapacityReservationLookup>> leader =
+                executor.submit(() -> coalescer.describe("123456789012|us-east-1", "cr-1", slowDescriber));
+        while (coalescer.getRequests() == 0) {
+            Thread.sleep(1);
+        }
+
+        final Optional<CapacityReservationLookup> follower = coalescer.describe("123456789012|us-east-1", "cr-2", slowDescriber);
+        release.countDown();
+
+        assertThat(follower).isEmpty();
+        assertThat(leader.get(10, TimeUnit.SECONDS)).isPresent();
+        assertThat(coalescer.getFallbacks()).isEqualTo(1);
+    }
+
+    private static Map<String, CapacityReservationLookup> found(final Collection<String> ids) {
+        return ids.stream().collect(Collectors.toMap(Function.identity(), id -> CapacityReservationLookup.of(
+                CapacityReservation.builder().capacityReservationId(id).state("active").build())));
+    }
+}
@@ -0,0 +1,96 @@
+package software.amazon.ec2.capacityreservation;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import software.amazon.awssdk.core.SdkSystemSetting;
+import software.amazon.cloudformation.proxy.AmazonWebServicesClientProxy;
+import software.amazon.cloudformation.proxy.Logger;
+import software.amazon.cloudformation.proxy.ResourceHandlerRequest;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class EmbeddedMetricsTest extends AbstractTestBase {
+
+    private LocalEc2Server server;
+
+    @AfterEach
+    public void tear_down() {
+        System.clearProperty(ClientBuilder.EC2_ENDPOINT_OVERRIDE_PROPERTY);
+        System.clearProperty(SdkSystemSetting.AWS_REGION.property());
+        ClientBuilder.closeAll();
+        if (server != null) {
+            server.close();
+        }
+    }
+
+    @Test
+    public void test_render_operation_step_and_ec2_lines() {
+        final OperationMetrics metrics = OperationMetrics.begin("Update");
+        metrics.step("AWS-EC2-CapacityReservation::Update", () -> {
+            metrics.recordCall("ModifyCapacityReservation", metrics.getCurrentStep(), TimeUnit.MILLISECONDS.toNanos(12), 2, false, false);
+            return null;
+        });
+        metrics.recordCall("DescribeCapacityReservations", null, TimeUnit.MILLISECONDS.toNanos(3), 1, true, true);
+        metrics.end();
+
+        final List<String> lines = EmbeddedMetrics.render(metrics, "SUCCESS", 2, 0, 1700000000000L);
+
+        assertThat(OperationMetrics.current()).isNull();
+        assertThat(lines).hasSize(4);
+        assertThat(lines.get(0))
+                .startsWith("{\"_aws\":{\"Timestamp\":1700000000000,\"CloudWatchMetrics\":[{\"Namespace\":\"AWS-EC2-CapacityReservation\",\"Dimensions\":[[\"Action\"]]")
+                .contains("\"Action\":\"Update\"", "\"Outcome\":\"SUCCESS\"", "\"Ec2Calls\":2", "\"Ec2Errors\":1", "\"Ec2Throttles\":1",
+                        "\"Retries\":1", "\"StabilizationAttempts\":2");
+        assertThat(lines.get(1))
+                .contains("\"Dimensions\":[[\"Action\",\"Step\"]]", "\"Step\":\"AWS-EC2-CapacityReservation::Update\"", "\"StepEc2Calls\":1");
+        assertThat(lines.get(2))
+                .contains("\"Dimensions\":[[\"Action\",\"Ec2Operation\"]]", "\"Ec2Operation\":\"ModifyCapacityReservation\"",
+                        "\"Ec2Latency\":[12.000]", "\"Retries\":1");
+        assertThat(lines.get(3)).contains("\"Ec2Operation\":\"DescribeCapacityReservations\"", "\"Ec2Errors\":1");
+    }
+
+    @Test
+    public void test_unknown_destination_falls_back_to_logger() {
+        assertThat(HandlerSettings.fromEnvironment(name -> HandlerSettings.METRICS_DESTINATION.equals(name) ? "stdout" : null)
+                .getMetricsDestination()).isEqualTo(EmbeddedMetrics.Destination.STDOUT);
+        assertThat(HandlerSettings.fromEnvironment(name -> HandlerSettings.METRICS_DESTINATION.equals(name) ? "cloudwatch" : null)
+                .getMetricsDestination()).isEqualTo(EmbeddedMetrics.Destination.LOGGER);
+    }
+
+    @Test
+    public void test_handler_invocation_emits_metrics_for_sdk_calls() throws IOException {
+        server = LocalEc2Server.start(new InMemoryEc2Client(1), 0, 2);
+        System.setProperty(ClientBuilder.EC2_ENDPOINT_OVERRIDE_PROPERTY, server.endpoint().toString());
+        System.setProperty(SdkSystemSetting.AWS_REGION.property(), "us-east-1");
+        final AmazonWebServicesClientProxy proxy = new AmazonWebServicesClientProxy(logger, MOCK_CREDENTIALS, () -> Duration.ofSeconds(600).toMillis());
+        final List<String> lines = new ArrayList<>();
+        final Logger collecting = lines::add;
+        // two stabilization rounds happened in earlier invocations and must not be counted again
+        final CallbackContext context = new CallbackContext();
+        context.setStabilizationAttempts(2);
+
+        new CreateHandler(HandlerSettings.builder().build()).handleRequest(proxy, ResourceHandlerRequest.<ResourceModel>builder()
+                .desiredResourceState(ResourceModel.builder()
+                        .instanceType("m5.large")
+                        .availabilityZone("us-east-1a")
+                        .instancePlatform("Linux/UNIX")
+                        .instanceCount(1)
+                        .build())
+                .build(), context, collecting);
+
+        final List<String> metrics = lines.stream().filter(line -> line.startsWith("{\"_aws\"")).collect(Collectors.toList());
+        // the pending reservation is first described on the re-invocation
+        assertThat(metrics).hasSize(3);
+        assertThat(metrics.get(0)).contains("\"Action\":\"Create\"", "\"Outcome\":\"IN_PROGRESS\"", "\"Ec2Calls\":1", "\"StabilizationAttempts\":1");
+        assertThat(metrics.get(1)).contains("\"Step\":\"AWS-EC2-CapacityReservation::Create\"", "\"StepEc2Calls\":1");
+        assertThat(metrics.get(2)).contains("\"Ec2Operation\":\"CreateCapacityReservation\"", "\"Ec2Calls\":1");
+        assertThat(OperationMetrics.current()).isNull();
+    }
+}
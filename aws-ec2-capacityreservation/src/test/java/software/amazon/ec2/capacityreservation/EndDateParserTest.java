@@ -0,0 +1,63 @@
+package software.amazon.ec2.capacityreservation;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Instant;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class EndDateParserTest {
+
+    @Test
+    public void test_iso_instants() {
+        assertThat(EndDateParser.parse("2021-06-30T23:59:59Z")).isEqualTo(Instant.parse("2021-06-30T23:59:59Z"));
+        assertThat(EndDateParser.parse("2021-06-30T23:59:59.123456789Z")).isEqualTo(Instant.parse("2021-06-30T23:59:59.123456789Z"));
+        assertThat(EndDateParser.parse("2020-02-29T00:00:00Z")).isEqualTo(Instant.parse("2020-02-29T00:00:00Z"));
+        assertThat(EndDateParser.parse(" 2021-06-30T23:59:59Z ")).isEqualTo(Instant.parse("2021-06-30T23:59:59Z"));
+    }
+
+    @Test
+    public void test_iso_offsets() {
+        assertThat(EndDateParser.parse("2021-06-30T23:59:59.5+02:00")).isEqualTo(Instant.parse("2021-06-30T21:59:59.500Z"));
+        assertThat(EndDateParser.parse("2021-06-30T23:59:59-0800")).isEqualTo(Instant.parse("2021-07-01T07:59:59Z"));
+        assertThat(EndDateParser.parse("2021-06-30T23:59+05")).isEqualTo(Instant.parse("2021-06-30T18:59:00Z"));
+    }
+
+    @Test
+    public void test_epoch_values() {
+        assertThat(EndDateParser.parse("1625097599")).isEqualTo(Instant.parse("2021-06-30T23:59:59Z"));
+        assertThat(EndDateParser.parse("1625097599000")).isEqualTo(Instant.parse("2021-06-30T23:59:59Z"));
+    }
+
+    @Test
+    public void test_legacy_format() {
+        assertThat(EndDateParser.parse("Wed Jun 30 23:59:59 UTC 2021")).isEqualTo(Instant.parse("2021-06-30T23:59:59Z"));
+        assertThat(EndDateParser.parse("Wed Jun 30 23:59:59 PDT 2021")).isEqualTo(Instant.parse("2021-07-01T06:59:59Z"));
+        assertThat(EndDateParser.parse("Sat Jan 30 23:59:59 PST 2021")).isEqualTo(Instant.parse("2021-01-31T07:59:59Z"));
+    }
+
+    @Test
+    public void test_legacy_zone_names_are_fixed_offsets() {
+        // a daylight name keeps its offset outside of daylight saving time, as SimpleDateFormat read it
+        assertThat(EndDateParser.parse("Wed Jan 01 00:00:00 PDT 2025")).isEqualTo(Instant.parse("2025-01-01T07:00:00Z"));
+        assertThat(EndDateParser.parse("Wed Jan 01 00:00:00 EDT 2025")).isEqualTo(Instant.parse("2025-01-01T04:00:00Z"));
+        assertThat(EndDateParser.parse("Tue Jul 01 00:00:00 PST 2025")).isEqualTo(Instant.parse("2025-07-01T08:00:00Z"));
+        assertThat(EndDateParser.parse("Wed Jan 01 00:00:00 CST 2025")).isEqualTo(Instant.parse("2025-01-01T06:00:00Z"));
+    }
+
+    @Test
+    public void test_invalid_input() {
+        assertThat(EndDateParser.parse(null)).isNull();
+        assertThat(EndDateParser.parse("")).isNull();
+        assertThat(EndDateParser.parse("garbage")).isNull();
+        assertThat(EndDateParser.parse("2021-02-29T00:00:00Z")).isNull();
+        assertThat(EndDateParser.parse("2021-13-30T23:59:59Z")).isNull();
+        assertThat(EndDateParser.parse("2021-06-30T24:00:00Z")).isNull();
+        assertThat(EndDateParser.parse("2021-06-30T23:59:59")).isNull();
+        assertThat(EndDateParser.parse("2021-06-30T23:59:59+19:00")).isNull();
+        assertThat(EndDateParser.parse("Wed Jun 30 23:59:59 XYZ 2021")).isNull();
+        assertThat(EndDateParser.parse("Wed Foo 30 23:59:59 UTC 2021")).isNull();
+        assertThat(EndDateParser.parse("2021")).isNull();
+        assertThat(EndDateParser.parse("12345678")).isNull();
+    }
+}
@@ -0,0 +1,63 @@
+package software.amazon.ec2.capacityreservation;
+
+import org.junit.jupiter.api.Test;
+import software.amazon.awssdk.awscore.exception.AwsErrorDetails;
+import software.amazon.awssdk.awscore.exception.AwsServiceException;
+import software.amazon.awssdk.core.exception.SdkClientException;
+import software.amazon.cloudformation.exceptions.CfnNotFoundException;
+import software.amazon.cloudformation.proxy.HandlerErrorCode;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class ErrorClassifierTest {
+
+    @Test
+    public void test_known_error_codes() {
+        assertClassified(error(400, "InvalidCapacityReservationId.NotFound"), HandlerErrorCode.NotFound, false);
+        assertClassified(error(400, "InvalidCapacityReservationId.Malformed"), HandlerErrorCode.NotFound, false);
+        assertClassified(error(503, "RequestLimitExceeded"), HandlerErrorCode.Throttling, true);
+        assertClassified(error(503, "Unavailable"), HandlerErrorCode.ServiceInternalError, true);
+        assertClassified(error(500, "InsufficientInstanceCapacity"), HandlerErrorCode.GeneralServiceException, true);
+        assertClassified(error(400, "InstanceLimitExceeded"), HandlerErrorCode.ServiceLimitExceeded, false);
+        assertClassified(error(403, "UnauthorizedOperation"), HandlerErrorCode.AccessDenied, false);
+        assertClassified(error(400, "InvalidParameterValue"), HandlerErrorCode.InvalidRequest, false);
+        assertClassified(error(400, "InvalidParameterDependency"), HandlerErrorCode.InvalidRequest, false);
+        assertClassified(error(400, "IncorrectCapacityReservationState"), HandlerErrorCode.ResourceConflict, true);
+    }
+
+    @Test
+    public void test_unknown_error_codes_fall_back_to_status() {
+        assertClassified(error(500, "SomethingNew"), HandlerErrorCode.ServiceInternalError, true);
+        assertClassified(error(429, "SomethingNew"), HandlerErrorCode.Throttling, true);
+        assertClassified(error(400, "SomethingNew"), HandlerErrorCode.InvalidRequest, false);
+        assertClassified(AwsServiceException.builder().message("serviceException").build(), HandlerErrorCode.GeneralServiceException, false);
+    }
+
+    @Test
+    public void test_non_service_errors() {
+        assertClassified(SdkClientException.create("connection reset"), HandlerErrorCode.NetworkFailure, true);
+        assertClassified(new CfnNotFoundException(ResourceModel.TYPE_NAME, "cr-1"), HandlerErrorCode.NotFound, false);
+        assertClassified(new IllegalStateException("boom"), HandlerErrorCode.GeneralServiceException, false);
+    }
+
+    @Test
+    public void test_delay_hints_grow_with_expected_recovery_time() {
+        assertThat(ErrorClassifier.classify(error(503, "Unavailable")).getCallbackDelaySeconds()).isEqualTo(5);
+        assertThat(ErrorClassifier.classify(error(503, "RequestLimitExceeded")).getCallbackDelaySeconds()).isEqualTo(10);
+        assertThat(ErrorClassifier.classify(error(500, "InsufficientInstanceCapacity")).getCallbackDelaySeconds()).isEqualTo(30);
+        assertThat(ErrorClassifier.classify(error(400, "InvalidParameterValue")).getCallbackDelaySeconds()).isZero();
+    }
+
+    private static void assertClassified(final Exception ex, final HandlerErrorCode errorCode, final boolean retryable) {
+        final ErrorClassifier.Classification classification = ErrorClassifier.classify(ex);
+        assertThat(classification.getErrorCode()).isEqualTo(errorCode);
+        assertThat(classification.isRetryable()).isEqualTo(retryable);
+    }
+
+    private static AwsServiceException error(final int statusCode, final String errorCode) {
+        return AwsServiceException.builder()
+                .statusCode(statusCode)
+                .awsErrorDetails(AwsErrorDetails.builder().errorCode(errorCode).build())
+                .build();
+    }
+}
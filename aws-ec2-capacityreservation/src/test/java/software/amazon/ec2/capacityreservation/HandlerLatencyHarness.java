@@ -0,0 +1,139 @@
+package software.amazon.ec2.capacityreservation;
+
+import software.amazon.cloudformation.exceptions.BaseHandlerException;
+import software.amazon.cloudformation.proxy.AmazonWebServicesClientProxy;
+import software.amazon.cloudformation.proxy.Logger;
+import software.amazon.cloudformation.proxy.OperationStatus;
+import software.amazon.cloudformation.proxy.ProgressEvent;
+import software.amazon.cloudformation.proxy.ResourceHandlerRequest;
+
+import java.util.Arrays;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.TimeUnit;
+import java.util.function.IntFunction;
+
+/**
+ * Runs handlers end to end against a {@link SimulatedLatencyProxyClient} and reports how long whole operations take
+ * and how many EC2 calls they make. An operation is followed through all its IN_PROGRESS re-invocations, as
+ * CloudFormation would; callback delays are summed in the report instead of being slept.
+ */
+final class HandlerLatencyHarness {
+    private static final int MAX_ROUNDS = 100;
+
+    private final AmazonWebServicesClientProxy proxy;
+    private final SimulatedLatencyProxyClient proxyClient;
+    private final Logger logger;
+
+    HandlerLatencyHarness(final AmazonWebServicesClientProxy proxy, final SimulatedLatencyProxyClient proxyClient, final Logger logger) {
+        this.proxy = proxy;
+        this.proxyClient = proxyClient;
+        this.logger = logger;
+    }
+
+    /**
+     * @param requests builds the request of the i-th operation
+     */
+    Report run(final String name, final BaseHandlerStd handler, final IntFunction<ResourceHandlerRequest<ResourceModel>> requests,
+               final int operations) {
+        final Map<String, Long> callsBefore = proxyClient.callCounts();
+        final long[] latencies = new long[operations];
+        int failures = 0;
+        int rounds = 0;
+        long callbackDelaySeconds = 0;
+        for (int i = 0; i < operations; i++) {
+            final ResourceHandlerRequest<ResourceModel> request = requests.apply(i);
+            CallbackContext context = new CallbackContext();
+            long elapsed = 0;
+            for (int round = 0; round < MAX_ROUNDS; round++) {
+                rounds++;
+                final long start = System.nanoTime();
+                ProgressEvent<ResourceModel, CallbackContext> event;
+                try {
+                    event = handler.handleRequest(proxy, request, context, proxyClient, logger);
+                } catch (final BaseHandlerException e) {
+                    event = ProgressEvent.failed(request.getDesiredResourceState(), context, e.getErrorCode(), e.getMessage());
+                }
+                elapsed += System.nanoTime() - start;
+                if (event.getStatus() != OperationStatus.IN_PROGRESS) {
+                    if (event.getStatus() == OperationStatus.FAILED) {
+                        failures++;
+                    }
+                    break;
+                }
+                callbackDelaySeconds += event.getCallbackDelaySeconds();
+                context = event.getCallbackContext();
+                request.setDesiredResourceState(event.getResourceModel());
+            }
+            latencies[i] = elapsed;
+        }
+        return new Report(name, latencies, failures, rounds, callbackDelaySeconds, delta(callsBefore, proxyClient.callCounts()));
+    }
+
+    private static Map<String, Long> delta(final Map<String, Long> before, final Map<String, Long> after) {
+        final Map<String, Long> delta = new TreeMap<>();
+        after.forEach((operation, count) -> {
+            final long calls = count - before.getOrDefault(operation, 0L);
+            if (calls > 0) {
+                delta.put(operation, calls);
+            }
+        });
+        return delta;
+    }
+
+    static final class Report {
+        private final String name;
+        private final long[] sortedLatencies;
+        private final int failures;
+        private final int rounds;
+        private final long callbackDelaySeconds;
+        private final Map<String, Long> ec2Calls;
+
+        private Report(final String name, final long[] latencies, final int failures, final int rounds,
+                       final long callbackDelaySeconds, final Map<String, Long> ec2Calls) {
+            this.name = name;
+            this.sortedLatencies = latencies.clone();
+            Arrays.sort(this.sortedLatencies);
+            this.failures = failures;
+            this.rounds = rounds;
+            this.callbackDelaySeconds = callbackDelaySeconds;
+            this.ec2Calls = ec2Calls;
+        }
+
+        int operations() {
+            return sortedLatencies.length;
+        }
+
+        int failures() {
+            return failures;
+        }
+
+        int rounds() {
+            return rounds;
+        }
+
+        Map<String, Long> ec2Calls() {
+            return ec2Calls;
+        }
+
+        /**
+         * Nearest-rank percentile of the operation latency in milliseconds.
+         */
+        double percentileMillis(final double percentile) {
+            if (sortedLatencies.length == 0) {
+                return 0;
+            }
+            final int rank = (int) Math.ceil(percentile / 100.0 * sortedLatencies.length);
+            return sortedLatencies[Math.max(0, Math.min(sortedLatencies.length - 1, rank - 1))] / (double) TimeUnit.MILLISECONDS.toNanos(1);
+        }
+
+        @Override
+        public String toString() {
+            return String.format(Locale.ROOT,
+                    "%-7s operations=%d failures=%d rounds=%d p50=%.1fms p95=%.1fms p99=%.1fms max=%.1fms callbackDelay=%ds ec2Calls=%s",
+                    name, operations(), failures, rounds, percentileMillis(50), percentileMillis(95), percentileMillis(99),
+                    percentileMillis(100), callbackDelaySeconds, ec2Calls);
+        }
+    }
+}
@@ -0,0 +1,96 @@
+package software.amazon.ec2.capacityreservation;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import software.amazon.cloudformation.proxy.AmazonWebServicesClientProxy;
+import software.amazon.cloudformation.proxy.ResourceHandlerRequest;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class HandlerLatencyHarnessTest extends AbstractTestBase {
+    private static final int OPERATIONS = 20;
+
+    private InMemoryEc2Client ec2Client;
+    private SimulatedLatencyProxyClient proxyClient;
+    private HandlerLatencyHarness harness;
+    private HandlerSettings settings;
+
+    @BeforeEach
+    public void setup() {
+        final AmazonWebServicesClientProxy proxy = new AmazonWebServicesClientProxy(logger, MOCK_CREDENTIALS, () -> Duration.ofSeconds(600).toMillis());
+        ec2Client = new InMemoryEc2Client(1);
+        proxyClient = new SimulatedLatencyProxyClient(ec2Client, 42L)
+                .withDefaultLatency(SimulatedLatencyProxyClient.LatencyDistribution.logNormal(1, 4))
+                .withLatency("CreateCapacityReservation", SimulatedLatencyProxyClient.LatencyDistribution.uniform(2, 6));
+        harness = new HandlerLatencyHarness(proxy, proxyClient, logger);
+        settings = HandlerSettings.builder().build();
+    }
+
+    @Test
+    public void test_lifecycle_latency_and_call_counts() {
+        final HandlerLatencyHarness.Report create = harness.run("Create", new CreateHandler(settings), i -> request(ResourceModel.builder()
+                .instanceType("m5.large")
+                .availabilityZone("us-east-1a")
+                .instancePlatform("Linux/UNIX")
+                .instanceCount(1)
+                .build()), OPERATIONS);
+        final List<String> ids = new ArrayList<>(ec2Client.reservations().keySet());
+
+        final HandlerLatencyHarness.Report read = harness.run("Read", new ReadHandler(settings),
+                i -> request(ResourceModel.builder().id(ids.get(i)).build()), OPERATIONS);
+        final HandlerLatencyHarness.Report update = harness.run("Update", new UpdateHandler(settings),
+                i -> request(ResourceModel.builder().id(ids.get(i)).instanceCount(2).build()), OPERATIONS);
+        final HandlerLatencyHarness.Report list = harness.run("List", new ListHandler(settings),
+                i -> request(ResourceModel.builder().build()), 1);
+        final HandlerLatencyHarness.Report delete = harness.run("Delete", new DeleteHandler(settings),
+                i -> request(ResourceModel.builder().id(ids.get(i)).build()), OPERATIONS);
+        for (final HandlerLatencyHarness.Report report : new HandlerLatencyHarness.Report[]{create, read, update, list, delete}) {
+            assertThat(report.failures()).as(report.toString()).isZero();
+            assertThat(report.percentileMillis(50)).as(report.toString()).isLessThanOrEqualTo(report.percentileMillis(99));
+        }
+
+        assertThat(ids).hasSize(OPERATIONS);
+        // Every create waits one callback before its first describe, which still reports pending, and one more
+        assertThat(create.rounds()).isEqualTo(3 * OPERATIONS);
+        assertThat(create.ec2Calls()).containsEntry("CreateCapacityReservation", (long) OPERATIONS);
+        assertThat(read.ec2Calls()).containsEntry("DescribeCapacityReservations", (long) OPERATIONS).hasSize(1);
+        assertThat(update.ec2Calls()).containsEntry("ModifyCapacityReservation", (long) OPERATIONS);
+        assertThat(list.ec2Calls()).containsEntry("DescribeCapacityReservations", 1L);
+        assertThat(delete.ec2Calls()).containsEntry("CancelCapacityReservation", (long) OPERATIONS);
+        assertThat(ec2Client.reservations().values()).allMatch(reservation -> "cancelled".equals(reservation.stateAsString()));
+    }
+
+    @Test
+    public void test_throttled_calls_fail_and_are_counted() {
+        proxyClient.withThrottleRate(1.0);
+
+        final HandlerLatencyHarness.Report read = harness.run("Read", new ReadHandler(settings),
+                i -> request(ResourceModel.builder().id("cr-" + i).build()), 5);
+
+        assertThat(read.failures()).isEqualTo(5);
+        assertThat(proxyClient.throttleCounts()).containsEntry("DescribeCapacityReservations", 5L);
+    }
+
+    @Test
+    public void test_injected_errors_are_surfaced() {
+        proxyClient.withError("DescribeCapacityReservations", 1.0,
+                () -> InMemoryEc2Client.error(500, "InternalError", "An internal error has occurred"));
+
+        final HandlerLatencyHarness.Report read = harness.run("Read", new ReadHandler(settings),
+                i -> request(ResourceModel.builder().id("cr-" + i).build()), 3);
+
+        assertThat(read.failures()).isEqualTo(3);
+        assertThat(read.ec2Calls()).containsEntry("DescribeCapacityReservations", 3L);
+    }
+
+    private static ResourceHandlerRequest<ResourceModel> request(final ResourceModel model) {
+        return ResourceHandlerRequest.<ResourceModel>builder()
+                .desiredResourceState(model)
+                .previousResourceState(ResourceModel.builder().id(model.getId()).build())
+                .build();
+    }
+}
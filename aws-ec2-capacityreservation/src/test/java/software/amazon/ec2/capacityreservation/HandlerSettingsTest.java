@@ -0,0 +1,44 @@
+package software.amazon.ec2.capacityreservation;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class HandlerSettingsTest {
+
+    @Test
+    public void test_numbers_are_read_from_the_environment() {
+        final Map<String, String> environment = new HashMap<>();
+        environment.put(HandlerSettings.STABILIZATION_TIMEOUT_SECONDS, " 600 ");
+        environment.put(HandlerSettings.LIST_PAGE_SIZE, "");
+
+        final HandlerSettings settings = HandlerSettings.fromEnvironment(environment::get);
+
+        assertThat(settings.getStabilizationTimeoutSeconds()).isEqualTo(600);
+        assertThat(settings.getListPageSize()).isNull();
+    }
+
+    @Test
+    public void test_malformed_numbers_keep_the_default() {
+        final Map<String, String> environment = new HashMap<>();
+        environment.put(HandlerSettings.STABILIZATION_TIMEOUT_SECONDS, "30m");
+        environment.put(HandlerSettings.INVOCATION_BUDGET_MILLIS, "99999999999");
+        environment.put(HandlerSettings.TRANSIENT_RETRY_MAX_ATTEMPTS, "5");
+
+        final HandlerSettings settings = HandlerSettings.fromEnvironment(environment::get);
+
+        assertThat(settings.getStabilizationTimeoutSeconds()).isEqualTo(HandlerSettings.defaults().getStabilizationTimeoutSeconds());
+        assertThat(settings.getInvocationBudgetMillis()).isEqualTo(HandlerSettings.defaults().getInvocationBudgetMillis());
+        assertThat(settings.getTransientRetryMaxAttempts()).isEqualTo(5);
+    }
+
+    @Test
+    public void test_reservation_cache_ttl_is_capped() {
+        assertThat(HandlerSettings.builder().reservationCacheTtlMillis(2_000).build().getReservationCacheTtlMillis()).isEqualTo(2_000);
+        assertThat(HandlerSettings.builder().reservationCacheTtlMillis(600_000).build().getReservationCacheTtlMillis())
+                .isEqualTo(ReservationCache.MAX_TTL_MILLIS);
+    }
+}
@@ -0,0 +1,226 @@
+package software.amazon.ec2.capacityreservation;
+
+import software.amazon.awssdk.awscore.exception.AwsErrorDetails;
+import software.amazon.awssdk.awscore.exception.AwsServiceException;
+import software.amazon.awssdk.services.ec2.Ec2Client;
+import software.amazon.awssdk.services.ec2.model.CancelCapacityReservationRequest;
+import software.amazon.awssdk.services.ec2.model.CancelCapacityReservationResponse;
+import software.amazon.awssdk.services.ec2.model.CapacityReservation;
+import software.amazon.awssdk.services.ec2.model.CreateCapacityReservationRequest;
+import software.amazon.awssdk.services.ec2.model.CreateCapacityReservationResponse;
+import software.amazon.awssdk.services.ec2.model.DescribeCapacityReservationsRequest;
+import software.amazon.awssdk.services.ec2.model.DescribeCapacityReservationsResponse;
+import software.amazon.awssdk.services.ec2.model.EndDateType;
+import software.amazon.awssdk.services.ec2.model.Filter;
+import software.amazon.awssdk.services.ec2.model.ModifyCapacityReservationRequest;
+import software.amazon.awssdk.services.ec2.model.ModifyCapacityReservationResponse;
+import software.amazon.awssdk.services.ec2.model.Tag;
+import software.amazon.awssdk.services.ec2.model.TagSpecification;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+
+/**
+ * Stateful stand-in for the four EC2 operations the handlers use. Reservations live in memory, new ones stay
+ * pending for a configurable number of describes before turning active, and errors use the codes EC2 returns.
+ * Everything else of {@link Ec2Client} keeps the interface default of throwing UnsupportedOperationException.
+ */
+class InMemoryEc2Client implements Ec2Client {
+    static final String OWNER_ID = "123456789012";
+
+    private final ConcurrentSkipListMap<String, CapacityReservation> reservations = new ConcurrentSkipListMap<>();
+    private final ConcurrentMap<String, AtomicInteger> describesUntilActive = new ConcurrentHashMap<>();
+    private final AtomicLong sequence = new AtomicLong();
+    private final int pendingDescribes;
+
+    /**
+     * @param pendingDescribes how many describes a new reservation is reported pending before it is active, 0 creates active ones
+     */
+    InMemoryEc2Client(final int pendingDescribes) {
+        this.pendingDescribes = pendingDescribes;
+    }
+
+    @Override
+    public String serviceName() {
+        return SERVICE_NAME;
+    }
+
+    @Override
+    public void close() {
+    }
+
+    Map<String, CapacityReservation> reservations() {
+        return Collections.unmodifiableMap(reservations);
+    }
+
+    @Override
+    public CreateCapacityReservationResponse createCapacityReservation(final CreateCapacityReservationRequest request) {
+        if (request.instanceType() == null || request.instancePlatformAsString() == null
+                || request.availabilityZone() == null || request.instanceCount() == null) {
+            throw error(400, "MissingParameter", "InstanceType, InstancePlatform, AvailabilityZone and InstanceCount are required");
+        }
+        final String id = String.format("cr-%017x", sequence.incrementAndGet());
+        final List<Tag> tags = new ArrayList<>();
+        for (final TagSpecification tagSpecification : request.tagSpecifications()) {
+            if ("capacity-reservation".equals(tagSpecification.resourceTypeAsString())) {
+                tags.addAll(tagSpecification.tags());
+            }
+        }
+        final Instant now = Instant.now();
+        final CapacityReservation reservation = CapacityReservation.builder()
+                .capacityReservationId(id)
+                .capacityReservationArn("arn:aws:ec2:us-east-1:" + OWNER_ID + ":capacity-reservation/" + id)
+                .ownerId(OWNER_ID)
+                .availabilityZone(request.availabilityZone())
+                .instanceType(request.instanceType())
+                .instancePlatform(request.instancePlatformAsString())
+                .tenancy(request.tenancyAsString() == null ? "default" : request.tenancyAsString())
+                .totalInstanceCount(request.instanceCount())
+                .availableInstanceCount(request.instanceCount())
+                .ebsOptimized(Boolean.TRUE.equals(request.ebsOptimized()))
+                .ephemeralStorage(Boolean.TRUE.equals(request.ephemeralStorage()))
+                .endDateType(request.endDateTypeAsString() == null ? EndDateType.UNLIMITED.toString() : request.endDateTypeAsString())
+                .endDate(request.endDate())
+                .instanceMatchCriteria(request.instanceMatchCriteriaAsString() == null ? "open" : request.instanceMatchCriteriaAsString())
+                .placementGroupArn(request.placementGroupArn())
+                .outpostArn(request.outpostArn())
+                .state(pendingDescribes > 0 ? "pending" : "active")
+                .startDate(now)
+                .createDate(now)
+                .tags(tags)
+                .build();
+        if (pendingDescribes > 0) {
+            describesUntilActive.put(id, new AtomicInteger(pendingDescribes));
+        }
+        reservations.put(id, reservation);
+        return CreateCapacityReservationResponse.builder().capacityReservation(reservation).build();
+    }
+
+    @Override
+    public DescribeCapacityReservationsResponse describeCapacityReservations(final DescribeCapacityReservationsRequest request) {
+        final List<CapacityReservation> matching = new ArrayList<>();
+        if (!request.capacityReservationIds().isEmpty()) {
+            for (final String id : request.capacityReservationIds()) {
+                if (!reservations.containsKey(id)) {
+                    throw error(400, "InvalidCapacityReservationId.NotFound", "The capacity reservation ID '" + id + "' does not exist");
+                }
+            }
+            for (final String id : request.capacityReservationIds()) {
+                matching.add(advance(id));
+            }
+        } else {
+            for (final String id : reservations.keySet()) {
+                matching.add(advance(id));
+            }
+        }
+        matching.removeIf(reservation -> !matchesFilters(reservation, request.filters()));
+
+        final int from = request.nextToken() == null ? 0 : Integer.parseInt(request.nextToken());
+        final int to = request.maxResults() == null ? matching.size() : Math.min(matching.size(), from + request.maxResults());
+        return DescribeCapacityReservationsResponse.builder()
+                .capacityReservations(matching.subList(Math.min(from, to), to))
+                .nextToken(to < matching.size() ? String.valueOf(to) : null)
+                .build();
+    }
+
+    @Override
+    public ModifyCapacityReservationResponse modifyCapacityReservation(final ModifyCapacityReservationRequest request) {
+        update(request.capacityReservationId(), reservation -> {
+            final CapacityReservation.Builder builder = reservation.toBuilder();
+            if (request.instanceCount() != null) {
+                final int used = reservation.totalInstanceCount() - reservation.availableInstanceCount();
+                if (request.instanceCount() < used) {
+                    throw error(400, "InvalidParameterValue", "InstanceCount cannot be lower than the number of instances in use");
+                }
+                builder.totalInstanceCount(request.instanceCount()).availableInstanceCount(request.instanceCount() - used);
+            }
+            if (request.endDateType() != null) {
+                builder.endDateType(request.endDateType());
+                builder.endDate(request.endDateType() == EndDateType.UNLIMITED ? null : request.endDate());
+            } else if (request.endDate() != null) {
+                builder.endDate(request.endDate());
+            }
+            return builder.build();
+        });
+        return ModifyCapacityReservationResponse.builder().returnValue(true).build();
+    }
+
+    @Override
+    public CancelCapacityReservationResponse cancelCapacityReservation(final CancelCapacityReservationRequest request) {
+        update(request.capacityReservationId(), reservation -> reservation.toBuilder().state("cancelled").build());
+        describesUntilActive.remove(request.capacityReservationId());
+        return CancelCapacityReservationResponse.builder().returnValue(true).build();
+    }
+
+    private void update(final String id, final Function<CapacityReservation, CapacityReservation> change) {
+        if (id == null || !id.startsWith("cr-")) {
+            throw error(400, "InvalidCapacityReservationId.Malformed", "Invalid id: \"" + id + "\"");
+        }
+        final CapacityReservation current = reservations.get(id);
+        if (current == null) {
+            throw error(400, "InvalidCapacityReservationId.NotFound", "The capacity reservation ID '" + id + "' does not exist");
+        }
+        if ("cancelled".equals(current.stateAsString())) {
+            throw error(400, "IncorrectCapacityReservationState", "The capacity reservation '" + id + "' is cancelled");
+        }
+        reservations.put(id, change.apply(current));
+    }
+
+    /**
+     * Counts a describe of a pending reservation and activates it once its pending describes are used up.
+     */
+    private CapacityReservation advance(final String id) {
+        final AtomicInteger remaining = describesUntilActive.get(id);
+        if (remaining != null && remaining.decrementAndGet() < 0) {
+            describesUntilActive.remove(id);
+            return reservations.computeIfPresent(id, (key, reservation) -> "pending".equals(reservation.stateAsString())
+                    ? reservation.toBuilder().state("active").build()
+                    : reservation);
+        }
+        return reservations.get(id);
+    }
+
+    private static boolean matchesFilters(final CapacityReservation reservation, final List<Filter> filters) {
+        for (final Filter filter : filters) {
+            final String value;
+            switch (filter.name()) {
+                case "state":
+                    value = reservation.stateAsString();
+                    break;
+                case "availability-zone":
+                    value = reservation.availabilityZone();
+                    break;
+                case "instance-type":
+                    value = reservation.instanceType();
+                    break;
+                default:
+                    throw error(400, "InvalidParameterValue", "The filter '" + filter.name() + "' is invalid");
+            }
+            if (!filter.values().contains(value)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    static AwsServiceException error(final int statusCode, final String errorCode, final String message) {
+        return AwsServiceException.builder()
+                .statusCode(statusCode)
+                .message(message)
+                .awsErrorDetails(AwsErrorDetails.builder()
+                        .errorCode(errorCode)
+                        .errorMessage(message)
+                        .serviceName(SERVICE_NAME)
+                        .build())
+                .build();
+    }
+}
@@ -0,0 +1,59 @@
+package software.amazon.ec2.capacityreservation;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import software.amazon.awssdk.auth.credentials.AnonymousCredentialsProvider;
+import software.amazon.awssdk.awscore.AwsRequestOverrideConfiguration;
+import software.amazon.awssdk.services.ec2.model.DescribeCapacityReservationsRequest;
+
+import java.time.Duration;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class InvocationDeadlineTest {
+
+    @AfterEach
+    public void tear_down() {
+        final InvocationDeadline deadline = InvocationDeadline.current();
+        if (deadline != null) {
+            deadline.end();
+        }
+    }
+
+    @Test
+    public void test_no_limits_outside_of_an_invocation() {
+        final DescribeCapacityReservationsRequest request = DescribeCapacityReservationsRequest.builder().build();
+
+        assertThat(InvocationDeadline.nearlySpent()).isFalse();
+        assertThat(InvocationDeadline.allows(Long.MAX_VALUE / 2)).isTrue();
+        assertThat(InvocationDeadline.withCallTimeout(request)).isSameAs(request);
+    }
+
+    @Test
+    public void test_call_timeouts_follow_the_time_left() {
+        InvocationDeadline.begin(60_000, 10_000, 5_000);
+        final AnonymousCredentialsProvider credentials = AnonymousCredentialsProvider.create();
+        final DescribeCapacityReservationsRequest signed = DescribeCapacityReservationsRequest.builder()
+                .overrideConfiguration(AwsRequestOverrideConfiguration.builder().credentialsProvider(credentials).build())
+                .build();
+
+        final AwsRequestOverrideConfiguration configuration = InvocationDeadline.withCallTimeout(signed).overrideConfiguration().get();
+
+        assertThat(configuration.credentialsProvider()).contains(credentials);
+        assertThat(configuration.apiCallTimeout().get()).isBetween(Duration.ofSeconds(49), Duration.ofSeconds(50));
+        assertThat(configuration.apiCallAttemptTimeout()).contains(Duration.ofSeconds(5));
+        assertThat(InvocationDeadline.allows(40_000)).isTrue();
+        assertThat(InvocationDeadline.allows(55_000)).isFalse();
+        assertThat(InvocationDeadline.nearlySpent()).isFalse();
+    }
+
+    @Test
+    public void test_spent_budget() {
+        final InvocationDeadline deadline = InvocationDeadline.begin(5_000, 10_000, 5_000);
+
+        assertThat(InvocationDeadline.nearlySpent()).isTrue();
+        deadline.end();
+        assertThat(InvocationDeadline.current()).isNull();
+        assertThat(InvocationDeadline.nearlySpent()).isFalse();
+    }
+}
@@ -3,7 +3,9 @@ package software.amazon.ec2.capacityreservation;
 import junit.framework.Assert;
 import software.amazon.awssdk.awscore.exception.AwsServiceException;
 import software.amazon.awssdk.services.ec2.model.CapacityReservation;
+import software.amazon.awssdk.services.ec2.model.DescribeCapacityReservationsRequest;
 import software.amazon.awssdk.services.ec2.model.DescribeCapacityReservationsResponse;
+import software.amazon.awssdk.services.ec2.model.Filter;
 import software.amazon.cloudformation.proxy.AmazonWebServicesClientProxy;
 import software.amazon.cloudformation.proxy.Logger;
 import software.amazon.cloudformation.proxy.OperationStatus;
@@ -12,14 +14,18 @@ import software.amazon.cloudformation.proxy.ResourceHandlerRequest;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
 
 import java.util.Arrays;
+import java.util.stream.Collectors;
 
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
 @ExtendWith(MockitoExtension.class)
@@ -147,4 +153,148 @@ public class ListHandlerTest {
         assertThat(response).isNotNull();
         assertThat(response.getStatus()).isEqualTo(OperationStatus.FAILED);
     }
+
+    @Test
+    public void test_list_filters_on_service_side() {
+        final ListHandler handler = new ListHandler(HandlerSettings.builder().listPageSize(200).build());
+
+        final ResourceModel model = ResourceModel.builder()
+                .availabilityZone("us-east-1a")
+                .instanceType("t3.medium")
+                .build();
+
+        final ResourceHandlerRequest<ResourceModel> request = ResourceHandlerRequest.<ResourceModel>builder()
+                .desiredResourceState(model)
+                .nextToken("token")
+                .build();
+
+        when(proxy.injectCredentialsAndInvokeV2(any(), any())).thenReturn(DescribeCapacityReservationsResponse.builder().build());
+
+        final ProgressEvent<ResourceModel, CallbackContext> response =
+                handler.handleRequest(proxy, request, null, logger);
+
+        final ArgumentCaptor<DescribeCapacityReservationsRequest> captor = ArgumentCaptor.forClass(DescribeCapacityReservationsRequest.class);
+        verify(proxy).injectCredentialsAndInvokeV2(captor.capture(), any());
+        final DescribeCapacityReservationsRequest sent = captor.getValue();
+
+        assertThat(response.getStatus()).isEqualTo(OperationStatus.SUCCESS);
+        assertThat(sent.maxResults()).isEqualTo(200);
+        assertThat(sent.nextToken()).isEqualTo("token");
+        assertThat(sent.filters().stream().map(Filter::name).collect(Collectors.toList())).containsExactly("state", "availability-zone", "instance-type");
+        assertThat(sent.filters().get(0).values()).contains("active", "pending").doesNotContain("cancelled");
+        assertThat(sent.filters().get(1).values()).containsExactly("us-east-1a");
+        assertThat(sent.filters().get(2).values()).containsExactly("t3.medium");
+    }
+
+    @Test
+    public void test_list_follows_pages_within_time_budget() {
+        final ListHandler handler = new ListHandler(HandlerSettings.builder().listTimeBudgetMillis(60_000).build());
+
+        final ResourceHandlerRequest<ResourceModel> request = ResourceHandlerRequest.<ResourceModel>builder()
+                .desiredResourceState(ResourceModel.builder().build())
+                .build();
+
+        when(proxy.injectCredentialsAndInvokeV2(any(), any()))
+                .thenReturn(page("page-2", "cr-1", "cr-2"))
+                .thenReturn(page("page-3", "cr-3"))
+                .thenReturn(page(null, "cr-4"));
+
+        final ProgressEvent<ResourceModel, CallbackContext> response =
+                handler.handleRequest(proxy, request, null, logger);
+
+        final ArgumentCaptor<DescribeCapacityReservationsRequest> captor = ArgumentCaptor.forClass(DescribeCapacityReservationsRequest.class);
+        verify(proxy, times(3)).injectCredentialsAndInvokeV2(captor.capture(), any());
+
+        assertThat(response.getStatus()).isEqualTo(OperationStatus.SUCCESS);
+        assertThat(response.getNextToken()).isNull();
+        assertThat(response.getResourceModels().stream().map(ResourceModel::getId).collect(Collectors.toList()))
+                .containsExactly("cr-1", "cr-2", "cr-3", "cr-4");
+        assertThat(captor.getAllValues().stream().map(DescribeCapacityReservationsRequest::nextToken).collect(Collectors.toList()))
+                .containsExactly(null, "page-2", "page-3");
+    }
+
+    @Test
+    public void test_list_stops_at_max_models_with_resumable_token() {
+        final ListHandler handler = new ListHandler(HandlerSettings.builder().listTimeBudgetMillis(60_000).listMaxModels(2).build());
+
+        final ResourceHandlerRequest<ResourceModel> request = ResourceHandlerRequest.<ResourceModel>builder()
+                .desiredResourceState(ResourceModel.builder().build())
+                .build();
+
+        when(proxy.injectCredentialsAndInvokeV2(any(), any()))
+                .thenReturn(page("page-2", "cr-1", "cr-2"));
+
+        final ProgressEvent<ResourceModel, CallbackContext> response =
+                handler.handleRequest(proxy, request, null, logger);
+
+        verify(proxy, times(1)).injectCredentialsAndInvokeV2(any(), any());
+        assertThat(response.getStatus()).isEqualTo(OperationStatus.SUCCESS);
+        assertThat(response.getResourceModels()).hasSize(2);
+        assertThat(response.getNextToken()).isEqualTo("page-2");
+    }
+
+    @Test
+    public void test_list_returns_collected_pages_when_later_page_fails() {
+        final ListHandler handler = new ListHandler(HandlerSettings.builder().listTimeBudgetMillis(60_000).build());
+
+        final ResourceHandlerRequest<ResourceModel> request = ResourceHandlerRequest.<ResourceModel>builder()
+                .desiredResourceState(ResourceModel.builder().build())
+                .build();
+
+        when(proxy.injectCredentialsAndInvokeV2(any(), any()))
+                .thenReturn(page("page-2", "cr-1"))
+                .thenThrow(AwsServiceException.builder().message("serviceException").build());
+
+        final ProgressEvent<ResourceModel, CallbackContext> response =
+                handler.handleRequest(proxy, request, null, logger);
+
+        assertThat(response.getStatus()).isEqualTo(OperationStatus.SUCCESS);
+        assertThat(response.getResourceModels()).hasSize(1);
+        assertThat(response.getNextToken()).isEqualTo("page-2");
+    }
+
+    @Test
+    public void test_list_full_models() {
+        final ListHandler handler = new ListHandler(HandlerSettings.builder().listFullModels(true).build());
+
+        final ResourceHandlerRequest<ResourceModel> request = ResourceHandlerRequest.<ResourceModel>builder()
+                .desiredResourceState(ResourceModel.builder().build())
+                .build();
+
+        final CapacityReservation cr = CapacityReservation.builder()
+                .capacityReservationId("cr-121")
+                .availabilityZone("us-east-1a")
+                .instancePlatform("Windows")
+                .instanceType("t3.medium")
+                .state("active")
+                .totalInstanceCount(3)
+                .availableInstanceCount(1)
+                .endDateType("unlimited")
+                .tags(software.amazon.awssdk.services.ec2.model.Tag.builder().key("team").value("ec2").build())
+                .build();
+
+        when(proxy.injectCredentialsAndInvokeV2(any(), any()))
+                .thenReturn(DescribeCapacityReservationsResponse.builder().capacityReservations(cr).build());
+
+        final ProgressEvent<ResourceModel, CallbackContext> response =
+                handler.handleRequest(proxy, request, null, logger);
+
+        verify(proxy, times(1)).injectCredentialsAndInvokeV2(any(), any());
+        assertThat(response.getStatus()).isEqualTo(OperationStatus.SUCCESS);
+        assertThat(response.getResourceModels()).hasSize(1);
+        final ResourceModel listed = response.getResourceModels().get(0);
+        assertThat(listed).isEqualTo(Translator.translateFromCapacityReservation(cr));
+        assertThat(listed.getInstanceType()).isEqualTo("t3.medium");
+        assertThat(listed.getTotalInstanceCount()).isEqualTo(3);
+        assertThat(listed.getTagSpecifications().get(0).getTags()).hasSize(1);
+    }
+
+    private static DescribeCapacityReservationsResponse page(final String nextToken, final String... ids) {
+        return DescribeCapacityReservationsResponse.builder()
+                .capacityReservations(Arrays.stream(ids)
+                        .map(id -> CapacityReservation.builder().capacityReservationId(id).state("active").build())
+                        .collect(Collectors.toList()))
+                .nextToken(nextToken)
+                .build();
+    }
 }
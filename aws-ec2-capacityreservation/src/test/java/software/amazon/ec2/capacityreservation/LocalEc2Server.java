@@ -0,0 +1,354 @@
+package software.amazon.ec2.capacityreservation;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import software.amazon.awssdk.awscore.exception.AwsServiceException;
+import software.amazon.awssdk.services.ec2.Ec2Client;
+import software.amazon.awssdk.services.ec2.model.CancelCapacityReservationRequest;
+import software.amazon.awssdk.services.ec2.model.CapacityReservation;
+import software.amazon.awssdk.services.ec2.model.CreateCapacityReservationRequest;
+import software.amazon.awssdk.services.ec2.model.CreateCapacityReservationResponse;
+import software.amazon.awssdk.services.ec2.model.DescribeCapacityReservationsRequest;
+import software.amazon.awssdk.services.ec2.model.DescribeCapacityReservationsResponse;
+import software.amazon.awssdk.services.ec2.model.Filter;
+import software.amazon.awssdk.services.ec2.model.ModifyCapacityReservationRequest;
+import software.amazon.awssdk.services.ec2.model.Tag;
+import software.amazon.awssdk.services.ec2.model.TagSpecification;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UnsupportedEncodingException;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * EC2 Query protocol endpoint for the capacity reservation operations, served from a local {@link Ec2Client}
+ * (normally an {@link InMemoryEc2Client}, optionally wrapped by {@link SimulatedLatencyProxyClient} for latency and
+ * throttling). Point the real SDK at it with {@code ClientBuilder.getClient(region, server.endpoint())}, or run
+ * the handlers unchanged by setting {@code EC2_ENDPOINT_OVERRIDE} / {@code -Dec2.endpointOverride}.
+ * Requests are not authenticated.
+ */
+final class LocalEc2Server implements AutoCloseable {
+    private static final String NAMESPACE = "http://ec2.amazonaws.com/doc/2016-11-15/";
+
+    private final HttpServer server;
+    private final ExecutorService executor;
+    private final Ec2Client backend;
+
+    private LocalEc2Server(final HttpServer server, final ExecutorService executor, final Ec2Client backend) {
+        this.server = server;
+        this.executor = executor;
+        this.backend = backend;
+    }
+
+    /**
+     * @param port port to listen on, 0 picks a free one
+     * @param threads requests served concurrently
+     */
+    static LocalEc2Server start(final Ec2Client backend, final int port, final int threads) throws IOException {
+        final HttpServer server = HttpServer.create(new InetSocketAddress("127.0.0.1", port), 0);
+        final ExecutorService executor = Executors.newFixedThreadPool(threads);
+        final LocalEc2Server localServer = new LocalEc2Server(server, executor, backend);
+        server.createContext("/", localServer::handle);
+        server.setExecutor(executor);
+        server.start();
+        return localServer;
+    }
+
+    URI endpoint() {
+        return URI.create("http://127.0.0.1:" + server.getAddress().getPort());
+    }
+
+    @Override
+    public void close() {
+        server.stop(0);
+        executor.shutdownNow();
+    }
+
+    /**
+     * Serves until the process is stopped: {@code LocalEc2Server [port] [pendingDescribes] [medianLatencyMillis] [throttleRate]}.
+     */
+    public static void main(final String[] args) throws IOException {
+        final int port = args.length > 0 ? Integer.parseInt(args[0]) : 8080;
+        final int pendingDescribes = args.length > 1 ? Integer.parseInt(args[1]) : 1;
+        final double medianLatencyMillis = args.length > 2 ? Double.parseDouble(args[2]) : 0;
+        final double throttleRate = args.length > 3 ? Double.parseDouble(args[3]) : 0;
+        final SimulatedLatencyProxyClient simulated = new SimulatedLatencyProxyClient(new InMemoryEc2Client(pendingDescribes), System.nanoTime())
+                .withDefaultLatency(medianLatencyMillis > 0
+                        ? SimulatedLatencyProxyClient.LatencyDistribution.logNormal(medianLatencyMillis, medianLatencyMillis * 4)
+                        : SimulatedLatencyProxyClient.LatencyDistribution.none())
+                .withThrottleRate(throttleRate);
+        final LocalEc2Server server = start(simulated.client(), port, Runtime.getRuntime().availableProcessors() * 4);
+        System.out.println("Local EC2 endpoint listening on " + server.endpoint());
+    }
+
+    private void handle(final HttpExchange exchange) throws IOException {
+        final String requestId = UUID.randomUUID().toString();
+        int status = 200;
+        String body;
+        try {
+            final Map<String, String> params = parse(exchange);
+            body = dispatch(params.getOrDefault("Action", ""), params, requestId);
+        } catch (final AwsServiceException e) {
+            status = e.statusCode() > 0 ? e.statusCode() : 500;
+            body = errorResponse(e.awsErrorDetails() == null ? "InternalError" : e.awsErrorDetails().errorCode(),
+                    e.awsErrorDetails() == null ? e.getMessage() : e.awsErrorDetails().errorMessage(), requestId);
+        } catch (final RuntimeException e) {
+            status = 500;
+            body = errorResponse("InternalError", String.valueOf(e.getMessage()), requestId);
+        }
+        final byte[] bytes = body.getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().set("Content-Type", "text/xml;charset=UTF-8");
+        exchange.getResponseHeaders().set("x-amzn-RequestId", requestId);
+        exchange.sendResponseHeaders(status, bytes.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(bytes);
+        }
+    }
+
+    private String dispatch(final String action, final Map<String, String> params, final String requestId) {
+        final StringBuilder xml = open(action, requestId);
+        switch (action) {
+            case "CreateCapacityReservation": {
+                final CreateCapacityReservationResponse response = backend.createCapacityReservation(createRequest(params));
+                xml.append("<capacityReservation>");
+                reservation(xml, response.capacityReservation());
+                xml.append("</capacityReservation>");
+                break;
+            }
+            case "DescribeCapacityReservations": {
+                final DescribeCapacityReservationsResponse response = backend.describeCapacityReservations(describeRequest(params));
+                xml.append("<capacityReservationSet>");
+                for (final CapacityReservation reservation : response.capacityReservations()) {
+                    xml.append("<item>");
+                    reservation(xml, reservation);
+                    xml.append("</item>");
+                }
+                xml.append("</capacityReservationSet>");
+                element(xml, "nextToken", response.nextToken());
+                break;
+            }
+            case "ModifyCapacityReservation":
+                element(xml, "return", backend.modifyCapacityReservation(ModifyCapacityReservationRequest.builder()
+                        .capacityReservationId(params.get("CapacityReservationId"))
+                        .instanceCount(integer(params.get("InstanceCount")))
+                        .endDate(instant(params.get("EndDate")))
+                        .endDateType(params.get("EndDateType"))
+                        .accept(bool(params.get("Accept")))
+                        .build()).returnValue());
+                break;
+            case "CancelCapacityReservation":
+                element(xml, "return", backend.cancelCapacityReservation(CancelCapacityReservationRequest.builder()
+                        .capacityReservationId(params.get("CapacityReservationId"))
+                        .build()).returnValue());
+                break;
+            default:
+                throw InMemoryEc2Client.error(400, "InvalidAction", "The action " + action + " is not valid for this web service.");
+        }
+        return xml.append("</").append(action).append("Response>").toString();
+    }
+
+    private static CreateCapacityReservationRequest createRequest(final Map<String, String> params) {
+        final List<TagSpecification> tagSpecifications = new ArrayList<>();
+        for (final Map<String, String> specification : members(params, "TagSpecifications")) {
+            final List<Tag> tags = new ArrayList<>();
+            for (final Map<String, String> tag : members(specification, "Tag")) {
+                tags.add(Tag.builder().key(tag.get("Key")).value(tag.get("Value")).build());
+            }
+            tagSpecifications.add(TagSpecification.builder().resourceType(specification.get("ResourceType")).tags(tags).build());
+        }
+        return CreateCapacityReservationRequest.builder()
+                .instanceType(params.get("InstanceType"))
+                .instancePlatform(params.get("InstancePlatform"))
+                .availabilityZone(params.get("AvailabilityZone"))
+                .tenancy(params.get("Tenancy"))
+                .instanceCount(integer(params.get("InstanceCount")))
+                .ebsOptimized(bool(params.get("EbsOptimized")))
+                .ephemeralStorage(bool(params.get("EphemeralStorage")))
+                .endDate(instant(params.get("EndDate")))
+                .endDateType(params.get("EndDateType"))
+                .instanceMatchCriteria(params.get("InstanceMatchCriteria"))
+                .clientToken(params.get("ClientToken"))
+                .outpostArn(params.get("OutpostArn"))
+                .placementGroupArn(params.get("PlacementGroupArn"))
+                .tagSpecifications(tagSpecifications)
+                .build();
+    }
+
+    private static DescribeCapacityReservationsRequest describeRequest(final Map<String, String> params) {
+        final List<String> ids = new ArrayList<>();
+        for (int i = 1; params.containsKey("CapacityReservationId." + i); i++) {
+            ids.add(params.get("CapacityReservationId." + i));
+        }
+        final List<Filter> filters = new ArrayList<>();
+        for (final Map<String, String> filter : members(params, "Filter")) {
+            final List<String> values = new ArrayList<>();
+            for (int i = 1; filter.containsKey("Value." + i); i++) {
+                values.add(filter.get("Value." + i));
+            }
+            filters.add(Filter.builder().name(filter.get("Name")).values(values).build());
+        }
+        return DescribeCapacityReservationsRequest.builder()
+                .capacityReservationIds(ids)
+                .filters(filters)
+                .maxResults(integer(params.get("MaxResults")))
+                .nextToken(params.get("NextToken"))
+                .build();
+    }
+
+    /**
+     * Members of a Query protocol list: {@code Prefix.1.Name=a&Prefix.2.Name=b} gives {@code [{Name=a}, {Name=b}]}.
+     */
+    private static List<Map<String, String>> members(final Map<String, String> params, final String prefix) {
+        final List<Map<String, String>> members = new ArrayList<>();
+        for (int i = 1; ; i++) {
+            final String memberPrefix = prefix + "." + i + ".";
+            final Map<String, String> member = new HashMap<>();
+            params.forEach((key, value) -> {
+                if (key.startsWith(memberPrefix)) {
+                    member.put(key.substring(memberPrefix.length()), value);
+                }
+            });
+            if (member.isEmpty()) {
+                return members;
+            }
+            members.add(member);
+        }
+    }
+
+    private static void reservation(final StringBuilder xml, final CapacityReservation reservation) {
+        element(xml, "capacityReservationId", reservation.capacityReservationId());
+        element(xml, "ownerId", reservation.ownerId());
+        element(xml, "capacityReservationArn", reservation.capacityReservationArn());
+        element(xml, "instanceType", reservation.instanceType());
+        element(xml, "instancePlatform", reservation.instancePlatformAsString());
+        element(xml, "availabilityZone", reservation.availabilityZone());
+        element(xml, "tenancy", reservation.tenancyAsString());
+        element(xml, "totalInstanceCount", reservation.totalInstanceCount());
+        element(xml, "availableInstanceCount", reservation.availableInstanceCount());
+        element(xml, "ebsOptimized", reservation.ebsOptimized());
+        element(xml, "ephemeralStorage", reservation.ephemeralStorage());
+        element(xml, "state", reservation.stateAsString());
+        element(xml, "startDate", reservation.startDate());
+        element(xml, "endDate", reservation.endDate());
+        element(xml, "endDateType", reservation.endDateTypeAsString());
+        element(xml, "instanceMatchCriteria", reservation.instanceMatchCriteriaAsString());
+        element(xml, "createDate", reservation.createDate());
+        element(xml, "outpostArn", reservation.outpostArn());
+        element(xml, "placementGroupArn", reservation.placementGroupArn());
+        if (reservation.hasTags() && !reservation.tags().isEmpty()) {
+            xml.append("<tagSet>");
+            for (final Tag tag : reservation.tags()) {
+                xml.append("<item>");
+                element(xml, "key", tag.key());
+                element(xml, "value", tag.value());
+                xml.append("</item>");
+            }
+            xml.append("</tagSet>");
+        }
+    }
+
+    private static StringBuilder open(final String action, final String requestId) {
+        final StringBuilder xml = new StringBuilder(512)
+                .append("<?xml version=\"1.0\" encoding=\"UTF-8\"?>")
+                .append('<').append(action).append("Response xmlns=\"").append(NAMESPACE).append("\">");
+        element(xml, "requestId", requestId);
+        return xml;
+    }
+
+    private static String errorResponse(final String code, final String message, final String requestId) {
+        final StringBuilder xml = new StringBuilder(256)
+                .append("<?xml version=\"1.0\" encoding=\"UTF-8\"?><Response><Errors><Error>");
+        element(xml, "Code", code);
+        element(xml, "Message", message);
+        xml.append("</Error></Errors>");
+        element(xml, "RequestID", requestId);
+        return xml.append("</Response>").toString();
+    }
+
+    private static void element(final StringBuilder xml, final String name, final Object value) {
+        if (value == null) {
+            return;
+        }
+        xml.append('<').append(name).append('>');
+        // Timestamps go out with millisecond precision, as EC2 sends them
+        final String text = value instanceof Instant ? ((Instant) value).truncatedTo(ChronoUnit.MILLIS).toString() : String.valueOf(value);
+        for (int i = 0; i < text.length(); i++) {
+            final char c = text.charAt(i);
+            switch (c) {
+                case '<':
+                    xml.append("&lt;");
+                    break;
+                case '>':
+                    xml.append("&gt;");
+                    break;
+                case '&':
+                    xml.append("&amp;");
+                    break;
+                case '"':
+                    xml.append("&quot;");
+                    break;
+                default:
+                    xml.append(c);
+            }
+        }
+        xml.append("</").append(name).append('>');
+    }
+
+    private static Map<String, String> parse(final HttpExchange exchange) throws IOException {
+        final String query = "POST".equalsIgnoreCase(exchange.getRequestMethod())
+                ? read(exchange.getRequestBody())
+                : exchange.getRequestURI().getRawQuery();
+        final Map<String, String> params = new HashMap<>();
+        if (query == null || query.isEmpty()) {
+            return params;
+        }
+        for (final String pair : query.split("&")) {
+            final int separator = pair.indexOf('=');
+            if (separator < 0) {
+                params.put(decode(pair), "");
+            } else {
+                params.put(decode(pair.substring(0, separator)), decode(pair.substring(separator + 1)));
+            }
+        }
+        return params;
+    }
+
+    private static String read(final InputStream in) throws IOException {
+        final ByteArrayOutputStream out = new ByteArrayOutputStream();
+        final byte[] buffer = new byte[4096];
+        for (int read = in.read(buffer); read >= 0; read = in.read(buffer)) {
+            out.write(buffer, 0, read);
+        }
+        return new String(out.toByteArray(), StandardCharsets.UTF_8);
+    }
+
+    private static String decode(final String value) throws UnsupportedEncodingException {
+        return URLDecoder.decode(value, "UTF-8");
+    }
+
+    private static Integer integer(final String value) {
+        return value == null ? null : Integer.valueOf(value);
+    }
+
+    private static Boolean bool(final String value) {
+        return value == null ? null : Boolean.valueOf(value);
+    }
+
+    private static Instant instant(final String value) {
+        return value == null ? null : Instant.parse(value);
+    }
+}
@@ -0,0 +1,141 @@
+package software.amazon.ec2.capacityreservation;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import software.amazon.awssdk.awscore.exception.AwsServiceException;
+import software.amazon.awssdk.core.SdkSystemSetting;
+import software.amazon.awssdk.regions.Region;
+import software.amazon.awssdk.services.ec2.Ec2Client;
+import software.amazon.awssdk.services.ec2.model.DescribeCapacityReservationsRequest;
+import software.amazon.awssdk.services.ec2.model.DescribeCapacityReservationsResponse;
+import software.amazon.awssdk.services.ec2.model.Filter;
+import software.amazon.cloudformation.proxy.AmazonWebServicesClientProxy;
+import software.amazon.cloudformation.proxy.OperationStatus;
+import software.amazon.cloudformation.proxy.ProgressEvent;
+import software.amazon.cloudformation.proxy.ProxyClient;
+import software.amazon.cloudformation.proxy.ResourceHandlerRequest;
+
+import java.io.IOException;
+import java.time.Duration;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class LocalEc2ServerTest extends AbstractTestBase {
+
+    private InMemoryEc2Client backend;
+    private LocalEc2Server server;
+    private AmazonWebServicesClientProxy proxy;
+    private HandlerSettings settings;
+
+    @BeforeEach
+    public void setup() throws IOException {
+        backend = new InMemoryEc2Client(1);
+        server = LocalEc2Server.start(backend, 0, 4);
+        proxy = new AmazonWebServicesClientProxy(logger, MOCK_CREDENTIALS, () -> Duration.ofSeconds(600).toMillis());
+        settings = HandlerSettings.builder().stabilizationBaseDelaySeconds(1).build();
+    }
+
+    @AfterEach
+    public void tear_down() {
+        System.clearProperty(ClientBuilder.EC2_ENDPOINT_OVERRIDE_PROPERTY);
+        System.clearProperty(SdkSystemSetting.AWS_REGION.property());
+        ClientBuilder.closeAll();
+        server.close();
+    }
+
+    @Test
+    public void test_handlers_round_trip_through_the_sdk() {
+        final ProxyClient<Ec2Client> proxyClient = proxy.newProxy(() -> ClientBuilder.getClient(Region.US_EAST_1, server.endpoint()));
+
+        final ProgressEvent<ResourceModel, CallbackContext> created = complete(new CreateHandler(settings), proxyClient, ResourceModel.builder()
+                .instanceType("m5.large")
+                .availabilityZone("us-east-1a")
+                .instancePlatform("Linux/UNIX")
+                .instanceCount(2)
+                .build());
+        assertThat(created.getStatus()).isEqualTo(OperationStatus.SUCCESS);
+        final String id = created.getResourceModel().getId();
+        assertThat(backend.reservations()).containsKey(id);
+
+        final ProgressEvent<ResourceModel, CallbackContext> read = complete(new ReadHandler(settings), proxyClient, ResourceModel.builder().id(id).build());
+        assertThat(read.getResourceModel().getInstanceCount()).isEqualTo(2);
+
+        complete(new UpdateHandler(settings), proxyClient, ResourceModel.builder().id(id).instanceCount(3).build());
+        assertThat(backend.reservations().get(id).totalInstanceCount()).isEqualTo(3);
+
+        final ProgressEvent<ResourceModel, CallbackContext> deleted = complete(new DeleteHandler(settings), proxyClient, ResourceModel.builder().id(id).build());
+        assertThat(deleted.getStatus()).isEqualTo(OperationStatus.SUCCESS);
+        assertThat(backend.reservations().get(id).stateAsString()).isEqualTo("cancelled");
+    }
+
+    @Test
+    public void test_describe_supports_filters_pagination_and_errors() {
+        final ProxyClient<Ec2Client> proxyClient = proxy.newProxy(() -> ClientBuilder.getClient(Region.US_EAST_1, server.endpoint()));
+        for (int i = 0; i < 5; i++) {
+            complete(new CreateHandler(settings), proxyClient, ResourceModel.builder()
+                    .instanceType(i % 2 == 0 ? "m5.large" : "c5.large")
+                    .availabilityZone("us-east-1a")
+                    .instancePlatform("Linux/UNIX")
+                    .instanceCount(1)
+                    .build());
+        }
+
+        final DescribeCapacityReservationsResponse firstPage = proxyClient.injectCredentialsAndInvokeV2(DescribeCapacityReservationsRequest.builder()
+                .filters(Filter.builder().name("instance-type").values("m5.large").build())
+                .maxResults(2)
+                .build(), proxyClient.client()::describeCapacityReservations);
+        final DescribeCapacityReservationsResponse secondPage = proxyClient.injectCredentialsAndInvokeV2(DescribeCapacityReservationsRequest.builder()
+                .filters(Filter.builder().name("instance-type").values("m5.large").build())
+                .maxResults(2)
+                .nextToken(firstPage.nextToken())
+                .build(), proxyClient.client()::describeCapacityReservations);
+
+        assertThat(firstPage.capacityReservations()).hasSize(2).allMatch(reservation -> "m5.large".equals(reservation.instanceType()));
+        assertThat(secondPage.capacityReservations()).hasSize(1);
+        assertThat(secondPage.nextToken()).isNull();
+
+        final AwsServiceException notFound = Assertions.assertThrows(AwsServiceException.class, () -> proxyClient.injectCredentialsAndInvokeV2(
+                DescribeCapacityReservationsRequest.builder().capacityReservationIds("cr-0123456789abcdef0").build(),
+                proxyClient.client()::describeCapacityReservations));
+        assertThat(notFound.statusCode()).isEqualTo(400);
+        assertThat(notFound.awsErrorDetails().errorCode()).isEqualTo("InvalidCapacityReservationId.NotFound");
+    }
+
+    @Test
+    public void test_default_client_follows_endpoint_override() {
+        System.setProperty(ClientBuilder.EC2_ENDPOINT_OVERRIDE_PROPERTY, server.endpoint().toString());
+        System.setProperty(SdkSystemSetting.AWS_REGION.property(), "us-east-1");
+
+        final ProgressEvent<ResourceModel, CallbackContext> event = new CreateHandler(settings).handleRequest(proxy,
+                request(ResourceModel.builder()
+                        .instanceType("m5.large")
+                        .availabilityZone("us-east-1a")
+                        .instancePlatform("Linux/UNIX")
+                        .instanceCount(1)
+                        .build()), null, logger);
+
+        assertThat(ClientBuilder.defaultEndpoint()).isEqualTo(server.endpoint());
+        assertThat(event.getStatus()).isEqualTo(OperationStatus.IN_PROGRESS);
+        assertThat(backend.reservations()).hasSize(1);
+    }
+
+    private ProgressEvent<ResourceModel, CallbackContext> complete(final BaseHandlerStd handler, final ProxyClient<Ec2Client> proxyClient,
+                                                                   final ResourceModel model) {
+        final ResourceHandlerRequest<ResourceModel> request = request(model);
+        ProgressEvent<ResourceModel, CallbackContext> event = ProgressEvent.progress(model, new CallbackContext());
+        while (event.getStatus() == OperationStatus.IN_PROGRESS) {
+            request.setDesiredResourceState(event.getResourceModel());
+            event = handler.handleRequest(proxy, request, event.getCallbackContext(), proxyClient, logger);
+        }
+        return event;
+    }
+
+    private static ResourceHandlerRequest<ResourceModel> request(final ResourceModel model) {
+        return ResourceHandlerRequest.<ResourceModel>builder()
+                .desiredResourceState(model)
+                .previousResourceState(ResourceModel.builder().id(model.getId()).build())
+                .build();
+    }
+}
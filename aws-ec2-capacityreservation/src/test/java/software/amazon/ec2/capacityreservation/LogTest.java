@@ -0,0 +1,58 @@
+package software.amazon.ec2.capacityreservation;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import software.amazon.cloudformation.proxy.Logger;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class LogTest {
+
+    private final List<String> lines = new ArrayList<>();
+    private final Logger logger = lines::add;
+    private Log.Level previous;
+
+    @BeforeEach
+    public void setup() {
+        previous = Log.getLevel();
+    }
+
+    @AfterEach
+    public void tear_down() {
+        Log.setLevel(previous);
+    }
+
+    @Test
+    public void test_fields_are_rendered_as_key_values() {
+        Log.setLevel(Log.Level.INFO);
+
+        Log.info(logger, "Capacity reservation updated", "id", "cr-1", "state", "active", "message", "a \"quoted\" value");
+
+        assertThat(lines).containsExactly("[INFO] Capacity reservation updated id=cr-1 state=active message=\"a \\\"quoted\\\" value\"");
+    }
+
+    @Test
+    public void test_disabled_level_does_not_evaluate_suppliers() {
+        Log.setLevel(Log.Level.INFO);
+        final AtomicInteger evaluations = new AtomicInteger();
+
+        Log.debug(logger, "Describe response", "response", Log.lazy(evaluations::incrementAndGet));
+
+        assertThat(lines).isEmpty();
+        assertThat(evaluations.get()).isEqualTo(0);
+    }
+
+    @Test
+    public void test_enabled_level_evaluates_suppliers() {
+        Log.setLevel(Log.Level.DEBUG);
+
+        Log.debug(logger, "Describe response", "count", Log.lazy(() -> 3));
+
+        assertThat(lines).containsExactly("[DEBUG] Describe response count=3");
+    }
+}
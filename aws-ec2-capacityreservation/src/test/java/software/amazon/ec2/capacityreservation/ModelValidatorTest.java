@@ -0,0 +1,157 @@
+package software.amazon.ec2.capacityreservation;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class ModelValidatorTest {
+
+    @Test
+    public void test_valid_models() {
+        assertThat(ModelValidator.validateForCreate(valid().build())).isEmpty();
+        assertThat(ModelValidator.validateForCreate(valid()
+                .endDateType("limited")
+                .endDate("Fri Jan 01 00:00:00 GMT 2100")
+                .tenancy("dedicated")
+                .instanceMatchCriteria("targeted")
+                .instanceType("u-6tb1.metal")
+                .build())).isEmpty();
+        assertThat(ModelValidator.validateForCreate(valid().endDateType("unlimited").build())).isEmpty();
+    }
+
+    @Test
+    public void test_required_properties_come_from_the_schema() {
+        final List<String> problems = ModelValidator.validateForCreate(ResourceModel.builder()
+                .instancePlatform(" ")
+                .instanceType("t2.micro")
+                .build());
+
+        assertThat(problems).containsExactlyInAnyOrder(
+                "Required property InstanceCount is missing",
+                "Required property AvailabilityZone is missing",
+                "Required property InstancePlatform is missing");
+    }
+
+    @Test
+    public void test_end_date_rules() {
+        assertThat(ModelValidator.validateForCreate(valid().endDateType("limited").build()))
+                .containsExactly("EndDate is required when EndDateType is limited");
+        assertThat(ModelValidator.validateForCreate(valid().endDateType("unlimited").endDate("2100-01-01T00:00:00Z").build()))
+                .containsExactly("EndDate must be omitted when EndDateType is unlimited");
+
+        final List<String> unparseable = ModelValidator.validateForCreate(valid().endDateType("limited").endDate("next tuesday").build());
+        assertThat(unparseable).hasSize(1);
+        assertThat(unparseable.get(0)).startsWith("EndDate next tuesday is not a valid date");
+
+        final List<String> unknownType = ModelValidator.validateForCreate(valid().endDateType("sometimes").build());
+        assertThat(unknownType).containsExactly("EndDateType sometimes is not one of [limited, unlimited]");
+    }
+
+    @Test
+    public void test_ec2_value_rules() {
+        final List<String> problems = ModelValidator.validateForCreate(valid()
+                .instanceCount(0)
+                .instanceType("large")
+                .tenancy("host")
+                .instanceMatchCriteria("any")
+                .build());
+
+        assertThat(problems).hasSize(4);
+        assertThat(problems.get(0)).isEqualTo("InstanceType large is not an instance type such as m5.large");
+        assertThat(problems.get(1)).isEqualTo("Tenancy host is not one of [dedicated, default]");
+        assertThat(problems.get(2)).isEqualTo("InstanceMatchCriteria any is not one of [open, targeted]");
+        assertThat(problems.get(3)).isEqualTo("InstanceCount must be at least 1, got 0");
+    }
+
+    @Test
+    public void test_ec2_values_ignore_case() {
+        assertThat(ModelValidator.validateForCreate(valid()
+                .tenancy("Dedicated")
+                .instanceMatchCriteria("OPEN")
+                .endDateType("Limited")
+                .endDate("2100-01-01T00:00:00Z")
+                .build())).isEmpty();
+        assertThat(ModelValidator.validateForCreate(valid().endDateType("Limited").build()))
+                .containsExactly("EndDate is required when EndDateType is limited");
+    }
+
+    @Test
+    public void test_update_checks_only_present_properties() {
+        assertThat(ModelValidator.validateForUpdate(ResourceModel.builder().id("cr-123").instanceCount(3).build())).isEmpty();
+        assertThat(ModelValidator.validateForUpdate(ResourceModel.builder().instanceCount(3).build())).isEmpty();
+        assertThat(ModelValidator.validateForUpdate(ResourceModel.builder()
+                .id("cr-123")
+                .endDateType("limited")
+                .endDate("2022-08-31T23:59:59Z")
+                .build())).isEmpty();
+        assertThat(ModelValidator.validateForUpdate(ResourceModel.builder()
+                .id("cr-123")
+                .instanceCount(-1)
+                .endDateType("limited")
+                .build())).hasSize(2);
+    }
+
+    @Test
+    public void test_reserved_prefix_is_rejected() {
+        final ResourceModel model = valid().tagSpecifications(Collections.singletonList(
+                specification("capacity-reservation", tag("AWS:owner", "me")))).build();
+
+        assertThat(ModelValidator.validateForCreate(model))
+                .containsExactly("Tag key [AWS:owner] on capacity-reservation uses the reserved prefix aws:");
+        assertThat(ModelValidator.validateForCreate(valid().build(), Collections.singletonMap("aws:team", "x")))
+                .containsExactly("Tag key [aws:team] on capacity-reservation uses the reserved prefix aws:");
+    }
+
+    @Test
+    public void test_tag_limits_are_reported_with_other_problems() {
+        final Map<String, String> stackTags = IntStream.range(0, 50).boxed()
+                .collect(Collectors.toMap(i -> "key" + i, i -> "value"));
+        final String longKey = String.join("", Collections.nCopies(129, "k"));
+        final String longValue = String.join("", Collections.nCopies(257, "v"));
+        final ResourceModel model = valid()
+                .instanceCount(0)
+                .tagSpecifications(Arrays.asList(
+                        specification("capacity-reservation", tag("key0", "again"), tag("extra", "value")),
+                        specification("ec2-instance", tag(longKey, "v"), tag("k", longValue))))
+                .build();
+
+        assertThat(ModelValidator.validateForCreate(model, stackTags)).containsExactly(
+                "InstanceCount must be at least 1, got 0",
+                "Tag key [" + longKey + "] on ec2-instance must be 1 to 128 characters long",
+                "Value of tag [k] on ec2-instance exceeds 256 characters",
+                "51 tags requested on capacity-reservation, at most 50 are allowed");
+    }
+
+    @Test
+    public void test_tag_limits_count_distinct_keys() {
+        final Map<String, String> stackTags = IntStream.range(0, 50).boxed()
+                .collect(Collectors.toMap(i -> "key" + i, i -> "value"));
+        final ResourceModel model = valid().tagSpecifications(Collections.singletonList(
+                specification("Capacity-Reservation", tag("key0", "override")))).build();
+
+        assertThat(ModelValidator.validateForCreate(model, stackTags)).isEmpty();
+    }
+
+    private static TagSpecification specification(final String resourceType, final Tag... tags) {
+        return TagSpecification.builder().resourceType(resourceType).tags(Arrays.asList(tags)).build();
+    }
+
+    private static Tag tag(final String key, final String value) {
+        return Tag.builder().key(key).value(value).build();
+    }
+
+    private static ResourceModel.ResourceModelBuilder valid() {
+        return ResourceModel.builder()
+                .instanceType("m5.large")
+                .availabilityZone("us-east-1a")
+                .instancePlatform("Linux/UNIX")
+                .instanceCount(1);
+    }
+}
@@ -4,8 +4,10 @@ import org.junit.jupiter.api.Assertions;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
+import software.amazon.awssdk.awscore.exception.AwsErrorDetails;
 import software.amazon.awssdk.awscore.exception.AwsServiceException;
 import software.amazon.awssdk.services.ec2.Ec2Client;
 import software.amazon.awssdk.services.ec2.model.CapacityReservation;
@@ -13,16 +15,25 @@ import software.amazon.awssdk.services.ec2.model.DescribeCapacityReservationsReq
 import software.amazon.awssdk.services.ec2.model.DescribeCapacityReservationsResponse;
 import software.amazon.cloudformation.exceptions.CfnNotFoundException;
 import software.amazon.cloudformation.proxy.AmazonWebServicesClientProxy;
+import software.amazon.cloudformation.proxy.HandlerErrorCode;
 import software.amazon.cloudformation.proxy.OperationStatus;
 import software.amazon.cloudformation.proxy.ProgressEvent;
 import software.amazon.cloudformation.proxy.ProxyClient;
 import software.amazon.cloudformation.proxy.ResourceHandlerRequest;
 
 import java.time.Duration;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
 
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
 @ExtendWith(MockitoExtension.class)
@@ -98,6 +109,59 @@ public class ReadHandlerTest extends AbstractTestBase {
         assertThat(response.getStatus()).isEqualTo(OperationStatus.FAILED);
     }
 
+    @Test
+    public void test_empty_describe_is_reported_as_not_found() {
+        final ReadHandler handler = new ReadHandler();
+
+        final ResourceModel model = ResourceModel.builder()
+                .id("cr-404")
+                .build();
+
+        when(ec2Client.describeCapacityReservations(any(DescribeCapacityReservationsRequest.class)))
+                .thenReturn(DescribeCapacityReservationsResponse.builder().build());
+
+        final ResourceHandlerRequest<ResourceModel> request = ResourceHandlerRequest.<ResourceModel>builder()
+                .desiredResourceState(model)
+                .build();
+
+        final ProgressEvent<ResourceModel, CallbackContext> response = handler.handleRequest(proxy, request, new CallbackContext(), proxyClient, logger);
+
+        assertThat(response.getStatus()).isEqualTo(OperationStatus.FAILED);
+        assertThat(response.getErrorCode()).isEqualTo(HandlerErrorCode.NotFound);
+    }
+
+    @Test
+    public void test_throttled_describe_is_retried_then_reported_as_throttling() {
+        final ReadHandler handler = new ReadHandler();
+        final AwsServiceException throttled = AwsServiceException.builder()
+                .statusCode(503)
+                .awsErrorDetails(AwsErrorDetails.builder().errorCode("RequestLimitExceeded").build())
+                .build();
+        final CapacityReservation cr = CapacityReservation.builder()
+                .capacityReservationId("cr-101")
+                .state("active")
+                .totalInstanceCount(1)
+                .build();
+        when(ec2Client.describeCapacityReservations(any(DescribeCapacityReservationsRequest.class)))
+                .thenThrow(throttled)
+                .thenReturn(DescribeCapacityReservationsResponse.builder().capacityReservations(cr).build())
+                .thenThrow(throttled);
+        final AdaptiveRateLimiter limiter = new AdaptiveRateLimiter(10, 10, System::nanoTime);
+        final ProxyClient<Ec2Client> rateLimited = new RateLimitedProxyClient(proxyClient, new ThrottlingRetry(limiter, 2, 1, millis -> { }));
+        final ResourceHandlerRequest<ResourceModel> request = ResourceHandlerRequest.<ResourceModel>builder()
+                .desiredResourceState(ResourceModel.builder().id("cr-101").build())
+                .build();
+
+        final ProgressEvent<ResourceModel, CallbackContext> retried = handler.handleRequest(proxy, request, new CallbackContext(), rateLimited, logger);
+        final ProgressEvent<ResourceModel, CallbackContext> exhausted = handler.handleRequest(proxy, request, new CallbackContext(), rateLimited, logger);
+
+        assertThat(retried.getStatus()).isEqualTo(OperationStatus.SUCCESS);
+        assertThat(exhausted.getStatus()).isEqualTo(OperationStatus.FAILED);
+        assertThat(exhausted.getErrorCode()).isEqualTo(HandlerErrorCode.Throttling);
+        assertThat(limiter.getThrottles()).isEqualTo(3);
+        verify(ec2Client, times(4)).describeCapacityReservations(any(DescribeCapacityReservationsRequest.class));
+    }
+
     @Test
     public void test_reading_cancelled_cr() {
         final ReadHandler handler = new ReadHandler();
@@ -127,4 +191,125 @@ public class ReadHandlerTest extends AbstractTestBase {
             handler.handleRequest(proxy, request, new CallbackContext(), proxyClient, logger);
         });
     }
+
+    @Test
+    public void test_coalesced_read_of_cancelled_cr() {
+        final ReadHandler handler = new ReadHandler(HandlerSettings.builder()
+                .describeCoalescingEnabled(true)
+                .describeCoalescingWindowMillis(0)
+                .build());
+
+        final CapacityReservation cr = CapacityReservation.builder()
+                .capacityReservationId("cr-101")
+                .state("cancelled")
+                .build();
+
+        when(ec2Client.describeCapacityReservations(any(DescribeCapacityReservationsRequest.class)))
+                .thenReturn(DescribeCapacityReservationsResponse.builder().capacityReservations(cr).build());
+
+        final ResourceHandlerRequest<ResourceModel> request = ResourceHandlerRequest.<ResourceModel>builder()
+                .desiredResourceState(ResourceModel.builder().id("cr-101").build())
+                .awsAccountId("123456789012")
+                .region("us-east-1")
+                .build();
+
+        Assertions.assertThrows(CfnNotFoundException.class, () ->
+                handler.handleRequest(proxy, request, new CallbackContext(), proxyClient, logger));
+    }
+
+    @Test
+    public void test_cached_read_until_invalidated() {
+        ReservationCache.shared().invalidateAll();
+        final ReadHandler handler = new ReadHandler(HandlerSettings.builder().reservationCacheTtlMillis(5_000).build());
+
+        final CapacityReservation cr = CapacityReservation.builder()
+                .capacityReservationId("cr-101")
+                .state("active")
+                .build();
+
+        when(ec2Client.describeCapacityReservations(any(DescribeCapacityReservationsRequest.class)))
+                .thenReturn(DescribeCapacityReservationsResponse.builder().capacityReservations(cr).build());
+
+        final ResourceHandlerRequest<ResourceModel> request = ResourceHandlerRequest.<ResourceModel>builder()
+                .desiredResourceState(ResourceModel.builder().id("cr-101").build())
+                .awsAccountId("123456789012")
+                .region("us-east-1")
+                .build();
+
+        assertThat(handler.handleRequest(proxy, request, new CallbackContext(), proxyClient, logger).getStatus()).isEqualTo(OperationStatus.SUCCESS);
+        assertThat(handler.handleRequest(proxy, request, new CallbackContext(), proxyClient, logger).getStatus()).isEqualTo(OperationStatus.SUCCESS);
+        verify(ec2Client, times(1)).describeCapacityReservations(any(DescribeCapacityReservationsRequest.class));
+
+        handler.invalidateCachedReservation(request, "cr-101");
+        assertThat(handler.handleRequest(proxy, request, new CallbackContext(), proxyClient, logger).getStatus()).isEqualTo(OperationStatus.SUCCESS);
+        verify(ec2Client, times(2)).describeCapacityReservations(any(DescribeCapacityReservationsRequest.class));
+    }
+
+    @Test
+    public void test_batch_describe_isolates_unknown_ids() {
+        final ReadHandler handler = new ReadHandler();
+
+        final Map<String, CapacityReservation> known = new HashMap<>();
+        known.put("cr-1", CapacityReservation.builder().capacityReservationId("cr-1").state("active").build());
+        known.put("cr-2", CapacityReservation.builder().capacityReservationId("cr-2").state("cancelled").build());
+        known.put("cr-4", CapacityReservation.builder().capacityReservationId("cr-4").state("pending").build());
+
+        when(ec2Client.describeCapacityReservations(any(DescribeCapacityReservationsRequest.class))).thenAnswer(invocation ->
+                describeKnown(known, invocation.getArgument(0)));
+
+        final Map<String, CapacityReservationLookup> lookups = handler.describeCapacityReservations(
+                Arrays.asList("cr-1", "cr-2", "cr-3", "cr-4", "cr-1"), proxyClient, logger);
+
+        assertThat(lookups.keySet()).containsExactly("cr-1", "cr-2", "cr-3", "cr-4");
+        assertThat(lookups.get("cr-1").getStatus()).isEqualTo(CapacityReservationLookup.Status.FOUND);
+        assertThat(lookups.get("cr-2").getStatus()).isEqualTo(CapacityReservationLookup.Status.CANCELLED);
+        assertThat(lookups.get("cr-3").getStatus()).isEqualTo(CapacityReservationLookup.Status.NOT_FOUND);
+        assertThat(lookups.get("cr-3").getCapacityReservation()).isNull();
+        assertThat(lookups.get("cr-4").getCapacityReservation().stateAsString()).isEqualTo("pending");
+    }
+
+    @Test
+    public void test_batch_describe_chunks_ids() {
+        final ReadHandler handler = new ReadHandler();
+
+        final Map<String, CapacityReservation> known = new HashMap<>();
+        final List<String> ids = IntStream.range(0, 250).mapToObj(i -> "cr-" + i).collect(Collectors.toList());
+        ids.forEach(id -> known.put(id, CapacityReservation.builder().capacityReservationId(id).state("active").build()));
+
+        when(ec2Client.describeCapacityReservations(any(DescribeCapacityReservationsRequest.class))).thenAnswer(invocation ->
+                describeKnown(known, invocation.getArgument(0)));
+
+        final Map<String, CapacityReservationLookup> lookups = handler.describeCapacityReservations(ids, proxyClient, logger);
+
+        final ArgumentCaptor<DescribeCapacityReservationsRequest> captor = ArgumentCaptor.forClass(DescribeCapacityReservationsRequest.class);
+        verify(ec2Client, times(3)).describeCapacityReservations(captor.capture());
+        assertThat(captor.getAllValues().stream().map(request -> request.capacityReservationIds().size()).collect(Collectors.toList()))
+                .containsExactly(100, 100, 50);
+        assertThat(lookups).hasSize(250);
+        assertThat(lookups.values()).allMatch(CapacityReservationLookup::isFound);
+    }
+
+    @Test
+    public void test_batch_describe_rethrows_other_errors() {
+        final ReadHandler handler = new ReadHandler();
+
+        when(ec2Client.describeCapacityReservations(any(DescribeCapacityReservationsRequest.class)))
+                .thenThrow(AwsServiceException.builder().message("serviceException").statusCode(500).build());
+
+        Assertions.assertThrows(AwsServiceException.class, () ->
+                handler.describeCapacityReservations(Arrays.asList("cr-1", "cr-2"), proxyClient, logger));
+    }
+
+    private static DescribeCapacityReservationsResponse describeKnown(final Map<String, CapacityReservation> known,
+                                                                      final DescribeCapacityReservationsRequest request) {
+        if (!known.keySet().containsAll(request.capacityReservationIds())) {
+            throw AwsServiceException.builder()
+                    .awsErrorDetails(AwsErrorDetails.builder().errorCode("InvalidCapacityReservationId.NotFound").build())
+                    .statusCode(400)
+                    .build();
+        }
+        return DescribeCapacityReservationsResponse.builder()
+                .capacityReservations(request.capacityReservationIds().stream().map(known::get).collect(Collectors.toList()))
+                .build();
+    }
 }
@@ -0,0 +1,65 @@
+package software.amazon.ec2.capacityreservation;
+
+import org.junit.jupiter.api.Test;
+import software.amazon.awssdk.services.ec2.model.CapacityReservation;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class ReservationCacheTest {
+
+    private static final long TTL = 60_000;
+
+    @Test
+    public void test_hit_and_miss_are_counted() {
+        final ReservationCache cache = new ReservationCache(10);
+        final String key = ReservationCache.key("123456789012", "us-east-1", "cr-1");
+
+        assertThat(cache.get(key, TTL)).isEmpty();
+        cache.put(key, reservation("cr-1"), cache.generation());
+
+        assertThat(cache.get(key, TTL)).contains(reservation("cr-1"));
+        assertThat(cache.getHits()).isEqualTo(1);
+        assertThat(cache.getMisses()).isEqualTo(1);
+    }
+
+    @Test
+    public void test_expired_entry_is_not_served() {
+        final ReservationCache cache = new ReservationCache(10);
+        final String key = ReservationCache.key("123456789012", "us-east-1", "cr-1");
+        cache.put(key, reservation("cr-1"), cache.generation());
+
+        assertThat(cache.get(key, -1)).isEmpty();
+        assertThat(cache.size()).isEqualTo(0);
+    }
+
+    @Test
+    public void test_least_recently_used_entry_is_evicted() {
+        final ReservationCache cache = new ReservationCache(2);
+        cache.put("a", reservation("cr-a"), cache.generation());
+        cache.put("b", reservation("cr-b"), cache.generation());
+        cache.get("a", TTL);
+
+        cache.put("c", reservation("cr-c"), cache.generation());
+
+        assertThat(cache.get("a", TTL)).isPresent();
+        assertThat(cache.get("b", TTL)).isEmpty();
+        assertThat(cache.get("c", TTL)).isPresent();
+    }
+
+    @Test
+    public void test_describe_started_before_invalidation_is_not_stored() {
+        final ReservationCache cache = new ReservationCache(10);
+        final String key = ReservationCache.key("123456789012", "us-east-1", "cr-1");
+
+        final long readGeneration = cache.generation();
+        cache.invalidate(key);
+        cache.put(key, reservation("cr-1"), readGeneration);
+
+        assertThat(cache.get(key, TTL)).isEmpty();
+        assertThat(cache.getInvalidations()).isEqualTo(1);
+    }
+
+    private static CapacityReservation reservation(final String id) {
+        return CapacityReservation.builder().capacityReservationId(id).state("active").build();
+    }
+}
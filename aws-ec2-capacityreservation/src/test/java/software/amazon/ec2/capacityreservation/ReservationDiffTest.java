@@ -0,0 +1,99 @@
+package software.amazon.ec2.capacityreservation;
+
+import org.junit.jupiter.api.Test;
+import software.amazon.awssdk.services.ec2.model.CapacityReservation;
+import software.amazon.awssdk.services.ec2.model.ModifyCapacityReservationRequest;
+import software.amazon.cloudformation.proxy.LoggerProxy;
+
+import java.time.Instant;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class ReservationDiffTest {
+    private static final LoggerProxy logger = new LoggerProxy();
+
+    private static final CapacityReservation LIVE = CapacityReservation.builder()
+            .capacityReservationId("cr-121")
+            .totalInstanceCount(2)
+            .endDateType("limited")
+            .endDate(Instant.parse("2100-01-01T00:00:00Z"))
+            .build();
+
+    @Test
+    public void test_same_end_date_in_other_format_is_not_a_change() {
+        final ResourceModel desired = ResourceModel.builder()
+                .id("cr-121")
+                .instanceCount(2)
+                .endDateType("limited")
+                .endDate("Fri Jan 01 00:00:00 GMT 2100")
+                .build();
+
+        final ReservationDiff diff = ReservationDiff.compute(desired, LIVE, logger);
+
+        assertThat(diff.hasChanges()).isFalse();
+    }
+
+    @Test
+    public void test_instance_count_change_sends_only_instance_count() {
+        final ResourceModel desired = ResourceModel.builder()
+                .id("cr-121")
+                .instanceCount(5)
+                .endDateType("limited")
+                .endDate("2100-01-01T00:00:00Z")
+                .build();
+
+        final ReservationDiff diff = ReservationDiff.compute(desired, LIVE, logger);
+        final ModifyCapacityReservationRequest modifyRequest = Translator.translateToUpdateRequest(desired, diff, logger);
+
+        assertThat(diff.getChangedFields()).containsExactly(ReservationDiff.Field.INSTANCE_COUNT);
+        assertThat(modifyRequest.instanceCount()).isEqualTo(5);
+        assertThat(modifyRequest.endDate()).isNull();
+        assertThat(modifyRequest.endDateType()).isNull();
+    }
+
+    @Test
+    public void test_end_date_change_sends_end_date_with_type() {
+        final ResourceModel desired = ResourceModel.builder()
+                .id("cr-121")
+                .endDate("2101-01-01T00:00:00Z")
+                .build();
+
+        final ReservationDiff diff = ReservationDiff.compute(desired, LIVE, logger);
+        final ModifyCapacityReservationRequest modifyRequest = Translator.translateToUpdateRequest(desired, diff, logger);
+
+        assertThat(diff.getChangedFields()).containsExactly(ReservationDiff.Field.END_DATE);
+        assertThat(modifyRequest.endDateTypeAsString()).isEqualTo("limited");
+        assertThat(modifyRequest.endDate()).isEqualTo(Instant.parse("2101-01-01T00:00:00Z"));
+        assertThat(modifyRequest.instanceCount()).isNull();
+    }
+
+    @Test
+    public void test_omitted_end_date_type_leaves_end_date_untouched() {
+        final ResourceModel desired = ResourceModel.builder()
+                .id("cr-121")
+                .instanceCount(3)
+                .build();
+
+        final ReservationDiff diff = ReservationDiff.compute(desired, LIVE, logger);
+        final ModifyCapacityReservationRequest modifyRequest = Translator.translateToUpdateRequest(desired, diff, logger);
+
+        assertThat(diff.getChangedFields()).containsExactly(ReservationDiff.Field.INSTANCE_COUNT);
+        assertThat(modifyRequest.endDateType()).isNull();
+        assertThat(modifyRequest.endDate()).isNull();
+    }
+
+    @Test
+    public void test_explicit_unlimited_end_date_type_is_sent() {
+        final ResourceModel desired = ResourceModel.builder()
+                .id("cr-121")
+                .endDateType("unlimited")
+                .build();
+
+        final ReservationDiff diff = ReservationDiff.compute(desired, LIVE, logger);
+        final ModifyCapacityReservationRequest modifyRequest = Translator.translateToUpdateRequest(desired, diff, logger);
+
+        assertThat(diff.getChangedFields()).containsExactly(ReservationDiff.Field.END_DATE_TYPE);
+        assertThat(modifyRequest.endDateTypeAsString()).isEqualTo("unlimited");
+        assertThat(modifyRequest.endDate()).isNull();
+    }
+}
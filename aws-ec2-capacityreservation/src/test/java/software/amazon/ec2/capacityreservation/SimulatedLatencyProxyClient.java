@@ -0,0 +1,211 @@
+package software.amazon.ec2.capacityreservation;
+
+import software.amazon.awssdk.awscore.AwsRequest;
+import software.amazon.awssdk.awscore.AwsResponse;
+import software.amazon.awssdk.core.ResponseBytes;
+import software.amazon.awssdk.core.ResponseInputStream;
+import software.amazon.awssdk.core.pagination.sync.SdkIterable;
+import software.amazon.awssdk.services.ec2.Ec2Client;
+import software.amazon.cloudformation.proxy.ProxyClient;
+
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.Map;
+import java.util.Random;
+import java.util.TreeMap;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+/**
+ * {@link ProxyClient} over an {@link Ec2Client} that behaves like a remote endpoint: every EC2 operation waits for
+ * a latency drawn from a per-operation distribution, a configurable share of calls is throttled with
+ * {@code RequestLimitExceeded}, and arbitrary errors can be injected per operation. The simulation sits on the
+ * client returned by {@link #client()}, so calls made through {@code AmazonWebServicesClientProxy} directly, as the
+ * list handler does, are simulated and counted as well.
+ */
+class SimulatedLatencyProxyClient implements ProxyClient<Ec2Client> {
+
+    /**
+     * Latency of a single call in milliseconds.
+     */
+    @FunctionalInterface
+    interface LatencyDistribution {
+        long sampleMillis(Random random);
+
+        static LatencyDistribution none() {
+            return random -> 0L;
+        }
+
+        static LatencyDistribution fixed(final long millis) {
+            return random -> millis;
+        }
+
+        static LatencyDistribution uniform(final long minMillis, final long maxMillis) {
+            return random -> minMillis + (long) (random.nextDouble() * (maxMillis - minMillis));
+        }
+
+        /**
+         * Long-tailed latency with the given median and 99th percentile, the usual shape of service latencies.
+         */
+        static LatencyDistribution logNormal(final double medianMillis, final double p99Millis) {
+            final double mu = Math.log(medianMillis);
+            final double sigma = (Math.log(p99Millis) - mu) / 2.326;
+            return random -> Math.round(Math.exp(mu + sigma * random.nextGaussian()));
+        }
+    }
+
+    private static final class Fault {
+        private final double rate;
+        private final Supplier<? extends RuntimeException> error;
+
+        private Fault(final double rate, final Supplier<? extends RuntimeException> error) {
+            this.rate = rate;
+            this.error = error;
+        }
+    }
+
+    private final Ec2Client delegate;
+    private final Ec2Client client;
+    private final Random random;
+    private final Map<String, LatencyDistribution> latencies = new ConcurrentHashMap<>();
+    private final Map<String, Fault> faults = new ConcurrentHashMap<>();
+    private final ConcurrentMap<String, LongAdder> calls = new ConcurrentHashMap<>();
+    private final ConcurrentMap<String, LongAdder> throttles = new ConcurrentHashMap<>();
+    private volatile LatencyDistribution defaultLatency = LatencyDistribution.none();
+    private volatile double throttleRate;
+
+    SimulatedLatencyProxyClient(final Ec2Client delegate, final long seed) {
+        this.delegate = delegate;
+        this.random = new Random(seed);
+        this.client = (Ec2Client) Proxy.newProxyInstance(Ec2Client.class.getClassLoader(), new Class<?>[]{Ec2Client.class},
+                (target, method, args) -> invoke(method, args));
+    }
+
+    SimulatedLatencyProxyClient withDefaultLatency(final LatencyDistribution latency) {
+        this.defaultLatency = latency;
+        return this;
+    }
+
+    /**
+     * @param operation EC2 operation name, for example {@code DescribeCapacityReservations}
+     */
+    SimulatedLatencyProxyClient withLatency(final String operation, final LatencyDistribution latency) {
+        latencies.put(operation, latency);
+        return this;
+    }
+
+    /**
+     * Fails the given share of all calls, after their latency, with a {@code RequestLimitExceeded} error.
+     */
+    SimulatedLatencyProxyClient withThrottleRate(final double rate) {
+        this.throttleRate = rate;
+        return this;
+    }
+
+    /**
+     * Fails the given share of calls to one operation with the supplied error.
+     */
+    SimulatedLatencyProxyClient withError(final String operation, final double rate, final Supplier<? extends RuntimeException> error) {
+        faults.put(operation, new Fault(rate, error));
+        return this;
+    }
+
+    /**
+     * Calls per operation since creation, including throttled and failed ones.
+     */
+    Map<String, Long> callCounts() {
+        return snapshot(calls);
+    }
+
+    Map<String, Long> throttleCounts() {
+        return snapshot(throttles);
+    }
+
+    @Override
+    public <RequestT extends AwsRequest, ResponseT extends AwsResponse> ResponseT
+    injectCredentialsAndInvokeV2(final RequestT request, final Function<RequestT, ResponseT> requestFunction) {
+        return requestFunction.apply(request);
+    }
+
+    @Override
+    public <RequestT extends AwsRequest, ResponseT extends AwsResponse> CompletableFuture<ResponseT>
+    injectCredentialsAndInvokeV2Async(final RequestT request, final Function<RequestT, CompletableFuture<ResponseT>> requestFunction) {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public <RequestT extends AwsRequest, ResponseT extends AwsResponse, IterableT extends SdkIterable<ResponseT>> IterableT
+    injectCredentialsAndInvokeIterableV2(final RequestT request, final Function<RequestT, IterableT> requestFunction) {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public <RequestT extends AwsRequest, ResponseT extends AwsResponse> ResponseInputStream<ResponseT>
+    injectCredentialsAndInvokeV2InputStream(final RequestT request, final Function<RequestT, ResponseInputStream<ResponseT>> requestFunction) {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public <RequestT extends AwsRequest, ResponseT extends AwsResponse> ResponseBytes<ResponseT>
+    injectCredentialsAndInvokeV2Bytes(final RequestT request, final Function<RequestT, ResponseBytes<ResponseT>> requestFunction) {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public Ec2Client client() {
+        return client;
+    }
+
+    private Object invoke(final Method method, final Object[] args) throws Throwable {
+        if (args != null && args.length == 1 && args[0] instanceof AwsRequest) {
+            simulate(operationName(method.getName()));
+        }
+        try {
+            return method.invoke(delegate, args);
+        } catch (final InvocationTargetException e) {
+            throw e.getCause();
+        }
+    }
+
+    private void simulate(final String operation) {
+        calls.computeIfAbsent(operation, key -> new LongAdder()).increment();
+        final long latencyMillis;
+        final boolean throttled;
+        final Fault fault = faults.get(operation);
+        final boolean failed;
+        synchronized (random) {
+            latencyMillis = latencies.getOrDefault(operation, defaultLatency).sampleMillis(random);
+            throttled = throttleRate > 0 && random.nextDouble() < throttleRate;
+            failed = fault != null && random.nextDouble() < fault.rate;
+        }
+        if (latencyMillis > 0) {
+            try {
+                Thread.sleep(latencyMillis);
+            } catch (final InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        if (throttled) {
+            throttles.computeIfAbsent(operation, key -> new LongAdder()).increment();
+            throw InMemoryEc2Client.error(503, "RequestLimitExceeded", "Request limit exceeded.");
+        }
+        if (failed) {
+            throw fault.error.get();
+        }
+    }
+
+    private static String operationName(final String methodName) {
+        return Character.toUpperCase(methodName.charAt(0)) + methodName.substring(1);
+    }
+
+    private static Map<String, Long> snapshot(final Map<String, LongAdder> counters) {
+        final Map<String, Long> counts = new TreeMap<>();
+        counters.forEach((operation, counter) -> counts.put(operation, counter.sum()));
+        return counts;
+    }
+}
@@ -0,0 +1,88 @@
+package software.amazon.ec2.capacityreservation;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class TagMergerTest {
+
+    @Test
+    public void test_precedence_for_conflicting_keys() {
+        final Map<String, String> stackTags = new LinkedHashMap<>();
+        stackTags.put("team", "stack");
+        stackTags.put("env", "prod");
+        final Map<String, String> systemTags = Collections.singletonMap("aws:cloudformation:stack-name", "my-stack");
+        final List<TagSpecification> specifications = Arrays.asList(
+                specification("capacity-reservation", tag("team", "first")),
+                specification("capacity-reservation", tag("team", "resource"), tag("owner", "ec2")));
+
+        final List<software.amazon.awssdk.services.ec2.model.TagSpecification> merged = TagMerger.merge(stackTags, systemTags, specifications);
+
+        assertThat(merged).hasSize(1);
+        assertThat(merged.get(0).resourceTypeAsString()).isEqualTo("capacity-reservation");
+        assertThat(asMap(merged.get(0)))
+                .containsEntry("team", "resource")
+                .containsEntry("env", "prod")
+                .containsEntry("owner", "ec2")
+                .containsEntry("aws:cloudformation:stack-name", "my-stack")
+                .hasSize(4);
+    }
+
+    @Test
+    public void test_other_resource_types_are_grouped_and_deduplicated() {
+        final List<TagSpecification> specifications = Arrays.asList(
+                specification("ec2-instance", tag("a", "1")),
+                specification("capacity-reservation", tag("b", "2")),
+                specification("ec2-instance", tag("a", "3"), tag("c", "4")));
+
+        final List<software.amazon.awssdk.services.ec2.model.TagSpecification> merged = TagMerger.merge(null, null, specifications);
+
+        assertThat(merged).hasSize(2);
+        assertThat(merged.get(0).resourceTypeAsString()).isEqualTo("ec2-instance");
+        assertThat(asMap(merged.get(0)).keySet()).containsExactly("a", "c");
+        assertThat(asMap(merged.get(0))).containsEntry("a", "3").containsEntry("c", "4");
+        assertThat(merged.get(1).resourceTypeAsString()).isEqualTo("capacity-reservation");
+        assertThat(asMap(merged.get(1))).isEqualTo(Collections.singletonMap("b", "2"));
+    }
+
+    @Test
+    public void test_nothing_to_tag() {
+        assertThat(TagMerger.merge(null, null, null)).isEmpty();
+        assertThat(TagMerger.merge(new HashMap<>(), new HashMap<>(), new ArrayList<>())).isEmpty();
+    }
+
+    @Test
+    public void test_system_tags_do_not_count_against_limit() {
+        final Map<String, String> stackTags = IntStream.range(0, 50).boxed()
+                .collect(Collectors.toMap(i -> "key" + i, i -> "value"));
+        final Map<String, String> systemTags = Collections.singletonMap("aws:cloudformation:logical-id", "Reservation");
+
+        final List<software.amazon.awssdk.services.ec2.model.TagSpecification> merged = TagMerger.merge(stackTags, systemTags, null);
+
+        assertThat(merged.get(0).tags()).hasSize(51);
+    }
+
+    private static TagSpecification specification(final String resourceType, final Tag... tags) {
+        return TagSpecification.builder().resourceType(resourceType).tags(Arrays.asList(tags)).build();
+    }
+
+    private static Tag tag(final String key, final String value) {
+        return Tag.builder().key(key).value(value).build();
+    }
+
+    private static Map<String, String> asMap(final software.amazon.awssdk.services.ec2.model.TagSpecification specification) {
+        final Map<String, String> tags = new LinkedHashMap<>();
+        specification.tags().forEach(tag -> tags.put(tag.key(), tag.value()));
+        return tags;
+    }
+}
@@ -22,11 +22,14 @@ import software.amazon.cloudformation.proxy.ProxyClient;
 import software.amazon.cloudformation.proxy.ResourceHandlerRequest;
 
 import java.time.Duration;
+import java.time.Instant;
 
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.Mockito.atLeastOnce;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.verifyNoMoreInteractions;
 import static org.mockito.Mockito.when;
@@ -92,6 +95,10 @@ public class UpdateHandlerTest extends AbstractTestBase {
 
         assertThat(response).isNotNull();
         assertThat(response.getStatus()).isEqualTo(OperationStatus.SUCCESS);
+        assertThat(response.getResourceModel().getId()).isEqualTo("cr-121");
+        assertThat(response.getResourceModel().getEndDate()).isEqualTo("2022-08-31T23:59:59Z");
+        assertThat(response.getResourceModel().getEndDateType()).isEqualTo("limited");
+        verify(ec2Client, times(1)).describeCapacityReservations(any(DescribeCapacityReservationsRequest.class));
     }
 
     @Test
@@ -108,7 +115,7 @@ public class UpdateHandlerTest extends AbstractTestBase {
                 .availabilityZone("us-east-1a")
                 .instancePlatform("Windows")
                 .state("Active")
-                .totalInstanceCount(3)
+                .totalInstanceCount(1)
                 .build();
 
         final DescribeCapacityReservationsResponse describeResponse = DescribeCapacityReservationsResponse.builder()
@@ -131,6 +138,54 @@ public class UpdateHandlerTest extends AbstractTestBase {
 
         assertThat(response).isNotNull();
         assertThat(response.getStatus()).isEqualTo(OperationStatus.SUCCESS);
+        assertThat(response.getResourceModel().getTotalInstanceCount()).isEqualTo(3);
+    }
+
+    @Test
+    public void test_update_without_effective_change_skips_modify() {
+        final UpdateHandler handler = new UpdateHandler();
+
+        final ResourceModel previous = ResourceModel.builder()
+                .id("cr-121")
+                .instanceCount(3)
+                .endDateType("limited")
+                .endDate("Fri Jan 01 00:00:00 GMT 2100")
+                .build();
+
+        final ResourceModel model = ResourceModel.builder()
+                .id("cr-121")
+                .instanceCount(3)
+                .endDateType("limited")
+                .endDate("2100-01-01T00:00:00Z")
+                .build();
+
+        final CapacityReservation cr = CapacityReservation.builder()
+                .capacityReservationId("cr-121")
+                .availabilityZone("us-east-1a")
+                .instancePlatform("Windows")
+                .state("Active")
+                .totalInstanceCount(3)
+                .endDateType("limited")
+                .endDate(Instant.parse("2100-01-01T00:00:00Z"))
+                .build();
+
+        final DescribeCapacityReservationsResponse describeResponse = DescribeCapacityReservationsResponse.builder()
+                .capacityReservations(cr)
+                .build();
+
+        final ResourceHandlerRequest<ResourceModel> request = ResourceHandlerRequest.<ResourceModel>builder()
+                .previousResourceState(previous)
+                .desiredResourceState(model)
+                .build();
+
+        when(ec2Client.describeCapacityReservations(any(DescribeCapacityReservationsRequest.class))).thenReturn(describeResponse);
+
+        final ProgressEvent<ResourceModel, CallbackContext> response = handler.handleRequest(proxy, request, new CallbackContext(), proxyClient, logger);
+
+        assertThat(response).isNotNull();
+        assertThat(response.getStatus()).isEqualTo(OperationStatus.SUCCESS);
+        assertThat(response.getResourceModel().getEndDate()).isEqualTo("2100-01-01T00:00:00Z");
+        verify(ec2Client, never()).modifyCapacityReservation(any(ModifyCapacityReservationRequest.class));
     }
 
     @Test